@@ -0,0 +1,51 @@
+package org.example.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Точка входа профиля benchmark. Параметры задаются системными свойствами:
+ * jmh.include - регулярное выражение для выбора бенчмарков,
+ * jmh.rows - размеры таблицы через запятую,
+ * jmh.threads - количества потоков через запятую (для каждого выполняется отдельный прогон).
+ * Результаты сохраняются в target/jmh-result-t{threads}.json, аллокации на операцию
+ * выводятся GC-профайлером (gc.alloc.rate.norm).
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String include = System.getProperty("jmh.include", ".*");
+        String[] rows = split(System.getProperty("jmh.rows", "1000,100000,1000000"));
+        int[] threadCounts = Arrays.stream(split(System.getProperty("jmh.threads", "1,4")))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+
+        for (int threads : threadCounts) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .param("rows", rows)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("target/jmh-result-t" + threads + ".json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+    private static String[] split(String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .toArray(String[]::new);
+    }
+}
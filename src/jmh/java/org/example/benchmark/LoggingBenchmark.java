@@ -0,0 +1,75 @@
+package org.example.benchmark;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.example.dao.UserDaoImpl;
+import org.example.entity.User;
+import org.example.util.LogSampling;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URISyntaxException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена логирования одного вызова DAO. perCallInfo - прежняя строка INFO на каждый вызов,
+ * sampledDebug - нынешняя выборочная DEBUG-строка; findById даёт время самого вызова для сравнения.
+ * "До" - perCallInfo при logging=legacy, "после" - sampledDebug при logging=production.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dlog4j2.configurationFile=log4j2-benchmark.xml",
+        "-Duser-service.log.dir=target/benchmark-logs"})
+public class LoggingBenchmark {
+
+    private static final Logger logger = LogManager.getLogger(UserDaoImpl.class);
+
+    @State(Scope.Benchmark)
+    public static class LoggingConfig {
+        @Param({"legacy", "production"})
+        public String logging;
+
+        @Setup(Level.Trial)
+        public void apply() throws URISyntaxException {
+            Configurator.reconfigure(getClass().getClassLoader().getResource("log4j2-" + logging + ".xml").toURI());
+        }
+
+        @TearDown(Level.Trial)
+        public void restore() throws URISyntaxException {
+            Configurator.reconfigure(getClass().getClassLoader().getResource("log4j2-benchmark.xml").toURI());
+        }
+    }
+
+    @Benchmark
+    public void perCallInfo(LoggingConfig config, UserTableState table) {
+        logger.info("User found by id {}: {}", table.randomId(), "exists");
+    }
+
+    @Benchmark
+    public void sampledDebug(LoggingConfig config, UserTableState table) {
+        long id = table.randomId();
+        if (LogSampling.sampledDebug(logger)) {
+            logger.debug("User found by id {}: {}", id, "exists");
+        }
+    }
+
+    @Benchmark
+    public Optional<User> findById(LoggingConfig config, UserTableState table) {
+        return table.userDao.findById(table.randomId());
+    }
+}
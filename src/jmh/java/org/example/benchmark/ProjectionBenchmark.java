@@ -0,0 +1,46 @@
+package org.example.benchmark;
+
+import org.example.dao.UserSummary;
+import org.example.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение чтения сущностей с проекциями (id, name), которые собираются прямо из строк результата.
+ * Запускать с -prof gc: разница в аллокациях растёт с числом строк в выборке.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dlog4j2.configurationFile=log4j2-benchmark.xml"})
+public class ProjectionBenchmark {
+
+    @Benchmark
+    public List<User> findAllEntities(UserTableState table) {
+        return table.userDao.findAll();
+    }
+
+    @Benchmark
+    public List<UserSummary> findAllSummaries(UserTableState table) {
+        return table.userDao.findAllSummaries();
+    }
+
+    @Benchmark
+    public List<User> findByNameEntities(UserTableState table) {
+        return table.userDao.findByName(table.randomName());
+    }
+
+    @Benchmark
+    public List<UserSummary> findByNameSummaries(UserTableState table) {
+        return table.userDao.findSummariesByName(table.randomName());
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.benchmark;
+
+import org.example.entity.User;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение чтения через обычную сессию (снимки сущностей для dirty checking и flush при коммите)
+ * с read-only путём DAO. Запускать с -prof gc: основная разница - в аллокациях на больших выборках.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dlog4j2.configurationFile=log4j2-benchmark.xml"})
+public class ReadPathBenchmark {
+
+    private static final int PAGE_SIZE = 1_000;
+
+    @Benchmark
+    public List<User> findByNameReadWrite(UserTableState table) {
+        String name = table.randomName();
+        return inReadWriteSession(table, session -> session
+                .createQuery("FROM User WHERE name LIKE :name", User.class)
+                .setParameter("name", "%" + name + "%")
+                .list());
+    }
+
+    @Benchmark
+    public List<User> findByNameReadOnly(UserTableState table) {
+        return table.userDao.findByName(table.randomName());
+    }
+
+    @Benchmark
+    public List<User> findPageReadWrite(UserTableState table) {
+        long lastId = table.randomId();
+        return inReadWriteSession(table, session -> session
+                .createQuery("FROM User WHERE id > :lastId ORDER BY id", User.class)
+                .setParameter("lastId", lastId)
+                .setMaxResults(PAGE_SIZE)
+                .list());
+    }
+
+    @Benchmark
+    public List<User> findPageReadOnly(UserTableState table) {
+        return table.userDao.findPageAfter(table.randomId(), PAGE_SIZE);
+    }
+
+    // Прежний путь чтения DAO: сессия по умолчанию и транзакция с flush при коммите
+    private static <T> T inReadWriteSession(UserTableState table, Function<Session, T> work) {
+        try (Session session = table.sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            T result = work.apply(session);
+            transaction.commit();
+            return result;
+        }
+    }
+}
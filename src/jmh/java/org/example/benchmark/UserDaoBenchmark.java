@@ -0,0 +1,104 @@
+package org.example.benchmark;
+
+import org.example.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dlog4j2.configurationFile=log4j2-benchmark.xml"})
+public class UserDaoBenchmark {
+
+    // Строка, которую удаляет очередной вызов delete - вставляется до замера
+    @State(Scope.Thread)
+    public static class DeletableUser {
+        Long id;
+
+        @Setup(Level.Invocation)
+        public void insert(UserTableState table) {
+            id = table.userDao.save(table.newUser()).getId();
+        }
+    }
+
+    @Benchmark
+    public Optional<User> findById(UserTableState table) {
+        return table.userDao.findById(table.randomId());
+    }
+
+    @Benchmark
+    public Optional<User> findByEmail(UserTableState table) {
+        return table.userDao.findByEmail(table.randomEmail());
+    }
+
+    @Benchmark
+    public List<User> findByName(UserTableState table) {
+        return table.userDao.findByName(table.randomName());
+    }
+
+    @Benchmark
+    public List<User> searchByName(UserTableState table) {
+        return table.userDao.searchByName(table.randomName(), 20);
+    }
+
+    @Benchmark
+    public List<User> findAll(UserTableState table) {
+        return table.userDao.findAll();
+    }
+
+    @Benchmark
+    public void streamAll(UserTableState table, Blackhole blackhole) {
+        try (Stream<User> users = table.userDao.streamAll()) {
+            users.forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public List<User> findPageAfter(UserTableState table) {
+        return table.userDao.findPageAfter(table.randomId(), 100);
+    }
+
+    @Benchmark
+    public User save(UserTableState table) {
+        return table.userDao.save(table.newUser());
+    }
+
+    @Benchmark
+    public User update(UserTableState table) {
+        return table.userDao.update(table.detachedCopy(table.randomId()));
+    }
+
+    @Benchmark
+    public int updateById(UserTableState table) {
+        long id = table.randomId();
+        return table.userDao.updateById(id, UserTableState.nameOf(id), UserTableState.emailOf(id),
+                ThreadLocalRandom.current().nextInt(18, 90));
+    }
+
+    @Benchmark
+    public void delete(UserTableState table, DeletableUser user) {
+        table.userDao.delete(user.id);
+    }
+
+    @Benchmark
+    public int deleteById(UserTableState table, DeletableUser user) {
+        return table.userDao.deleteById(user.id);
+    }
+}
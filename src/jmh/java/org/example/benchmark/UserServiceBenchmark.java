@@ -0,0 +1,74 @@
+package org.example.benchmark;
+
+import org.example.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dlog4j2.configurationFile=log4j2-benchmark.xml"})
+public class UserServiceBenchmark {
+
+    @State(Scope.Thread)
+    public static class DeletableUser {
+        Long id;
+
+        @Setup(Level.Invocation)
+        public void insert(UserTableState table) {
+            id = table.userDao.save(table.newUser()).getId();
+        }
+    }
+
+    @Benchmark
+    public Optional<User> getUserById(UserTableState table) {
+        return table.userService.getUserById(table.randomId());
+    }
+
+    @Benchmark
+    public Optional<User> findUserByEmail(UserTableState table) {
+        return table.userService.findUserByEmail(table.randomEmail());
+    }
+
+    @Benchmark
+    public List<User> findUsersByName(UserTableState table) {
+        return table.userService.findUsersByName(table.randomName());
+    }
+
+    @Benchmark
+    public List<User> getAllUsers(UserTableState table) {
+        return table.userService.getAllUsers();
+    }
+
+    @Benchmark
+    public User createUser(UserTableState table) {
+        return table.userService.createUser("Bench User", table.newEmail(), 30);
+    }
+
+    @Benchmark
+    public User updateUser(UserTableState table) {
+        long id = table.randomId();
+        return table.userService.updateUser(id, UserTableState.nameOf(id), UserTableState.emailOf(id),
+                ThreadLocalRandom.current().nextInt(18, 90));
+    }
+
+    @Benchmark
+    public void deleteUser(UserTableState table, DeletableUser user) {
+        table.userService.deleteUser(user.id);
+    }
+}
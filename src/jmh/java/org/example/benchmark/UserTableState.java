@@ -0,0 +1,153 @@
+package org.example.benchmark;
+
+import org.example.dao.UserDao;
+import org.example.dao.UserDaoImpl;
+import org.example.entity.User;
+import org.example.service.UserService;
+import org.example.util.PooledConnectionProvider;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Общая для всех потоков бенчмарка таблица users во встроенной H2,
+ * заполненная {@link #rows} строками с предсказуемыми id, email и именами.
+ */
+@State(Scope.Benchmark)
+public class UserTableState {
+
+    private static final String[] FIRST_NAMES = {
+            "John", "Alice", "Bob", "Maria", "Ivan", "Olga", "Peter", "Anna", "Mike", "Elena",
+            "Sergey", "Kate", "Paul", "Irina", "Alex", "Nina", "Oleg", "Sofia", "Max", "Daria"
+    };
+    private static final String[] LAST_NAMES = {
+            "Smith", "Johnson", "Brown", "Ivanov", "Petrov", "Sidorov", "Miller", "Davis", "Wilson", "Moore",
+            "Taylor", "Anderson", "Thomas", "Jackson", "White", "Harris", "Martin", "Kuznetsov", "Popov", "Lee"
+    };
+    private static final int INSERT_BATCH_SIZE = 1_000;
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    public SessionFactory sessionFactory;
+    public UserDao userDao;
+    public UserService userService;
+
+    private final AtomicLong emailSequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Configuration configuration = new Configuration();
+        configuration.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+        configuration.setProperty("hibernate.connection.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+        configuration.setProperty("hibernate.connection.username", "sa");
+        configuration.setProperty("hibernate.connection.password", "");
+        configuration.setProperty("hibernate.connection.provider_class", PooledConnectionProvider.class.getName());
+        configuration.setProperty("hibernate.connection.provider_disables_autocommit", "true");
+        configuration.setProperty(PooledConnectionProvider.MAX_SIZE, "64");
+        configuration.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        configuration.setProperty("hibernate.show_sql", "false");
+        // На H2 нет pg_trgm: searchByName меряем на индексе имён в памяти
+        configuration.setProperty(UserDaoImpl.IN_MEMORY_NAME_INDEX, "true");
+        configuration.addAnnotatedClass(User.class);
+
+        sessionFactory = configuration.buildSessionFactory();
+        userDao = new UserDaoImpl(sessionFactory);
+        userService = new UserService(userDao);
+
+        populate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (sessionFactory != null) {
+            sessionFactory.close();
+        }
+    }
+
+    // Заполняем таблицу напрямую через JDBC-батчи: через DAO миллион строк грузился бы слишком долго
+    private void populate() {
+        try (var session = sessionFactory.openSession()) {
+            session.doWork(connection -> {
+                connection.setAutoCommit(false);
+                Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO users (id, name, email, age, created_at) VALUES (?, ?, ?, ?, ?)")) {
+                    for (long id = 1; id <= rows; id++) {
+                        insert.setLong(1, id);
+                        insert.setString(2, nameOf(id));
+                        insert.setString(3, emailOf(id));
+                        insert.setInt(4, ageOf(id));
+                        insert.setTimestamp(5, createdAt);
+                        insert.addBatch();
+                        if (id % INSERT_BATCH_SIZE == 0) {
+                            insert.executeBatch();
+                        }
+                    }
+                    insert.executeBatch();
+                }
+                try (Statement statement = connection.createStatement()) {
+                    // Генератор с пулом выдаёт блок (hi - allocationSize, hi], поэтому сдвигаем на размер блока
+                    statement.execute("ALTER SEQUENCE users_seq RESTART WITH " + (rows + ID_ALLOCATION_SIZE));
+                }
+                connection.commit();
+                connection.setAutoCommit(true);
+            });
+        }
+    }
+
+    public long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, rows + 1);
+    }
+
+    public String randomEmail() {
+        return emailOf(randomId());
+    }
+
+    public String randomName() {
+        return nameOf(randomId());
+    }
+
+    // Уникальный email для операций вставки, не пересекающийся с заранее загруженными строками
+    public String newEmail() {
+        return "bench" + emailSequence.incrementAndGet() + "@example.com";
+    }
+
+    public User newUser() {
+        long n = emailSequence.get();
+        return new User(FIRST_NAMES[(int) (n % FIRST_NAMES.length)] + " New", newEmail(), 30);
+    }
+
+    // Отсоединённая копия существующей строки с изменённым возрастом - аргумент для update
+    public User detachedCopy(long id) {
+        User user = new User(nameOf(id), emailOf(id), ThreadLocalRandom.current().nextInt(18, 90));
+        user.setId(id);
+        return user;
+    }
+
+    public static String nameOf(long id) {
+        return FIRST_NAMES[(int) (id % FIRST_NAMES.length)] + " "
+                + LAST_NAMES[(int) ((id / FIRST_NAMES.length) % LAST_NAMES.length)];
+    }
+
+    public static String emailOf(long id) {
+        return "user" + id + "@example.com";
+    }
+
+    public static int ageOf(long id) {
+        return (int) (18 + id % 70);
+    }
+}
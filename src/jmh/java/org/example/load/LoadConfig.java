@@ -0,0 +1,65 @@
+package org.example.load;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Параметры прогона, задаются системными свойствами (см. {@link LoadGenerator}).
+ *
+ * @param rate общий темп запросов в секунду; 0 - каждый поток шлёт следующий запрос сразу
+ *             после ответа на предыдущий (замкнутая модель, без поправки на coordinated omission)
+ */
+record LoadConfig(Target target, int threads, double rate, Duration warmup, Duration duration, Duration interval,
+                  int rows, OperationMix mix, Path report, Path summary) {
+
+    enum Target {
+        // Встроенная H2 в памяти, схема создаётся на время прогона
+        H2,
+        // PostgreSQL из hibernate.cfg.xml через HibernateUtil
+        POSTGRES
+    }
+
+    static final String DEFAULT_MIX = "get=50,findByEmail=20,findByName=10,create=10,update=8,delete=2";
+
+    LoadConfig {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        if (rate < 0) {
+            throw new IllegalArgumentException("Rate cannot be negative");
+        }
+        if (warmup.isNegative() || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Duration must be positive and warmup cannot be negative");
+        }
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Report interval must be positive");
+        }
+        if (rows <= 0) {
+            throw new IllegalArgumentException("Preloaded row count must be positive");
+        }
+    }
+
+    static LoadConfig fromSystemProperties() {
+        return new LoadConfig(
+                Target.valueOf(System.getProperty("load.target", "h2").trim().toUpperCase(Locale.ROOT)),
+                Integer.parseInt(System.getProperty("load.threads", "8").trim()),
+                Double.parseDouble(System.getProperty("load.rate", "1000").trim()),
+                Duration.ofSeconds(Long.parseLong(System.getProperty("load.warmup", "10").trim())),
+                Duration.ofSeconds(Long.parseLong(System.getProperty("load.duration", "60").trim())),
+                Duration.ofSeconds(Long.parseLong(System.getProperty("load.interval", "1").trim())),
+                Integer.parseInt(System.getProperty("load.rows", "10000").trim()),
+                OperationMix.parse(System.getProperty("load.mix", DEFAULT_MIX)),
+                Path.of(System.getProperty("load.report", "target/load-report.csv").trim()),
+                Path.of(System.getProperty("load.summary", "target/load-summary.txt").trim()));
+    }
+
+    boolean openModel() {
+        return rate > 0;
+    }
+
+    // Интервал между запланированными запросами одного потока
+    long periodNanos() {
+        return Math.round(threads * 1_000_000_000.0 / rate);
+    }
+}
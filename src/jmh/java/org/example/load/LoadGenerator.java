@@ -0,0 +1,258 @@
+package org.example.load;
+
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.dao.UserDaoImpl;
+import org.example.entity.User;
+import org.example.service.UserService;
+import org.example.util.ConnectionPoolStats;
+import org.example.util.HibernateUtil;
+import org.example.util.PooledConnectionProvider;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Генератор нагрузки на {@link UserService}: N потоков выполняют смесь операций с заданным общим темпом
+ * в течение прогрева и измерения. Каждый поток отправляет запросы по своему расписанию; отстав от него,
+ * поток не пропускает запросы, а отправляет их сразу, и ожидание входит во время ответа.
+ *
+ * Раз в interval в консоль и в CSV-отчёт пишется строка с пропускной способностью, p50/p99/p99.9/max
+ * времени ответа и числом ошибок, в конце - итог по операциям. Параметры (системные свойства):
+ * load.target (h2 | postgres), load.threads, load.rate (запросов в секунду, 0 - без ограничения),
+ * load.warmup, load.duration, load.interval (секунды), load.rows, load.mix, load.report, load.summary.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.mainClass=org.example.load.LoadGenerator \
+ *     -Dload.threads=16 -Dload.rate=2000 -Dload.duration=300
+ * </pre>
+ */
+public final class LoadGenerator {
+
+    private static final Logger logger = LogManager.getLogger(LoadGenerator.class);
+    // Сколько первых ошибок писать в лог целиком; остальные только считаются
+    private static final int LOGGED_ERRORS = 10;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final LoadConfig config;
+    private final UserWorkload workload;
+    private final LoadStats stats = new LoadStats();
+    private final AtomicInteger loggedErrors = new AtomicInteger();
+
+    private LoadGenerator(LoadConfig config, UserWorkload workload) {
+        this.config = config;
+        this.workload = workload;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadConfig config = LoadConfig.fromSystemProperties();
+        System.out.println("Load test: " + config);
+
+        SessionFactory sessionFactory = config.target() == LoadConfig.Target.POSTGRES
+                ? HibernateUtil.getSessionFactory()
+                : buildH2SessionFactory(config.threads());
+        try {
+            UserWorkload workload = new UserWorkload(new UserService(new UserDaoImpl(sessionFactory)));
+            long start = System.nanoTime();
+            workload.preload(config.rows());
+            System.out.printf("Preloaded %d users in %.1f s%n", config.rows(), (System.nanoTime() - start) / 1e9);
+
+            new LoadGenerator(config, workload).run();
+            PooledConnectionProvider.statsOf(sessionFactory).map(ConnectionPoolStats::toString)
+                    .ifPresent(pool -> System.out.println("Connection pool: " + pool));
+        } finally {
+            if (config.target() == LoadConfig.Target.POSTGRES) {
+                HibernateUtil.shutdown();
+            } else {
+                sessionFactory.close();
+            }
+        }
+    }
+
+    private void run() throws IOException, InterruptedException {
+        long startNanos = System.nanoTime();
+        long measureFromNanos = startNanos + config.warmup().toNanos();
+        long endNanos = measureFromNanos + config.duration().toNanos();
+
+        List<Thread> workers = new ArrayList<>(config.threads());
+        for (int i = 0; i < config.threads(); i++) {
+            // Расписания потоков сдвинуты друг относительно друга, чтобы запросы шли равномерно
+            long firstNanos = config.openModel() ? startNanos + config.periodNanos() * i / config.threads() : startNanos;
+            Thread worker = new Thread(() -> work(firstNanos, endNanos), "load-worker-" + (i + 1));
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+        workers.forEach(Thread::start);
+
+        Path report = config.report();
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(report))) {
+            out.println("phase,elapsed_s,ops,ops_per_s,p50_ms,p99_ms,p999_ms,max_ms,errors");
+            long intervalNanos = config.interval().toNanos();
+            long previous = startNanos;
+            boolean measuring = measureFromNanos == startNanos;
+            while (previous < endNanos) {
+                long next = Math.min(previous + intervalNanos, endNanos);
+                // Граница прогрева - отдельная точка отчёта, чтобы его значения не смешались с измерением
+                if (!measuring && next > measureFromNanos) {
+                    next = measureFromNanos;
+                }
+                sleepUntil(next);
+                LoadStats.Interval interval = stats.drain(measuring);
+                writeInterval(out, measuring ? "measure" : "warmup", (next - startNanos) / 1e9,
+                        (next - previous) / 1e9, interval);
+                if (next == measureFromNanos) {
+                    measuring = true;
+                }
+                previous = next;
+            }
+
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            // Запросы, завершившиеся после последней точки отчёта
+            LoadStats.Interval tail = stats.drain(true);
+            if (tail.responseTime().getTotalCount() > 0) {
+                writeInterval(out, "drain", (System.nanoTime() - startNanos) / 1e9,
+                        (System.nanoTime() - previous) / 1e9, tail);
+            }
+        }
+
+        String summary = summary();
+        System.out.print(summary);
+        Files.writeString(config.summary(), summary);
+        System.out.println("Report: " + report.toAbsolutePath() + ", summary: " + config.summary().toAbsolutePath());
+    }
+
+    private void work(long firstNanos, long endNanos) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long periodNanos = config.openModel() ? config.periodNanos() : 0;
+        long intended = firstNanos;
+        // Не отправленные к концу прогона запросы отбрасываются: при насыщении ops/s в отчёте ниже load.rate
+        while (intended < endNanos && System.nanoTime() < endNanos) {
+            if (config.openModel()) {
+                sleepUntil(intended);
+            }
+            long start = System.nanoTime();
+            if (!config.openModel()) {
+                // Замкнутая модель: запрос запланирован на момент отправки
+                intended = start;
+                if (intended >= endNanos) {
+                    return;
+                }
+            }
+
+            Operation operation = config.mix().next(random);
+            boolean success = false;
+            try {
+                operation = workload.execute(operation, random);
+                success = true;
+            } catch (RuntimeException e) {
+                if (loggedErrors.incrementAndGet() <= LOGGED_ERRORS) {
+                    logger.warn("Load operation {} failed", operation, e);
+                }
+            }
+            stats.record(operation, intended, start, System.nanoTime(), success);
+            intended += periodNanos;
+        }
+    }
+
+    private static void writeInterval(PrintWriter out, String phase, double elapsedSeconds, double lengthSeconds,
+                                      LoadStats.Interval interval) {
+        Histogram latency = interval.responseTime();
+        long ops = latency.getTotalCount();
+        double throughput = lengthSeconds > 0 ? ops / lengthSeconds : 0;
+        out.printf(Locale.ROOT, "%s,%.1f,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%d%n", phase, elapsedSeconds, ops, throughput,
+                millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(99)),
+                millis(latency.getValueAtPercentile(99.9)), millis(latency.getMaxValue()), interval.errors());
+        out.flush();
+        System.out.printf(Locale.ROOT, "[%s %6.1fs] %8.1f ops/s  p50 %8.3f ms  p99 %8.3f ms  p99.9 %8.3f ms  errors %d%n",
+                phase, elapsedSeconds, throughput, millis(latency.getValueAtPercentile(50)),
+                millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)), interval.errors());
+    }
+
+    private String summary() {
+        StringBuilder result = new StringBuilder();
+        double seconds = config.duration().toNanos() / 1e9;
+        result.append(String.format(Locale.ROOT, "%nLoad test summary: %s, %d threads, target rate %s, %d s measured%n",
+                config.target(), config.threads(), config.openModel() ? config.rate() + " ops/s" : "unlimited",
+                config.duration().toSeconds()));
+        result.append(String.format(Locale.ROOT, "%-14s %10s %10s %10s %10s %10s %10s %8s%n",
+                "operation", "ops", "ops/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors"));
+
+        Histogram all = new Histogram(3);
+        long allErrors = 0;
+        for (Operation operation : Operation.values()) {
+            Histogram latency = stats.totalResponseTime(operation);
+            long errors = stats.totalErrors(operation);
+            if (latency.getTotalCount() == 0) {
+                continue;
+            }
+            all.add(latency);
+            allErrors += errors;
+            appendRow(result, operation.key(), latency, seconds, errors);
+        }
+        appendRow(result, "total", all, seconds, allErrors);
+        double achieved = all.getTotalCount() / seconds;
+        // Небольшой недобор даёт сдвиг расписаний потоков; заметный - признак насыщения
+        if (config.openModel() && achieved < config.rate() * 0.95) {
+            result.append(String.format(Locale.ROOT,
+                    "Target rate not reached: %.1f of %.1f ops/s, the system is saturated%n", achieved, config.rate()));
+        }
+
+        Histogram service = stats.totalServiceTime();
+        result.append(String.format(Locale.ROOT,
+                "Service time (from actual send): p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms%n",
+                millis(service.getValueAtPercentile(50)), millis(service.getValueAtPercentile(99)),
+                millis(service.getValueAtPercentile(99.9))));
+        return result.toString();
+    }
+
+    private static void appendRow(StringBuilder result, String name, Histogram latency, double seconds, long errors) {
+        result.append(String.format(Locale.ROOT, "%-14s %10d %10.1f %10.3f %10.3f %10.3f %10.3f %8d%n",
+                name, latency.getTotalCount(), latency.getTotalCount() / seconds,
+                millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(99)),
+                millis(latency.getValueAtPercentile(99.9)), millis(latency.getMaxValue()), errors));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    private static void sleepUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    // Как UserTableState бенчмарков, но с пулом по числу потоков генератора
+    private static SessionFactory buildH2SessionFactory(int threads) {
+        Configuration configuration = new Configuration();
+        configuration.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+        configuration.setProperty("hibernate.connection.url", "jdbc:h2:mem:load;DB_CLOSE_DELAY=-1");
+        configuration.setProperty("hibernate.connection.username", "sa");
+        configuration.setProperty("hibernate.connection.password", "");
+        configuration.setProperty("hibernate.connection.provider_class", PooledConnectionProvider.class.getName());
+        configuration.setProperty("hibernate.connection.provider_disables_autocommit", "true");
+        configuration.setProperty(PooledConnectionProvider.MAX_SIZE, String.valueOf(Math.max(threads, 2)));
+        configuration.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        configuration.setProperty("hibernate.jdbc.batch_size", "50");
+        configuration.setProperty("hibernate.show_sql", "false");
+        configuration.addAnnotatedClass(User.class);
+        return configuration.buildSessionFactory();
+    }
+}
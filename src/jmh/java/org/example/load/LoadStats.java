@@ -0,0 +1,98 @@
+package org.example.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Задержки и ошибки прогона. Время ответа считается от запланированного момента отправки,
+ * а не от фактического: если система не успевает и запросы отправляются с опозданием, ожидание
+ * в очереди попадает в задержку (поправка на coordinated omission). Время обслуживания
+ * (от фактической отправки) пишется отдельно - разница между ними показывает накопленное отставание.
+ */
+final class LoadStats {
+
+    // Задержки больше этого значения записываются как максимум
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<Operation, Recorder> responseTimes = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Recorder serviceTime = newRecorder();
+    private final LongAdder intervalErrors = new LongAdder();
+
+    // Накопленные за измерение гистограммы; меняются только потоком отчёта
+    private final Map<Operation, Histogram> totalResponseTimes = new EnumMap<>(Operation.class);
+    private final Histogram totalServiceTime = newHistogram();
+
+    LoadStats() {
+        for (Operation operation : Operation.values()) {
+            responseTimes.put(operation, newRecorder());
+            errors.put(operation, new LongAdder());
+            totalResponseTimes.put(operation, newHistogram());
+        }
+    }
+
+    void record(Operation operation, long intendedStartNanos, long startNanos, long endNanos, boolean success) {
+        responseTimes.get(operation).recordValue(clamp(endNanos - intendedStartNanos));
+        serviceTime.recordValue(clamp(endNanos - startNanos));
+        if (!success) {
+            errors.get(operation).increment();
+            intervalErrors.increment();
+        }
+    }
+
+    /**
+     * Забирает значения, записанные с прошлого вызова. Во время прогрева (accumulate = false)
+     * они отбрасываются, иначе добавляются в итоговые гистограммы.
+     */
+    Interval drain(boolean accumulate) {
+        Histogram interval = newHistogram();
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = responseTimes.get(operation).getIntervalHistogram();
+            interval.add(histogram);
+            if (accumulate) {
+                totalResponseTimes.get(operation).add(histogram);
+            }
+        }
+        Histogram service = serviceTime.getIntervalHistogram();
+        long failed = intervalErrors.sumThenReset();
+        if (accumulate) {
+            totalServiceTime.add(service);
+        } else {
+            errors.values().forEach(LongAdder::reset);
+        }
+        return new Interval(interval, failed);
+    }
+
+    Histogram totalResponseTime(Operation operation) {
+        return totalResponseTimes.get(operation);
+    }
+
+    Histogram totalServiceTime() {
+        return totalServiceTime;
+    }
+
+    long totalErrors(Operation operation) {
+        return errors.get(operation).sum();
+    }
+
+    record Interval(Histogram responseTime, long errors) {
+    }
+
+    private static long clamp(long nanos) {
+        return Math.max(0, Math.min(nanos, HIGHEST_TRACKABLE_NANOS));
+    }
+
+    private static Recorder newRecorder() {
+        return new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    }
+
+    private static Histogram newHistogram() {
+        return new Histogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    }
+}
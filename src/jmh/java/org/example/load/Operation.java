@@ -0,0 +1,32 @@
+package org.example.load;
+
+/**
+ * Операции UserService, из которых складывается нагрузка. key - имя операции в load.mix.
+ */
+enum Operation {
+    CREATE("create"),
+    GET("get"),
+    UPDATE("update"),
+    DELETE("delete"),
+    FIND_BY_EMAIL("findByEmail"),
+    FIND_BY_NAME("findByName");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    String key() {
+        return key;
+    }
+
+    static Operation byKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equalsIgnoreCase(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation: " + key);
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * Доли операций в нагрузке, например "get=50,findByEmail=20,findByName=10,create=10,update=8,delete=2".
+ * Веса не обязаны давать в сумме 100: операция выбирается пропорционально весу.
+ */
+final class OperationMix {
+
+    private final Map<Operation, Integer> weights;
+    private final Operation[] operations;
+    private final int[] cumulative;
+    private final int total;
+
+    private OperationMix(Map<Operation, Integer> weights) {
+        this.weights = weights;
+        this.operations = weights.keySet().toArray(Operation[]::new);
+        this.cumulative = new int[operations.length];
+        int sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += weights.get(operations[i]);
+            cumulative[i] = sum;
+        }
+        this.total = sum;
+    }
+
+    static OperationMix parse(String value) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : value.split(",")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            String[] pair = part.split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Mix entry must look like operation=weight: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight cannot be negative: " + part);
+            }
+            if (weight > 0) {
+                weights.merge(Operation.byKey(pair[0].trim()), weight, Integer::sum);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Operation mix is empty");
+        }
+        return new OperationMix(weights);
+    }
+
+    Operation next(RandomGenerator random) {
+        int ticket = random.nextInt(total);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (ticket < cumulative[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException("Ticket " + ticket + " is out of range " + total);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        weights.forEach((operation, weight) -> {
+            if (result.length() > 0) {
+                result.append(',');
+            }
+            result.append(operation.key()).append('=').append(weight);
+        });
+        return result.toString();
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.load;
+
+import org.example.dao.BatchSaveResult;
+import org.example.entity.User;
+import org.example.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+/**
+ * Данные и операции прогона. Заранее загруженные пользователи не удаляются, поэтому get, update
+ * и поиски всегда попадают в существующие строки; delete удаляет только созданных во время прогона,
+ * а если таких пока нет - выполняет create.
+ */
+final class UserWorkload {
+
+    private static final String[] NAMES = {
+            "John Smith", "Alice Brown", "Ivan Petrov", "Maria Ivanova", "Peter Miller",
+            "Anna Davis", "Oleg Popov", "Sofia Wilson", "Max Moore", "Elena Lee"
+    };
+    private static final int PRELOAD_CHUNK_SIZE = 1_000;
+
+    private final UserService userService;
+    // Префикс email уникален для прогона: повторный запуск на той же БД не упрётся в ограничение уникальности
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<User> preloaded = new ArrayList<>();
+    private final Queue<Long> created = new ConcurrentLinkedQueue<>();
+
+    UserWorkload(UserService userService) {
+        this.userService = userService;
+    }
+
+    void preload(int rows) {
+        List<User> chunk = new ArrayList<>(PRELOAD_CHUNK_SIZE);
+        for (int i = 0; i < rows; i++) {
+            chunk.add(newUser(i));
+            if (chunk.size() == PRELOAD_CHUNK_SIZE || i == rows - 1) {
+                BatchSaveResult result = userService.createUsers(chunk, PRELOAD_CHUNK_SIZE);
+                if (result.hasFailures()) {
+                    throw new IllegalStateException("Preload failed: " + result.failures().get(0).cause().getMessage(),
+                            result.failures().get(0).cause());
+                }
+                preloaded.addAll(chunk);
+                chunk = new ArrayList<>(PRELOAD_CHUNK_SIZE);
+            }
+        }
+    }
+
+    // Возвращает фактически выполненную операцию
+    Operation execute(Operation operation, RandomGenerator random) {
+        switch (operation) {
+            case CREATE -> create(random);
+            case GET -> userService.getUserById(randomUser(random).getId());
+            case UPDATE -> {
+                User user = randomUser(random);
+                userService.updateUser(user.getId(), user.getName(), user.getEmail(), random.nextInt(18, 90));
+            }
+            case DELETE -> {
+                Long id = created.poll();
+                if (id == null) {
+                    create(random);
+                    return Operation.CREATE;
+                }
+                userService.deleteUser(id);
+            }
+            case FIND_BY_EMAIL -> userService.findUserByEmail(randomUser(random).getEmail());
+            case FIND_BY_NAME -> userService.findUsersByName(randomUser(random).getName());
+        }
+        return operation;
+    }
+
+    private void create(RandomGenerator random) {
+        User user = userService.createUser(NAMES[random.nextInt(NAMES.length)],
+                "load-" + runId + "-" + sequence.incrementAndGet() + "@example.com", random.nextInt(18, 90));
+        created.add(user.getId());
+    }
+
+    private User randomUser(RandomGenerator random) {
+        return preloaded.get(random.nextInt(preloaded.size()));
+    }
+
+    private User newUser(long n) {
+        return new User(NAMES[(int) (n % NAMES.length)] + " " + n,
+                "load-" + runId + "-preload-" + n + "@example.com", (int) (18 + n % 70));
+    }
+}
@@ -1,12 +1,29 @@
 package org.example;
 
+import org.example.dao.AgeBucket;
+import org.example.dao.AgeStats;
+import org.example.dao.BloomFilterUserDao;
+import org.example.dao.CachingUserDao;
+import org.example.dao.CountingUserDao;
+import org.example.dao.DailySignups;
+import org.example.dao.InstrumentedUserDao;
 import org.example.dao.UserDao;
 import org.example.dao.UserDaoImpl;
+import org.example.dao.UserPatch;
 import org.example.entity.User;
+import org.example.metrics.MetricsRegistry;
+import org.example.metrics.PrometheusExporter;
+import org.example.transfer.ExportStats;
+import org.example.transfer.ImportStats;
+import org.example.transfer.UserExporter;
+import org.example.transfer.UserImporter;
 import org.example.util.HibernateUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
@@ -14,12 +31,26 @@ import java.util.Scanner;
 public class Main {
 
     private static final Logger logger = LogManager.getLogger(Main.class);
-    private static final UserDao userDao = new UserDaoImpl();
+    // Порт эндпоинта /metrics; без свойства эндпоинт не поднимается, метрики доступны только через JMX
+    private static final String METRICS_PORT_PROPERTY = "metrics.port";
+    private static final int AGE_BUCKET_WIDTH = 10;
+    private static final int SIGNUP_DAYS = 7;
+
+    private static final MetricsRegistry metrics = new MetricsRegistry();
+    private static final BloomFilterUserDao emailFilter = new BloomFilterUserDao(new UserDaoImpl());
+    private static final CachingUserDao userCache = new CachingUserDao(emailFilter);
+    private static final CountingUserDao userCounter = new CountingUserDao(userCache);
+    private static final UserDao userDao = new InstrumentedUserDao(userCounter, metrics);
     private static final Scanner scanner = new Scanner(System.in);
 
     public static void main(String[] args) {
         logger.info("Starting User Service Application");
+        // Фабрика сессий строится в фоне, пока пользователь читает меню; первая операция с БД дождётся её
+        HibernateUtil.startInBackground();
+        startEmailFilterBuild();
 
+        metrics.registerMBeans();
+        PrometheusExporter exporter = startMetricsEndpoint();
         try {
             displayMenu();
             boolean running = true;
@@ -50,6 +81,18 @@ public class Main {
                     case "7":
                         findUsersByName();
                         break;
+                    case "8":
+                        importUsers();
+                        break;
+                    case "9":
+                        exportUsers();
+                        break;
+                    case "10":
+                        showStatistics();
+                        break;
+                    case "11":
+                        showSignupsPerDay();
+                        break;
                     case "0":
                         running = false;
                         break;
@@ -67,12 +110,42 @@ public class Main {
             System.err.println("An error occurred: " + e.getMessage());
         } finally {
             scanner.close();
+            if (exporter != null) {
+                exporter.close();
+            }
+            metrics.unregisterMBeans();
             HibernateUtil.shutdown();
             logger.info("User Service Application stopped");
             System.out.println("Application stopped. Goodbye!");
         }
     }
 
+    // Пока фильтр email строится, поиск по email идёт в БД как обычно
+    private static void startEmailFilterBuild() {
+        Thread thread = new Thread(() -> {
+            try {
+                emailFilter.rebuild();
+            } catch (RuntimeException e) {
+                logger.warn("Email filter build failed, email lookups will query the database", e);
+            }
+        }, "email-filter-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static PrometheusExporter startMetricsEndpoint() {
+        String port = System.getProperty(METRICS_PORT_PROPERTY);
+        if (port == null || port.isBlank()) {
+            return null;
+        }
+        try {
+            return new PrometheusExporter(metrics, Integer.parseInt(port.trim())).start();
+        } catch (RuntimeException e) {
+            logger.error("Failed to start metrics endpoint on port {}", port, e);
+            return null;
+        }
+    }
+
     private static void displayMenu() {
         System.out.println("\n=== User Service ===");
         System.out.println("1. Create User");
@@ -82,6 +155,10 @@ public class Main {
         System.out.println("5. Delete User");
         System.out.println("6. Find User by Email");
         System.out.println("7. Find Users by Name");
+        System.out.println("8. Import Users from File");
+        System.out.println("9. Export Users to File");
+        System.out.println("10. User Statistics");
+        System.out.println("11. Signups per Day");
         System.out.println("0. Exit");
     }
 
@@ -161,27 +238,32 @@ public class Main {
             }
 
             User user = existingUser.get();
+            // В изменение попадают только введённые поля
+            UserPatch patch = UserPatch.of(id);
 
             System.out.print("Enter new name (current: " + user.getName() + "): ");
             String name = scanner.nextLine();
             if (!name.trim().isEmpty()) {
-                user.setName(name);
+                patch = patch.withName(name);
             }
 
             System.out.print("Enter new email (current: " + user.getEmail() + "): ");
             String email = scanner.nextLine();
             if (!email.trim().isEmpty()) {
-                user.setEmail(email);
+                patch = patch.withEmail(email);
             }
 
             System.out.print("Enter new age (current: " + user.getAge() + "): ");
             String ageInput = scanner.nextLine();
             if (!ageInput.trim().isEmpty()) {
-                user.setAge(Integer.parseInt(ageInput));
+                patch = patch.withAge(Integer.parseInt(ageInput));
             }
 
-            User updatedUser = userDao.update(user);
-            System.out.println("User updated successfully: " + updatedUser);
+            switch (userDao.patch(patch)) {
+                case UPDATED -> System.out.println("User updated successfully: " + userDao.findById(id).orElse(user));
+                case UNCHANGED -> System.out.println("No changes, user left as is: " + user);
+                case NOT_FOUND -> System.out.println("User not found with ID: " + id);
+            }
 
         } catch (NumberFormatException e) {
             System.out.println("Invalid number format. Please enter valid numbers.");
@@ -197,10 +279,8 @@ public class Main {
             System.out.print("Enter user ID to delete: ");
             Long id = Long.parseLong(scanner.nextLine());
 
-            // Проверяем существование пользователя
-            Optional<User> user = userDao.findById(id);
-            if (user.isPresent()) {
-                userDao.delete(id);
+            // Один DELETE: число удалённых строк заодно сообщает, существовал ли пользователь
+            if (userDao.deleteById(id) > 0) {
                 System.out.println("User deleted successfully with ID: " + id);
             } else {
                 System.out.println("User not found with ID: " + id);
@@ -250,4 +330,108 @@ public class Main {
             System.out.println("Error finding users by name: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private static void importUsers() {
+        try {
+            System.out.println("\n--- Import Users from File ---");
+
+            System.out.print("Enter file path (.csv or .ndjson, optionally .gz): ");
+            Path source = Path.of(scanner.nextLine().trim());
+            if (!Files.isRegularFile(source)) {
+                System.out.println("File not found: " + source);
+                return;
+            }
+            Path rejectFile = source.resolveSibling(source.getFileName() + ".rejects.csv");
+
+            UserImporter importer = new UserImporter(HibernateUtil.getSessionFactory(), userDao,
+                    UserImporter.DEFAULT_CHUNK_SIZE, Main::onUsersCopied);
+            ImportStats stats = importer.importFile(source, rejectFile, progress ->
+                    System.out.printf("Read %d, imported %d, rejected %d (%.0f rows/s)%n",
+                            progress.rowsRead(), progress.imported(), progress.rejected(), progress.rowsPerSecond()));
+
+            // COPY пишет в обход DAO, поэтому число пользователей перечитывается
+            userCounter.invalidate();
+            System.out.println("Import finished: " + stats);
+            if (stats.rejected() > 0) {
+                System.out.println("Rejected rows written to: " + rejectFile);
+            }
+
+        } catch (Exception e) {
+            System.out.println("Error importing users: " + e.getMessage());
+        }
+    }
+
+    // Строки, записанные COPY в обход DAO: фильтр email и кэш иначе продолжат считать их отсутствующими
+    private static void onUsersCopied(List<User> users) {
+        emailFilter.rememberAll(users);
+        userCache.invalidateAll(users);
+    }
+
+    private static void exportUsers() {
+        try {
+            System.out.println("\n--- Export Users to File ---");
+
+            System.out.print("Enter target file (.csv or .ndjson, add .gz to compress): ");
+            Path target = Path.of(scanner.nextLine().trim());
+
+            ExportStats stats = new UserExporter(userDao).exportFile(target, progress ->
+                    System.out.printf("Exported %d rows (%.0f rows/s)%n", progress.rowsWritten(), progress.rowsPerSecond()));
+
+            System.out.println("Export finished: " + stats);
+
+        } catch (Exception e) {
+            System.out.println("Error exporting users: " + e.getMessage());
+        }
+    }
+
+    private static void showStatistics() {
+        try {
+            System.out.println("\n--- User Statistics ---");
+
+            System.out.println("Total users: " + userDao.count());
+
+            AgeStats ages = userDao.ageStats();
+            if (ages.count() == 0) {
+                System.out.println("No users with age set.");
+                return;
+            }
+            System.out.printf("Age: min %d, max %d, average %.1f (%d users with age)%n",
+                    ages.minAge(), ages.maxAge(), ages.averageAge(), ages.count());
+
+            System.out.println("Age distribution:");
+            for (AgeBucket bucket : userDao.countByAgeBucket(AGE_BUCKET_WIDTH)) {
+                System.out.printf("  %3d-%-3d %d%n", bucket.fromAge(), bucket.toAge() - 1, bucket.count());
+            }
+
+        } catch (Exception e) {
+            System.out.println("Error calculating statistics: " + e.getMessage());
+        }
+    }
+
+    private static void showSignupsPerDay() {
+        try {
+            System.out.println("\n--- Signups per Day ---");
+
+            System.out.print("Enter number of days (default " + SIGNUP_DAYS + "): ");
+            String input = scanner.nextLine().trim();
+            int days = input.isEmpty() ? SIGNUP_DAYS : Integer.parseInt(input);
+            if (days <= 0) {
+                System.out.println("Number of days must be positive.");
+                return;
+            }
+
+            LocalDate to = LocalDate.now().plusDays(1);
+            List<DailySignups> signups = userDao.countSignupsByDay(to.minusDays(days), to);
+            if (signups.isEmpty()) {
+                System.out.println("No signups in the last " + days + " days.");
+            } else {
+                signups.forEach(day -> System.out.println(day.day() + ": " + day.count()));
+            }
+
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid number format. Please enter a valid number.");
+        } catch (Exception e) {
+            System.out.println("Error retrieving signups: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package org.example.dao;
+
+/**
+ * Число пользователей с возрастом в полуинтервале [fromAge, toAge).
+ */
+public record AgeBucket(int fromAge, int toAge, long count) {
+}
@@ -0,0 +1,8 @@
+package org.example.dao;
+
+/**
+ * Минимальный, максимальный и средний возраст. count - число пользователей с заданным возрастом;
+ * если таких нет, остальные поля равны null.
+ */
+public record AgeStats(long count, Integer minAge, Integer maxAge, Double averageAge) {
+}
@@ -0,0 +1,36 @@
+package org.example.dao;
+
+import org.example.entity.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Итог пакетного сохранения: сколько пользователей записано и какие чанки откатились.
+ */
+public record BatchSaveResult(int savedCount, List<ChunkFailure> failures) {
+
+    public BatchSaveResult {
+        failures = List.copyOf(failures);
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    public int failedCount() {
+        return failures.stream().mapToInt(failure -> failure.users().size()).sum();
+    }
+
+    /**
+     * Чанк, транзакция которого была откачена. Идентификаторы его пользователей сброшены,
+     * поэтому их можно исправить и сохранить повторно.
+     */
+    public record ChunkFailure(int chunkIndex, List<User> users, Exception cause) {
+
+        public ChunkFailure {
+            users = Collections.unmodifiableList(new ArrayList<>(users));
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package org.example.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.entity.User;
+import org.example.util.BloomFilter;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Декоратор, отвечающий на findByEmail/existsByEmail для заведомо отсутствующих email
+ * без обращения к БД. Фильтр Блума строится потоковым проходом по таблице в {@link #rebuild()};
+ * до его окончания все запросы идут в БД.
+ *
+ * Email попадает в фильтр до записи в БД, поэтому после коммита отрицательный ответ невозможен.
+ * Удалённые email из фильтра не убираются и только повышают долю ложноположительных ответов
+ * до следующего rebuild.
+ */
+public class BloomFilterUserDao extends ForwardingUserDao {
+
+    public static final long DEFAULT_EXPECTED_INSERTIONS = 1_000_000;
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    private static final Logger logger = LogManager.getLogger(BloomFilterUserDao.class);
+    private static final int SCAN_FETCH_SIZE = 5_000;
+
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter filter;
+    // Фильтр, который строится сейчас: записи во время rebuild попадают в оба
+    private volatile BloomFilter building;
+    // Записи держат read-lock, чтобы rebuild начал сканирование только после их коммита
+    private final ReadWriteLock writeGate = new ReentrantReadWriteLock();
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder definiteMisses = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    public BloomFilterUserDao(UserDao delegate) {
+        this(delegate, DEFAULT_EXPECTED_INSERTIONS, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    public BloomFilterUserDao(UserDao delegate, long expectedInsertions, double falsePositiveRate) {
+        super(delegate);
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Expected insertions must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Строит фильтр заново по текущему содержимому таблицы и подменяет им действующий.
+     * Можно вызывать периодически, чтобы убрать из фильтра удалённые email.
+     */
+    public EmailFilterStats rebuild() {
+        BloomFilter fresh = new BloomFilter(expectedInsertions, falsePositiveRate);
+        writeGate.writeLock().lock();
+        try {
+            building = fresh;
+        } finally {
+            writeGate.writeLock().unlock();
+        }
+
+        long start = System.nanoTime();
+        try (Stream<User> users = delegate.streamAll(SCAN_FETCH_SIZE)) {
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                fresh.put(iterator.next().getEmail());
+            }
+            filter = fresh;
+        } finally {
+            building = null;
+        }
+
+        if (fresh.insertions() > expectedInsertions) {
+            logger.warn("Email filter holds {} emails, more than the expected {}: false positive rate is {}",
+                    fresh.insertions(), expectedInsertions, fresh.estimatedFalsePositiveRate());
+        }
+        logger.info("Email filter built in {}ms: {}", (System.nanoTime() - start) / 1_000_000, getStats());
+        return getStats();
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        if (definitelyAbsent(email)) {
+            return Optional.empty();
+        }
+        Optional<User> user = delegate.findByEmail(email);
+        if (user.isEmpty() && filter != null) {
+            falsePositives.increment();
+        }
+        return user;
+    }
+
+    @Override
+    public MultiGetResult<String> findAllByEmails(Collection<String> emails) {
+        return findAllByEmails(emails, delegate::findAllByEmails);
+    }
+
+    @Override
+    public MultiGetResult<String> findAllByEmails(Collection<String> emails, int batchSize) {
+        return findAllByEmails(emails, candidates -> delegate.findAllByEmails(candidates, batchSize));
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        if (definitelyAbsent(email)) {
+            return false;
+        }
+        boolean exists = delegate.existsByEmail(email);
+        if (!exists && filter != null) {
+            falsePositives.increment();
+        }
+        return exists;
+    }
+
+    @Override
+    public User save(User user) {
+        writeGate.readLock().lock();
+        try {
+            if (user != null) {
+                remember(user.getEmail());
+            }
+            return delegate.save(user);
+        } finally {
+            writeGate.readLock().unlock();
+        }
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<User> users) {
+        writeGate.readLock().lock();
+        try {
+            rememberAll(users);
+            return delegate.saveAll(users);
+        } finally {
+            writeGate.readLock().unlock();
+        }
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<User> users, int chunkSize) {
+        writeGate.readLock().lock();
+        try {
+            rememberAll(users);
+            return delegate.saveAll(users, chunkSize);
+        } finally {
+            writeGate.readLock().unlock();
+        }
+    }
+
+    @Override
+    public User update(User user) {
+        writeGate.readLock().lock();
+        try {
+            if (user != null) {
+                remember(user.getEmail());
+            }
+            return delegate.update(user);
+        } finally {
+            writeGate.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int updateById(Long id, String name, String email, Integer age) {
+        writeGate.readLock().lock();
+        try {
+            remember(email);
+            return delegate.updateById(id, name, email, age);
+        } finally {
+            writeGate.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int updateAll(Collection<UserUpdate> updates) {
+        writeGate.readLock().lock();
+        try {
+            if (updates != null) {
+                for (UserUpdate update : updates) {
+                    if (update != null) {
+                        remember(update.email());
+                    }
+                }
+            }
+            return delegate.updateAll(updates);
+        } finally {
+            writeGate.readLock().unlock();
+        }
+    }
+
+    @Override
+    public PatchResult patch(UserPatch patch) {
+        writeGate.readLock().lock();
+        try {
+            if (patch != null && patch.hasEmail()) {
+                remember(patch.email());
+            }
+            return delegate.patch(patch);
+        } finally {
+            writeGate.readLock().unlock();
+        }
+    }
+
+    @Override
+    public UpsertResult upsertByEmail(User user) {
+        writeGate.readLock().lock();
+        try {
+            if (user != null) {
+                remember(user.getEmail());
+            }
+            return delegate.upsertByEmail(user);
+        } finally {
+            writeGate.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<UpsertResult> upsertAllByEmail(Collection<User> users) {
+        writeGate.readLock().lock();
+        try {
+            rememberAll(users);
+            return delegate.upsertAllByEmail(users);
+        } finally {
+            writeGate.readLock().unlock();
+        }
+    }
+
+    // До первого rebuild размеры фильтра нулевые
+    public EmailFilterStats getStats() {
+        BloomFilter current = filter;
+        if (current == null) {
+            return new EmailFilterStats(false, expectedInsertions, falsePositiveRate, 0, 0, 0, 0, 0.0,
+                    lookups.sum(), definiteMisses.sum(), falsePositives.sum());
+        }
+        return new EmailFilterStats(
+                true,
+                current.expectedInsertions(),
+                current.falsePositiveRate(),
+                current.bitSize(),
+                current.hashFunctions(),
+                current.memoryBytes(),
+                current.insertions(),
+                current.estimatedFalsePositiveRate(),
+                lookups.sum(),
+                definiteMisses.sum(),
+                falsePositives.sum()
+        );
+    }
+
+    // В БД уходят только email, которые фильтр не исключил
+    private MultiGetResult<String> findAllByEmails(Collection<String> emails,
+                                                   Function<List<String>, MultiGetResult<String>> lookup) {
+        List<String> keys = MultiGetResult.distinct(emails);
+        List<String> candidates = keys.stream().filter(email -> !definitelyAbsent(email)).toList();
+        if (candidates.isEmpty()) {
+            return new MultiGetResult<>(List.of(), keys);
+        }
+
+        MultiGetResult<String> result = lookup.apply(candidates);
+        if (filter != null) {
+            falsePositives.add(result.missing().size());
+        }
+        Map<String, User> usersByEmail = new HashMap<>();
+        result.found().forEach(user -> usersByEmail.put(user.getEmail(), user));
+        return MultiGetResult.of(keys, usersByEmail);
+    }
+
+    private boolean definitelyAbsent(String email) {
+        lookups.increment();
+        BloomFilter current = filter;
+        if (current == null || email == null || current.mightContain(email)) {
+            return false;
+        }
+        definiteMisses.increment();
+        return true;
+    }
+
+    private void remember(String email) {
+        if (email == null) {
+            return;
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(email);
+        }
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(email);
+        }
+    }
+
+    /**
+     * Добавляет в фильтр email пользователей, записанных в обход декоратора (COPY при импорте).
+     * До этого вызова фильтр может считать такие email отсутствующими.
+     */
+    public void rememberAll(Collection<User> users) {
+        if (users == null) {
+            return;
+        }
+        for (User user : users) {
+            if (user != null) {
+                remember(user.getEmail());
+            }
+        }
+    }
+}
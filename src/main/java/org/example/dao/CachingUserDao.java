@@ -0,0 +1,372 @@
+package org.example.dao;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.example.entity.User;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Декоратор с кэшем findById и findByEmail в памяти приложения (Caffeine: вытеснение W-TinyLFU
+ * по частоте обращений и TTL). Кэшируется и "не найдено" - со своим, обычно более коротким TTL.
+ * Одновременные промахи по одному ключу выполняют один запрос к БД, остальные ждут его результата.
+ *
+ * Кэш хранит собственные копии пользователей и отдаёт вызывающему новую копию на каждый вызов.
+ * Записи через этот декоратор сбрасывают записи по id, старому и новому email до и после
+ * обращения к БД; изменения в обход декоратора видны только после истечения TTL.
+ */
+public class CachingUserDao extends ForwardingUserDao {
+
+    public static final long DEFAULT_MAXIMUM_SIZE = 100_000;
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+    public static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofSeconds(30);
+
+    private final Cache<Long, Optional<User>> byId;
+    private final Cache<String, Optional<User>> byEmail;
+    // Под каким email пользователь лежит в byEmail - чтобы запись по id сбросила и его
+    private final Map<Long, String> emailKeyById = new ConcurrentHashMap<>();
+
+    public CachingUserDao(UserDao delegate) {
+        this(delegate, DEFAULT_MAXIMUM_SIZE, DEFAULT_TTL, DEFAULT_NEGATIVE_TTL);
+    }
+
+    public CachingUserDao(UserDao delegate, long maximumSize, Duration ttl, Duration negativeTtl) {
+        super(delegate);
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("TTL must be positive");
+        }
+        if (negativeTtl == null || negativeTtl.isNegative()) {
+            throw new IllegalArgumentException("Negative TTL cannot be negative");
+        }
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new FoundOrMissingExpiry<Long>(ttl, negativeTtl))
+                .recordStats()
+                .build();
+        this.byEmail = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new FoundOrMissingExpiry<String>(ttl, negativeTtl))
+                .evictionListener((String email, Optional<User> user, RemovalCause cause) -> {
+                    if (email != null && user != null) {
+                        user.ifPresent(found -> emailKeyById.remove(found.getId(), email));
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        if (id == null) {
+            return delegate.findById(null);
+        }
+        return byId.get(id, key -> delegate.findById(key).map(CachingUserDao::copyOf))
+                .map(CachingUserDao::copyOf);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return delegate.findByEmail(null);
+        }
+        return byEmail.get(email, key -> {
+            Optional<User> user = delegate.findByEmail(key).map(CachingUserDao::copyOf);
+            user.ifPresent(found -> emailKeyById.put(found.getId(), key));
+            return user;
+        }).map(CachingUserDao::copyOf);
+    }
+
+    @Override
+    public MultiGetResult<Long> findAllByIds(Collection<Long> ids) {
+        return findAllByIds(ids, UserDaoImpl.DEFAULT_LOOKUP_BATCH_SIZE);
+    }
+
+    // Попадания берутся из кэша, промахи - одним вызовом делегата; отсутствующие кэшируются как "не найдено"
+    @Override
+    public MultiGetResult<Long> findAllByIds(Collection<Long> ids, int batchSize) {
+        List<Long> keys = MultiGetResult.distinct(ids);
+        Map<Long, Optional<User>> cached = byId.getAll(keys, misses -> {
+            MultiGetResult<Long> loaded = delegate.findAllByIds(List.copyOf(misses), batchSize);
+            Map<Long, Optional<User>> entries = new HashMap<>();
+            loaded.found().forEach(user -> entries.put(user.getId(), Optional.of(copyOf(user))));
+            loaded.missing().forEach(id -> entries.put(id, Optional.empty()));
+            return entries;
+        });
+        return MultiGetResult.of(keys, copies(cached));
+    }
+
+    @Override
+    public MultiGetResult<String> findAllByEmails(Collection<String> emails) {
+        return findAllByEmails(emails, UserDaoImpl.DEFAULT_LOOKUP_BATCH_SIZE);
+    }
+
+    @Override
+    public MultiGetResult<String> findAllByEmails(Collection<String> emails, int batchSize) {
+        List<String> keys = MultiGetResult.distinct(emails);
+        Map<String, Optional<User>> cached = byEmail.getAll(keys, misses -> {
+            MultiGetResult<String> loaded = delegate.findAllByEmails(List.copyOf(misses), batchSize);
+            Map<String, Optional<User>> entries = new HashMap<>();
+            loaded.found().forEach(user -> {
+                entries.put(user.getEmail(), Optional.of(copyOf(user)));
+                emailKeyById.put(user.getId(), user.getEmail());
+            });
+            loaded.missing().forEach(email -> entries.put(email, Optional.empty()));
+            return entries;
+        });
+        return MultiGetResult.of(keys, copies(cached));
+    }
+
+    // Ответ из кэша, если email там уже есть; иначе - лёгкий запрос делегата без загрузки сущности
+    @Override
+    public boolean existsByEmail(String email) {
+        Optional<User> cached = email != null ? byEmail.asMap().get(email) : null;
+        if (cached != null) {
+            return cached.isPresent();
+        }
+        return delegate.existsByEmail(email);
+    }
+
+    @Override
+    public User save(User user) {
+        String email = user != null ? user.getEmail() : null;
+        invalidateEmail(email);
+        User saved = null;
+        try {
+            saved = delegate.save(user);
+            return saved;
+        } finally {
+            // Вставка могла выполниться и при ошибке (например, сбой коммита)
+            invalidateEmail(email);
+            invalidateId(saved != null ? saved.getId() : user != null ? user.getId() : null);
+        }
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<User> users) {
+        invalidateAll(users);
+        try {
+            return delegate.saveAll(users);
+        } finally {
+            invalidateAll(users);
+        }
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<User> users, int chunkSize) {
+        invalidateAll(users);
+        try {
+            return delegate.saveAll(users, chunkSize);
+        } finally {
+            invalidateAll(users);
+        }
+    }
+
+    @Override
+    public User update(User user) {
+        Long id = user != null ? user.getId() : null;
+        String email = user != null ? user.getEmail() : null;
+        invalidate(id, email);
+        try {
+            return delegate.update(user);
+        } finally {
+            invalidate(id, email);
+        }
+    }
+
+    @Override
+    public void delete(Long id) {
+        invalidateId(id);
+        try {
+            delegate.delete(id);
+        } finally {
+            invalidateId(id);
+        }
+    }
+
+    @Override
+    public int updateById(Long id, String name, String email, Integer age) {
+        invalidate(id, email);
+        try {
+            return delegate.updateById(id, name, email, age);
+        } finally {
+            invalidate(id, email);
+        }
+    }
+
+    @Override
+    public int deleteById(Long id) {
+        invalidateId(id);
+        try {
+            return delegate.deleteById(id);
+        } finally {
+            invalidateId(id);
+        }
+    }
+
+    @Override
+    public int updateAll(Collection<UserUpdate> updates) {
+        invalidateUpdates(updates);
+        try {
+            return delegate.updateAll(updates);
+        } finally {
+            invalidateUpdates(updates);
+        }
+    }
+
+    // Без изменений в БД кэш остаётся верным, но исход заранее неизвестен - сбрасываем как при записи
+    @Override
+    public PatchResult patch(UserPatch patch) {
+        Long id = patch != null ? patch.id() : null;
+        String email = patch != null && patch.hasEmail() ? patch.email() : null;
+        invalidate(id, email);
+        try {
+            return delegate.patch(patch);
+        } finally {
+            invalidate(id, email);
+        }
+    }
+
+    @Override
+    public UpsertResult upsertByEmail(User user) {
+        String email = user != null ? user.getEmail() : null;
+        invalidateEmail(email);
+        try {
+            UpsertResult result = delegate.upsertByEmail(user);
+            invalidateId(result.user().getId());
+            return result;
+        } finally {
+            invalidateEmail(email);
+        }
+    }
+
+    @Override
+    public List<UpsertResult> upsertAllByEmail(Collection<User> users) {
+        invalidateAll(users);
+        try {
+            List<UpsertResult> results = delegate.upsertAllByEmail(users);
+            results.forEach(result -> invalidateId(result.user().getId()));
+            return results;
+        } finally {
+            invalidateAll(users);
+        }
+    }
+
+    public List<UserCacheStats> getStats() {
+        return List.of(stats("byId", byId), stats("byEmail", byEmail));
+    }
+
+    public void invalidateAll() {
+        byId.invalidateAll();
+        byEmail.invalidateAll();
+        emailKeyById.clear();
+    }
+
+    private static <K> Map<K, User> copies(Map<K, Optional<User>> cached) {
+        Map<K, User> users = new HashMap<>(cached.size() * 4 / 3 + 1);
+        cached.forEach((key, user) -> user.ifPresent(found -> users.put(key, copyOf(found))));
+        return users;
+    }
+
+    private void invalidate(Long id, String email) {
+        invalidateId(id);
+        invalidateEmail(email);
+    }
+
+    private void invalidateId(Long id) {
+        if (id == null) {
+            return;
+        }
+        Optional<User> cached = byId.asMap().remove(id);
+        if (cached != null) {
+            cached.ifPresent(user -> invalidateEmail(user.getEmail()));
+        }
+        String email = emailKeyById.remove(id);
+        if (email != null) {
+            byEmail.invalidate(email);
+        }
+    }
+
+    private void invalidateEmail(String email) {
+        if (email == null) {
+            return;
+        }
+        Optional<User> cached = byEmail.asMap().remove(email);
+        if (cached != null) {
+            cached.ifPresent(user -> emailKeyById.remove(user.getId(), email));
+        }
+    }
+
+    // Сбрасывает записи этих пользователей по id и email, в том числе "не найдено"; для записей в обход декоратора
+    public void invalidateAll(Collection<User> users) {
+        if (users == null) {
+            return;
+        }
+        for (User user : users) {
+            if (user != null) {
+                invalidate(user.getId(), user.getEmail());
+            }
+        }
+    }
+
+    private void invalidateUpdates(Collection<UserUpdate> updates) {
+        if (updates == null) {
+            return;
+        }
+        for (UserUpdate update : updates) {
+            if (update != null) {
+                invalidate(update.id(), update.email());
+            }
+        }
+    }
+
+    private static UserCacheStats stats(String name, Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new UserCacheStats(name, stats.hitCount(), stats.missCount(), stats.loadFailureCount(),
+                stats.evictionCount(), cache.estimatedSize());
+    }
+
+    private static User copyOf(User user) {
+        User copy = new User(user.getName(), user.getEmail(), user.getAge());
+        copy.setId(user.getId());
+        copy.setCreatedAt(user.getCreatedAt());
+        return copy;
+    }
+
+    // TTL записи зависит от того, найден ли пользователь
+    private static final class FoundOrMissingExpiry<K> implements Expiry<K, Optional<User>> {
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        FoundOrMissingExpiry(Duration ttl, Duration negativeTtl) {
+            this.ttlNanos = ttl.toNanos();
+            this.negativeTtlNanos = negativeTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(K key, Optional<User> value, long currentTime) {
+            return value.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(K key, Optional<User> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(K key, Optional<User> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.dao;
+
+import org.example.entity.User;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Декоратор, который держит общее число пользователей в памяти: count() читает БД только
+ * при первом вызове, после {@link #invalidate()} и раз в refreshInterval, а save/saveAll/deleteById
+ * через этот декоратор сдвигают закэшированное значение на число записанных или удалённых строк.
+ *
+ * Записи в обход декоратора (COPY при импорте, другие процессы) видны после invalidate или
+ * следующего обновления по таймеру.
+ */
+public class CountingUserDao extends ForwardingUserDao {
+
+    public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofMinutes(1);
+
+    private static final long UNKNOWN = -1;
+
+    private final long refreshIntervalNanos;
+    private final AtomicLong total = new AtomicLong(UNKNOWN);
+    private volatile long loadedAtNanos;
+    // Счётчик записей: загрузка, во время которой была запись, не кэширует свой результат
+    private final AtomicLong writes = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+
+    public CountingUserDao(UserDao delegate) {
+        this(delegate, DEFAULT_REFRESH_INTERVAL);
+    }
+
+    public CountingUserDao(UserDao delegate, Duration refreshInterval) {
+        super(delegate);
+        if (refreshInterval == null || refreshInterval.isNegative() || refreshInterval.isZero()) {
+            throw new IllegalArgumentException("Refresh interval must be positive");
+        }
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+    }
+
+    @Override
+    public long count() {
+        long cached = total.get();
+        if (cached != UNKNOWN && System.nanoTime() - loadedAtNanos < refreshIntervalNanos) {
+            hits.increment();
+            return cached;
+        }
+
+        long stamp = writes.get();
+        long loaded = delegate.count();
+        loads.increment();
+        // Строка, записанная во время запроса, могла попасть или не попасть в результат
+        if (writes.get() == stamp && total.compareAndSet(cached, loaded)) {
+            loadedAtNanos = System.nanoTime();
+        }
+        return loaded;
+    }
+
+    // Ошибка записи могла случиться уже после вставки (например, сбой коммита), поэтому значение перечитывается
+    @Override
+    public User save(User user) {
+        boolean saved = false;
+        try {
+            User result = delegate.save(user);
+            saved = true;
+            adjust(1);
+            return result;
+        } finally {
+            if (!saved) {
+                invalidate();
+            }
+        }
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<User> users) {
+        return adjusted(() -> delegate.saveAll(users));
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<User> users, int chunkSize) {
+        return adjusted(() -> delegate.saveAll(users, chunkSize));
+    }
+
+    // Сдвиг только на вставленные строки: обновление существующей число пользователей не меняет
+    @Override
+    public UpsertResult upsertByEmail(User user) {
+        UpsertResult result = delegate.upsertByEmail(user);
+        adjust(result.inserted() ? 1 : 0);
+        return result;
+    }
+
+    @Override
+    public List<UpsertResult> upsertAllByEmail(Collection<User> users) {
+        List<UpsertResult> results = delegate.upsertAllByEmail(users);
+        adjust(results.stream().filter(UpsertResult::inserted).count());
+        return results;
+    }
+
+    // delete не сообщает, была ли строка, поэтому значение перечитывается
+    @Override
+    public void delete(Long id) {
+        try {
+            delegate.delete(id);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public int deleteById(Long id) {
+        int deleted = delegate.deleteById(id);
+        adjust(-deleted);
+        return deleted;
+    }
+
+    // Следующий count() прочитает число пользователей из БД
+    public void invalidate() {
+        writes.incrementAndGet();
+        total.set(UNKNOWN);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    private BatchSaveResult adjusted(Supplier<BatchSaveResult> write) {
+        BatchSaveResult result;
+        try {
+            result = write.get();
+        } catch (RuntimeException e) {
+            invalidate();
+            throw e;
+        }
+        adjust(result.savedCount());
+        return result;
+    }
+
+    private void adjust(long delta) {
+        writes.incrementAndGet();
+        total.updateAndGet(current -> current == UNKNOWN ? UNKNOWN : current + delta);
+    }
+}
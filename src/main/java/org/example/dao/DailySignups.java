@@ -0,0 +1,9 @@
+package org.example.dao;
+
+import java.time.LocalDate;
+
+/**
+ * Число пользователей, созданных за день (по created_at).
+ */
+public record DailySignups(LocalDate day, long count) {
+}
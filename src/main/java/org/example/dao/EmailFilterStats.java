@@ -0,0 +1,24 @@
+package org.example.dao;
+
+/**
+ * Состояние фильтра email в {@link BloomFilterUserDao}: настройки, объём памяти
+ * и сколько обращений к БД он сэкономил.
+ */
+public record EmailFilterStats(boolean ready, long expectedInsertions, double configuredFalsePositiveRate,
+                               long bitSize, int hashFunctions, long memoryBytes, long insertions,
+                               double estimatedFalsePositiveRate, long lookups, long definiteMisses,
+                               long falsePositives) {
+
+    // Доля проверок, на которые фильтр ответил без БД
+    public double avoidedLookupRatio() {
+        return lookups == 0 ? 0.0 : (double) definiteMisses / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EmailFilterStats{ready=%s, expected=%d, fpp=%.4f, estimatedFpp=%.4f, bits=%d, k=%d, "
+                        + "memory=%dKB, insertions=%d, lookups=%d, definiteMisses=%d, falsePositives=%d}",
+                ready, expectedInsertions, configuredFalsePositiveRate, estimatedFalsePositiveRate, bitSize,
+                hashFunctions, memoryBytes / 1024, insertions, lookups, definiteMisses, falsePositives);
+    }
+}
@@ -0,0 +1,177 @@
+package org.example.dao;
+
+import org.example.entity.User;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Основа для декораторов UserDao: все вызовы передаются делегату,
+ * наследник переопределяет только то, что меняет.
+ */
+public abstract class ForwardingUserDao implements UserDao {
+
+    protected final UserDao delegate;
+
+    protected ForwardingUserDao(UserDao delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public Stream<User> streamAll(int fetchSize) {
+        return delegate.streamAll(fetchSize);
+    }
+
+    @Override
+    public List<User> findPageAfter(Long lastId, int limit) {
+        return delegate.findPageAfter(lastId, limit);
+    }
+
+    @Override
+    public User save(User user) {
+        return delegate.save(user);
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<User> users) {
+        return delegate.saveAll(users);
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<User> users, int chunkSize) {
+        return delegate.saveAll(users, chunkSize);
+    }
+
+    @Override
+    public User update(User user) {
+        return delegate.update(user);
+    }
+
+    @Override
+    public void delete(Long id) {
+        delegate.delete(id);
+    }
+
+    @Override
+    public int updateById(Long id, String name, String email, Integer age) {
+        return delegate.updateById(id, name, email, age);
+    }
+
+    @Override
+    public int deleteById(Long id) {
+        return delegate.deleteById(id);
+    }
+
+    @Override
+    public int updateAll(Collection<UserUpdate> updates) {
+        return delegate.updateAll(updates);
+    }
+
+    @Override
+    public PatchResult patch(UserPatch patch) {
+        return delegate.patch(patch);
+    }
+
+    @Override
+    public UpsertResult upsertByEmail(User user) {
+        return delegate.upsertByEmail(user);
+    }
+
+    @Override
+    public List<UpsertResult> upsertAllByEmail(Collection<User> users) {
+        return delegate.upsertAllByEmail(users);
+    }
+
+    @Override
+    public MultiGetResult<Long> findAllByIds(Collection<Long> ids) {
+        return delegate.findAllByIds(ids);
+    }
+
+    @Override
+    public MultiGetResult<Long> findAllByIds(Collection<Long> ids, int batchSize) {
+        return delegate.findAllByIds(ids, batchSize);
+    }
+
+    @Override
+    public MultiGetResult<String> findAllByEmails(Collection<String> emails) {
+        return delegate.findAllByEmails(emails);
+    }
+
+    @Override
+    public MultiGetResult<String> findAllByEmails(Collection<String> emails, int batchSize) {
+        return delegate.findAllByEmails(emails, batchSize);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return delegate.findByEmail(email);
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return delegate.existsByEmail(email);
+    }
+
+    @Override
+    public List<User> findByName(String name) {
+        return delegate.findByName(name);
+    }
+
+    @Override
+    public List<UserSummary> findAllSummaries() {
+        return delegate.findAllSummaries();
+    }
+
+    @Override
+    public List<UserSummary> findSummariesByName(String name) {
+        return delegate.findSummariesByName(name);
+    }
+
+    @Override
+    public List<UserContact> findAllContacts() {
+        return delegate.findAllContacts();
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public List<AgeBucket> countByAgeBucket(int bucketWidth) {
+        return delegate.countByAgeBucket(bucketWidth);
+    }
+
+    @Override
+    public List<DailySignups> countSignupsByDay(LocalDate from, LocalDate to) {
+        return delegate.countSignupsByDay(from, to);
+    }
+
+    @Override
+    public AgeStats ageStats() {
+        return delegate.ageStats();
+    }
+
+    @Override
+    public List<User> searchByName(String fragment, int limit) {
+        return delegate.searchByName(fragment, limit);
+    }
+}
@@ -0,0 +1,484 @@
+package org.example.dao;
+
+import org.example.entity.User;
+import org.example.metrics.MetricsRegistry;
+import org.example.metrics.OperationMetrics;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Декоратор, измеряющий задержку и исход каждого вызова UserDao.
+ * Метрики операций получаются один раз в конструкторе, замер - без лямбд и аллокаций.
+ */
+public class InstrumentedUserDao implements UserDao {
+
+    public static final String LAYER = "dao";
+
+    private final UserDao delegate;
+
+    private final OperationMetrics findById;
+    private final OperationMetrics findAll;
+    private final OperationMetrics streamAll;
+    private final OperationMetrics findPageAfter;
+    private final OperationMetrics save;
+    private final OperationMetrics saveAll;
+    private final OperationMetrics update;
+    private final OperationMetrics delete;
+    private final OperationMetrics updateById;
+    private final OperationMetrics deleteById;
+    private final OperationMetrics updateAll;
+    private final OperationMetrics patch;
+    private final OperationMetrics upsertByEmail;
+    private final OperationMetrics upsertAllByEmail;
+    private final OperationMetrics findAllByIds;
+    private final OperationMetrics findAllByEmails;
+    private final OperationMetrics findByEmail;
+    private final OperationMetrics existsByEmail;
+    private final OperationMetrics findByName;
+    private final OperationMetrics findAllSummaries;
+    private final OperationMetrics findSummariesByName;
+    private final OperationMetrics findAllContacts;
+    private final OperationMetrics count;
+    private final OperationMetrics countByAgeBucket;
+    private final OperationMetrics countSignupsByDay;
+    private final OperationMetrics ageStats;
+    private final OperationMetrics searchByName;
+
+    public InstrumentedUserDao(UserDao delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        this.findById = registry.operation(LAYER, "findById");
+        this.findAll = registry.operation(LAYER, "findAll");
+        this.streamAll = registry.operation(LAYER, "streamAll");
+        this.findPageAfter = registry.operation(LAYER, "findPageAfter");
+        this.save = registry.operation(LAYER, "save");
+        this.saveAll = registry.operation(LAYER, "saveAll");
+        this.update = registry.operation(LAYER, "update");
+        this.delete = registry.operation(LAYER, "delete");
+        this.updateById = registry.operation(LAYER, "updateById");
+        this.deleteById = registry.operation(LAYER, "deleteById");
+        this.updateAll = registry.operation(LAYER, "updateAll");
+        this.patch = registry.operation(LAYER, "patch");
+        this.upsertByEmail = registry.operation(LAYER, "upsertByEmail");
+        this.upsertAllByEmail = registry.operation(LAYER, "upsertAllByEmail");
+        this.findAllByIds = registry.operation(LAYER, "findAllByIds");
+        this.findAllByEmails = registry.operation(LAYER, "findAllByEmails");
+        this.findByEmail = registry.operation(LAYER, "findByEmail");
+        this.existsByEmail = registry.operation(LAYER, "existsByEmail");
+        this.findByName = registry.operation(LAYER, "findByName");
+        this.findAllSummaries = registry.operation(LAYER, "findAllSummaries");
+        this.findSummariesByName = registry.operation(LAYER, "findSummariesByName");
+        this.findAllContacts = registry.operation(LAYER, "findAllContacts");
+        this.count = registry.operation(LAYER, "count");
+        this.countByAgeBucket = registry.operation(LAYER, "countByAgeBucket");
+        this.countSignupsByDay = registry.operation(LAYER, "countSignupsByDay");
+        this.ageStats = registry.operation(LAYER, "ageStats");
+        this.searchByName = registry.operation(LAYER, "searchByName");
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Optional<User> result = delegate.findById(id);
+            success = true;
+            return result;
+        } finally {
+            findById.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<User> findAll() {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<User> result = delegate.findAll();
+            success = true;
+            return result;
+        } finally {
+            findAll.record(System.nanoTime() - start, success);
+        }
+    }
+
+    // Для потоков замеряется только открытие: чтение идёт уже в вызывающем коде
+    @Override
+    public Stream<User> streamAll() {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Stream<User> result = delegate.streamAll();
+            success = true;
+            return result;
+        } finally {
+            streamAll.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public Stream<User> streamAll(int fetchSize) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Stream<User> result = delegate.streamAll(fetchSize);
+            success = true;
+            return result;
+        } finally {
+            streamAll.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<User> findPageAfter(Long lastId, int limit) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<User> result = delegate.findPageAfter(lastId, limit);
+            success = true;
+            return result;
+        } finally {
+            findPageAfter.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public User save(User user) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            User result = delegate.save(user);
+            success = true;
+            return result;
+        } finally {
+            save.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<User> users) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            BatchSaveResult result = delegate.saveAll(users);
+            success = !result.hasFailures();
+            return result;
+        } finally {
+            saveAll.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<User> users, int chunkSize) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            BatchSaveResult result = delegate.saveAll(users, chunkSize);
+            success = !result.hasFailures();
+            return result;
+        } finally {
+            saveAll.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public User update(User user) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            User result = delegate.update(user);
+            success = true;
+            return result;
+        } finally {
+            update.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public void delete(Long id) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            delegate.delete(id);
+            success = true;
+        } finally {
+            delete.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public int updateById(Long id, String name, String email, Integer age) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            int result = delegate.updateById(id, name, email, age);
+            success = true;
+            return result;
+        } finally {
+            updateById.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public int deleteById(Long id) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            int result = delegate.deleteById(id);
+            success = true;
+            return result;
+        } finally {
+            deleteById.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public int updateAll(Collection<UserUpdate> updates) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            int result = delegate.updateAll(updates);
+            success = true;
+            return result;
+        } finally {
+            updateAll.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public PatchResult patch(UserPatch patch) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            PatchResult result = delegate.patch(patch);
+            success = true;
+            return result;
+        } finally {
+            this.patch.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public UpsertResult upsertByEmail(User user) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            UpsertResult result = delegate.upsertByEmail(user);
+            success = true;
+            return result;
+        } finally {
+            this.upsertByEmail.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<UpsertResult> upsertAllByEmail(Collection<User> users) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<UpsertResult> result = delegate.upsertAllByEmail(users);
+            success = true;
+            return result;
+        } finally {
+            this.upsertAllByEmail.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public MultiGetResult<Long> findAllByIds(Collection<Long> ids) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            MultiGetResult<Long> result = delegate.findAllByIds(ids);
+            success = true;
+            return result;
+        } finally {
+            findAllByIds.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public MultiGetResult<Long> findAllByIds(Collection<Long> ids, int batchSize) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            MultiGetResult<Long> result = delegate.findAllByIds(ids, batchSize);
+            success = true;
+            return result;
+        } finally {
+            findAllByIds.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public MultiGetResult<String> findAllByEmails(Collection<String> emails) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            MultiGetResult<String> result = delegate.findAllByEmails(emails);
+            success = true;
+            return result;
+        } finally {
+            findAllByEmails.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public MultiGetResult<String> findAllByEmails(Collection<String> emails, int batchSize) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            MultiGetResult<String> result = delegate.findAllByEmails(emails, batchSize);
+            success = true;
+            return result;
+        } finally {
+            findAllByEmails.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Optional<User> result = delegate.findByEmail(email);
+            success = true;
+            return result;
+        } finally {
+            findByEmail.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            boolean result = delegate.existsByEmail(email);
+            success = true;
+            return result;
+        } finally {
+            existsByEmail.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<User> findByName(String name) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<User> result = delegate.findByName(name);
+            success = true;
+            return result;
+        } finally {
+            findByName.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<UserSummary> findAllSummaries() {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<UserSummary> result = delegate.findAllSummaries();
+            success = true;
+            return result;
+        } finally {
+            findAllSummaries.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<UserSummary> findSummariesByName(String name) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<UserSummary> result = delegate.findSummariesByName(name);
+            success = true;
+            return result;
+        } finally {
+            findSummariesByName.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<UserContact> findAllContacts() {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<UserContact> result = delegate.findAllContacts();
+            success = true;
+            return result;
+        } finally {
+            findAllContacts.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public long count() {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            long result = delegate.count();
+            success = true;
+            return result;
+        } finally {
+            count.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<AgeBucket> countByAgeBucket(int bucketWidth) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<AgeBucket> result = delegate.countByAgeBucket(bucketWidth);
+            success = true;
+            return result;
+        } finally {
+            countByAgeBucket.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<DailySignups> countSignupsByDay(LocalDate from, LocalDate to) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<DailySignups> result = delegate.countSignupsByDay(from, to);
+            success = true;
+            return result;
+        } finally {
+            countSignupsByDay.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public AgeStats ageStats() {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            AgeStats result = delegate.ageStats();
+            success = true;
+            return result;
+        } finally {
+            ageStats.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<User> searchByName(String fragment, int limit) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<User> result = delegate.searchByName(fragment, limit);
+            success = true;
+            return result;
+        } finally {
+            searchByName.record(System.nanoTime() - start, success);
+        }
+    }
+}
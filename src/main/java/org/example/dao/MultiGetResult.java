@@ -0,0 +1,56 @@
+package org.example.dao;
+
+import org.example.entity.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Итог поиска по набору ключей. found - найденные пользователи по одному на ключ в порядке первого
+ * упоминания ключа во входной коллекции, missing - ключи, для которых пользователь не найден, в том же порядке.
+ */
+public record MultiGetResult<K>(List<User> found, List<K> missing) {
+
+    public MultiGetResult {
+        found = List.copyOf(found);
+        missing = List.copyOf(missing);
+    }
+
+    public boolean hasMissing() {
+        return !missing.isEmpty();
+    }
+
+    // Ключи без повторов в порядке первого упоминания
+    public static <K> List<K> distinct(Collection<K> keys) {
+        if (keys == null) {
+            throw new IllegalArgumentException("Keys cannot be null");
+        }
+        Set<K> distinct = new LinkedHashSet<>(keys.size() * 4 / 3 + 1);
+        for (K key : keys) {
+            if (key == null) {
+                throw new IllegalArgumentException("Keys cannot contain null");
+            }
+            distinct.add(key);
+        }
+        return new ArrayList<>(distinct);
+    }
+
+    // Результат в порядке keys по найденным пользователям
+    static <K> MultiGetResult<K> of(List<K> keys, Map<K, User> usersByKey) {
+        List<User> found = new ArrayList<>(usersByKey.size());
+        List<K> missing = new ArrayList<>();
+        for (K key : keys) {
+            User user = usersByKey.get(key);
+            if (user != null) {
+                found.add(user);
+            } else {
+                missing.add(key);
+            }
+        }
+        return new MultiGetResult<>(found, missing);
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Триграммный индекс имён в памяти приложения для СУБД без pg_trgm (например, H2 в тестах), включается
+ * свойством {@link UserDaoImpl#IN_MEMORY_NAME_INDEX}. Хранит только id и имя: по индексу подбираются
+ * кандидаты, сами пользователи читаются из БД по id.
+ */
+class NameNgramIndex {
+
+    static final int GRAM_SIZE = 3;
+
+    private final Map<Long, String> namesById = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> idsByGram = new ConcurrentHashMap<>();
+
+    void put(Long id, String name) {
+        String previous = namesById.put(id, normalize(name));
+        if (previous != null) {
+            removeGrams(id, previous);
+        }
+        for (String gram : grams(normalize(name))) {
+            idsByGram.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    void remove(Long id) {
+        String previous = namesById.remove(id);
+        if (previous != null) {
+            removeGrams(id, previous);
+        }
+    }
+
+    int size() {
+        return namesById.size();
+    }
+
+    // id пользователей, чьё имя содержит fragment, в порядке убывания релевантности;
+    // фрагмент короче GRAM_SIZE не даёт триграмм и ничего не находит
+    List<Long> search(String fragment, int limit) {
+        String needle = normalize(fragment);
+
+        List<Long> matches = new ArrayList<>();
+        for (Long id : smallestPosting(needle)) {
+            String name = namesById.get(id);
+            if (name != null && name.contains(needle)) {
+                matches.add(id);
+            }
+        }
+
+        Comparator<Long> byRelevance = Comparator.comparing((Long id) -> namesById.getOrDefault(id, ""),
+                relevanceTo(fragment));
+        return matches.stream()
+                .sorted(byRelevance.thenComparing(Comparator.naturalOrder()))
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Порядок имён по релевантности фрагменту: точное совпадение, затем совпадение с начала имени,
+     * затем с начала слова, затем остальные; при равенстве короче имя - выше.
+     */
+    static Comparator<String> relevanceTo(String fragment) {
+        String needle = normalize(fragment);
+        return Comparator.comparingInt((String name) -> -score(normalize(name), needle))
+                .thenComparingInt(String::length);
+    }
+
+    private static int score(String name, String needle) {
+        if (name.equals(needle)) {
+            return 3;
+        }
+        if (name.startsWith(needle)) {
+            return 2;
+        }
+        if (name.contains(" " + needle)) {
+            return 1;
+        }
+        return 0;
+    }
+
+    private Collection<Long> smallestPosting(String needle) {
+        Set<Long> smallest = null;
+        for (String gram : grams(needle)) {
+            Set<Long> ids = idsByGram.get(gram);
+            if (ids == null) {
+                return List.of();
+            }
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        return smallest != null ? smallest : List.of();
+    }
+
+    private void removeGrams(Long id, String name) {
+        for (String gram : grams(name)) {
+            Set<Long> ids = idsByGram.get(gram);
+            if (ids != null) {
+                ids.remove(id);
+            }
+        }
+    }
+
+    private static List<String> grams(String value) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i + GRAM_SIZE <= value.length(); i++) {
+            result.add(value.substring(i, i + GRAM_SIZE));
+        }
+        return result;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+}
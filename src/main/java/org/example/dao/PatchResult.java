@@ -0,0 +1,11 @@
+package org.example.dao;
+
+/**
+ * Исход {@link UserDao#patch}: UNCHANGED - строка есть, но новые значения совпали с текущими
+ * и запись в БД не выполнялась.
+ */
+public enum PatchResult {
+    UPDATED,
+    UNCHANGED,
+    NOT_FOUND
+}
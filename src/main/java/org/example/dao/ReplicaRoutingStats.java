@@ -0,0 +1,18 @@
+package org.example.dao;
+
+import java.util.List;
+
+/**
+ * Снимок маршрутизации чтений {@link ReplicaRoutingUserDao}: pinnedReads - чтения, ушедшие
+ * на primary из-за недавней записи того же потока, fallbacks - чтения, повторённые на primary
+ * после ошибки реплики или при отсутствии здоровых реплик.
+ */
+public record ReplicaRoutingStats(long primaryReads, long pinnedReads, long fallbacks, List<ReplicaStats> replicas) {
+
+    public ReplicaRoutingStats {
+        replicas = List.copyOf(replicas);
+    }
+
+    public record ReplicaStats(int replica, boolean healthy, long reads, long failures, double latencyMillis) {
+    }
+}
@@ -0,0 +1,392 @@
+package org.example.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.entity.User;
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * UserDao, который пишет в primary, а читает с реплик. Реплика выбирается по кругу или по
+ * наименьшей задержке ({@link ReplicaSelection}).
+ *
+ * После записи чтения того же потока в течение pinWindow идут в primary, чтобы поток видел свои
+ * изменения несмотря на отставание реплик. Привязка хранится в ThreadLocal и действует только в
+ * потоке, который писал: чтения из другого потока (через {@link org.example.service.AsyncUserService},
+ * другой пул или другой процесс) могут попасть на отстающую реплику и не увидеть запись.
+ * Реплика, чтение с которой упало с ошибкой соединения
+ * или БД, считается нездоровой на retryAfter: чтение повторяется в primary, а следующие - обходят
+ * эту реплику. Ошибки аргументов (IllegalArgumentException) сразу отдаются вызывающему.
+ *
+ * Как и для {@link ShardedUserDao}, у фабрик primary и реплик должны быть разные
+ * hibernate.cache.region_prefix: иначе реплика будет отдавать записи кэша primary и наоборот.
+ */
+public class ReplicaRoutingUserDao implements UserDao {
+
+    public static final Duration DEFAULT_PIN_WINDOW = Duration.ofSeconds(2);
+    public static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(5);
+
+    private static final Logger logger = LogManager.getLogger(ReplicaRoutingUserDao.class);
+    // Вес нового замера в сглаженной задержке
+    private static final double LATENCY_SMOOTHING = 0.2;
+    // Каждое такое по счёту чтение в режиме LEAST_LATENCY идёт по кругу, чтобы оценки не устаревали
+    private static final int EXPLORATION_INTERVAL = 100;
+
+    private final UserDao primary;
+    private final List<Replica> replicas;
+    private final ReplicaSelection selection;
+    private final long pinWindowNanos;
+    private final long retryAfterNanos;
+
+    private final ThreadLocal<Long> lastWriteNanos = new ThreadLocal<>();
+    private final AtomicLong readCounter = new AtomicLong();
+    private final LongAdder primaryReads = new LongAdder();
+    private final LongAdder pinnedReads = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    public ReplicaRoutingUserDao(SessionFactory primary, List<SessionFactory> replicas, ReplicaSelection selection) {
+        this(new UserDaoImpl(primary), replicas.stream().<UserDao>map(UserDaoImpl::new).toList(), selection,
+                DEFAULT_PIN_WINDOW, DEFAULT_RETRY_AFTER);
+    }
+
+    public ReplicaRoutingUserDao(UserDao primary, List<UserDao> replicas, ReplicaSelection selection,
+                                 Duration pinWindow, Duration retryAfter) {
+        if (primary == null || replicas == null || selection == null) {
+            throw new IllegalArgumentException("Primary, replicas and selection must be set");
+        }
+        if (pinWindow == null || pinWindow.isNegative()) {
+            throw new IllegalArgumentException("Pin window cannot be negative");
+        }
+        if (retryAfter == null || retryAfter.isNegative()) {
+            throw new IllegalArgumentException("Retry interval cannot be negative");
+        }
+        this.primary = primary;
+        List<Replica> list = new ArrayList<>(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            list.add(new Replica(i, replicas.get(i)));
+        }
+        this.replicas = List.copyOf(list);
+        this.selection = selection;
+        this.pinWindowNanos = pinWindow.toNanos();
+        this.retryAfterNanos = retryAfter.toNanos();
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return read(dao -> dao.findById(id));
+    }
+
+    @Override
+    public List<User> findAll() {
+        return read(UserDao::findAll);
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return read(UserDao::streamAll);
+    }
+
+    @Override
+    public Stream<User> streamAll(int fetchSize) {
+        return read(dao -> dao.streamAll(fetchSize));
+    }
+
+    @Override
+    public List<User> findPageAfter(Long lastId, int limit) {
+        return read(dao -> dao.findPageAfter(lastId, limit));
+    }
+
+    @Override
+    public MultiGetResult<Long> findAllByIds(Collection<Long> ids) {
+        return read(dao -> dao.findAllByIds(ids));
+    }
+
+    @Override
+    public MultiGetResult<Long> findAllByIds(Collection<Long> ids, int batchSize) {
+        return read(dao -> dao.findAllByIds(ids, batchSize));
+    }
+
+    @Override
+    public MultiGetResult<String> findAllByEmails(Collection<String> emails) {
+        return read(dao -> dao.findAllByEmails(emails));
+    }
+
+    @Override
+    public MultiGetResult<String> findAllByEmails(Collection<String> emails, int batchSize) {
+        return read(dao -> dao.findAllByEmails(emails, batchSize));
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return read(dao -> dao.findByEmail(email));
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return read(dao -> dao.existsByEmail(email));
+    }
+
+    @Override
+    public List<User> findByName(String name) {
+        return read(dao -> dao.findByName(name));
+    }
+
+    @Override
+    public List<UserSummary> findAllSummaries() {
+        return read(UserDao::findAllSummaries);
+    }
+
+    @Override
+    public List<UserSummary> findSummariesByName(String name) {
+        return read(dao -> dao.findSummariesByName(name));
+    }
+
+    @Override
+    public List<UserContact> findAllContacts() {
+        return read(UserDao::findAllContacts);
+    }
+
+    @Override
+    public long count() {
+        return read(UserDao::count);
+    }
+
+    @Override
+    public List<AgeBucket> countByAgeBucket(int bucketWidth) {
+        return read(dao -> dao.countByAgeBucket(bucketWidth));
+    }
+
+    @Override
+    public List<DailySignups> countSignupsByDay(LocalDate from, LocalDate to) {
+        return read(dao -> dao.countSignupsByDay(from, to));
+    }
+
+    @Override
+    public AgeStats ageStats() {
+        return read(UserDao::ageStats);
+    }
+
+    @Override
+    public List<User> searchByName(String fragment, int limit) {
+        return read(dao -> dao.searchByName(fragment, limit));
+    }
+
+    @Override
+    public User save(User user) {
+        return write(dao -> dao.save(user));
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<User> users) {
+        return write(dao -> dao.saveAll(users));
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<User> users, int chunkSize) {
+        return write(dao -> dao.saveAll(users, chunkSize));
+    }
+
+    @Override
+    public User update(User user) {
+        return write(dao -> dao.update(user));
+    }
+
+    @Override
+    public void delete(Long id) {
+        write(dao -> {
+            dao.delete(id);
+            return null;
+        });
+    }
+
+    @Override
+    public int updateById(Long id, String name, String email, Integer age) {
+        return write(dao -> dao.updateById(id, name, email, age));
+    }
+
+    @Override
+    public int deleteById(Long id) {
+        return write(dao -> dao.deleteById(id));
+    }
+
+    @Override
+    public int updateAll(Collection<UserUpdate> updates) {
+        return write(dao -> dao.updateAll(updates));
+    }
+
+    @Override
+    public PatchResult patch(UserPatch patch) {
+        return write(dao -> dao.patch(patch));
+    }
+
+    @Override
+    public UpsertResult upsertByEmail(User user) {
+        return write(dao -> dao.upsertByEmail(user));
+    }
+
+    @Override
+    public List<UpsertResult> upsertAllByEmail(Collection<User> users) {
+        return write(dao -> dao.upsertAllByEmail(users));
+    }
+
+    public ReplicaRoutingStats getStats() {
+        long now = System.nanoTime();
+        return new ReplicaRoutingStats(primaryReads.sum(), pinnedReads.sum(), fallbacks.sum(),
+                replicas.stream().map(replica -> replica.stats(now)).toList());
+    }
+
+    private <T> T write(Function<UserDao, T> operation) {
+        try {
+            return operation.apply(primary);
+        } finally {
+            // Закрепляем и после неудачной записи: часть изменений могла быть закоммичена
+            lastWriteNanos.set(System.nanoTime());
+        }
+    }
+
+    private <T> T read(Function<UserDao, T> query) {
+        if (pinnedToPrimary()) {
+            pinnedReads.increment();
+            primaryReads.increment();
+            return query.apply(primary);
+        }
+
+        Replica replica = choose();
+        if (replica == null) {
+            if (!replicas.isEmpty()) {
+                fallbacks.increment();
+            }
+            primaryReads.increment();
+            return query.apply(primary);
+        }
+
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = query.apply(replica.dao);
+        } catch (RuntimeException e) {
+            if (!isDataAccessFailure(e)) {
+                throw e;
+            }
+            replica.markDown(System.nanoTime() + retryAfterNanos);
+            logger.warn("Read from replica {} failed, falling back to primary", replica.index, e);
+            fallbacks.increment();
+            primaryReads.increment();
+            return query.apply(primary);
+        }
+        replica.recordLatency(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Сбой реплики - ошибка соединения или доступа к данным (SQLException или HibernateException
+     * в цепочке причин). Ошибки аргументов вызывающего на primary повторились бы так же,
+     * поэтому они отдаются вызывающему и здоровье реплики не меняют.
+     */
+    private static boolean isDataAccessFailure(RuntimeException e) {
+        if (e instanceof IllegalArgumentException || e instanceof IllegalStateException) {
+            return false;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException || cause instanceof HibernateException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private boolean pinnedToPrimary() {
+        Long lastWrite = lastWriteNanos.get();
+        if (lastWrite == null) {
+            return false;
+        }
+        if (System.nanoTime() - lastWrite < pinWindowNanos) {
+            return true;
+        }
+        lastWriteNanos.remove();
+        return false;
+    }
+
+    // null, если здоровых реплик нет
+    private Replica choose() {
+        int count = replicas.size();
+        if (count == 0) {
+            return null;
+        }
+        long now = System.nanoTime();
+        long ticket = readCounter.getAndIncrement();
+
+        if (selection == ReplicaSelection.LEAST_LATENCY && ticket % EXPLORATION_INTERVAL != 0) {
+            Replica best = null;
+            for (Replica replica : replicas) {
+                if (replica.isHealthy(now) && (best == null || replica.latencyNanos < best.latencyNanos)) {
+                    best = replica;
+                }
+            }
+            return best;
+        }
+
+        int start = (int) Math.floorMod(ticket, (long) count);
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((start + i) % count);
+            if (replica.isHealthy(now)) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private static final class Replica {
+        private final int index;
+        private final UserDao dao;
+        private final LongAdder reads = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        // Новая реплика с нулевой оценкой сначала получит чтения и будет измерена
+        private volatile double latencyNanos;
+        private volatile long downUntilNanos;
+        private volatile boolean down;
+
+        Replica(int index, UserDao dao) {
+            this.index = index;
+            this.dao = dao;
+        }
+
+        boolean isHealthy(long now) {
+            return !down || now - downUntilNanos >= 0;
+        }
+
+        void markDown(long untilNanos) {
+            failures.increment();
+            downUntilNanos = untilNanos;
+            down = true;
+        }
+
+        // Гонки между потоками допустимы: оценка приблизительная
+        void recordLatency(long nanos) {
+            reads.increment();
+            down = false;
+            double current = latencyNanos;
+            latencyNanos = current == 0 ? nanos : current + LATENCY_SMOOTHING * (nanos - current);
+        }
+
+        ReplicaRoutingStats.ReplicaStats stats(long now) {
+            return new ReplicaRoutingStats.ReplicaStats(index, isHealthy(now), reads.sum(), failures.sum(),
+                    latencyNanos / 1_000_000.0);
+        }
+    }
+}
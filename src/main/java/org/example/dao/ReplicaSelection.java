@@ -0,0 +1,11 @@
+package org.example.dao;
+
+/**
+ * Способ выбора реплики для чтения в {@link ReplicaRoutingUserDao}.
+ */
+public enum ReplicaSelection {
+    // По кругу среди здоровых реплик
+    ROUND_ROBIN,
+    // Реплика с наименьшей сглаженной задержкой последних чтений
+    LEAST_LATENCY
+}
@@ -0,0 +1,539 @@
+package org.example.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.entity.User;
+import org.hibernate.SessionFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * UserDao поверх нескольких БД (шардов), у каждой своя SessionFactory и своя таблица users.
+ * Новый пользователь попадает на шард по хэшу email; номер шарда хранится в младших
+ * {@link #SHARD_BITS} битах id, старшие биты - значение последовательности users_seq этого шарда.
+ * Поэтому id уникален между шардами, а findById/update/delete идут сразу на нужный шард.
+ *
+ * findByEmail сначала спрашивает шард по хэшу email; пользователь, сменивший email, остаётся
+ * на своём шарде, поэтому при промахе опрашиваются остальные. findAll, findByName, проекции, поиск и
+ * страницы собираются со всех шардов параллельно и сливаются по id (поиск - по релевантности).
+ *
+ * Число шардов нельзя менять без переноса данных: от него зависит размещение по email.
+ * Уникальность email обеспечивает ограничение БД на шарде по хэшу email; при смене email
+ * на адрес чужого шарда занятость проверяется запросом, без гарантий при гонке.
+ *
+ * Кэш второго уровня JCache общий для всех фабрик процесса: каждой фабрике нужен свой
+ * hibernate.cache.region_prefix, иначе результаты findByEmail одного шарда вернутся на запрос к другому.
+ */
+public class ShardedUserDao implements UserDao, AutoCloseable {
+
+    public static final int SHARD_BITS = 8;
+    public static final int MAX_SHARDS = 1 << SHARD_BITS;
+
+    private static final Logger logger = LogManager.getLogger(ShardedUserDao.class);
+    private static final long SHARD_MASK = MAX_SHARDS - 1;
+
+    private final List<UserDaoImpl> shards;
+    private final ExecutorService executor;
+
+    public ShardedUserDao(List<SessionFactory> sessionFactories) {
+        if (sessionFactories == null || sessionFactories.isEmpty() || sessionFactories.size() > MAX_SHARDS) {
+            throw new IllegalArgumentException("Number of shards must be between 1 and " + MAX_SHARDS);
+        }
+        this.shards = sessionFactories.stream().map(UserDaoImpl::new).toList();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(shards.size(), runnable -> {
+            Thread thread = new Thread(runnable, "user-shard-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    // Номер шарда по id или -1, если id не мог быть выдан этим ShardedUserDao
+    public int shardOf(Long id) {
+        if (id == null || id <= 0) {
+            return -1;
+        }
+        int shard = (int) (id & SHARD_MASK);
+        return shard < shards.size() ? shard : -1;
+    }
+
+    public int shardForEmail(String email) {
+        // Перемешиваем hashCode, чтобы похожие адреса не ложились на соседние шарды
+        int hash = email.hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), shards.size());
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        int shard = shardOf(id);
+        return shard < 0 ? Optional.empty() : shards.get(shard).findById(id);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return mergeById(scatter(UserDao::findAll));
+    }
+
+    // Потоки шардов читаются по очереди, но открываются сразу все: порядок - по шардам, не по id
+    @Override
+    public Stream<User> streamAll() {
+        return streamAll(UserDaoImpl.DEFAULT_FETCH_SIZE);
+    }
+
+    @Override
+    public Stream<User> streamAll(int fetchSize) {
+        Stream<User> result = Stream.empty();
+        try {
+            for (UserDaoImpl shard : shards) {
+                result = Stream.concat(result, shard.streamAll(fetchSize));
+            }
+            return result;
+        } catch (RuntimeException e) {
+            result.close();
+            throw e;
+        }
+    }
+
+    // С каждого шарда берётся по limit строк после lastId, из объединения - первые limit по id
+    @Override
+    public List<User> findPageAfter(Long lastId, int limit) {
+        List<User> merged = mergeById(scatter(shard -> shard.findPageAfter(lastId, limit)));
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    @Override
+    public User save(User user) {
+        int shard = shardForEmail(user.getEmail());
+        BatchSaveResult result = shards.get(shard).insertWithIds(List.of(user), 1, local -> toGlobalId(local, shard));
+        if (result.hasFailures()) {
+            Exception cause = result.failures().get(0).cause();
+            throw new RuntimeException("Failed to save user: " + cause.getMessage(), cause);
+        }
+        return user;
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<User> users) {
+        return saveAll(users, UserDaoImpl.DEFAULT_BATCH_SIZE);
+    }
+
+    // Пользователи раскладываются по шардам, шарды пишутся параллельно; номера чанков сквозные
+    @Override
+    public BatchSaveResult saveAll(Collection<User> users, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        Map<Integer, List<User>> byShard = new LinkedHashMap<>();
+        for (User user : users) {
+            byShard.computeIfAbsent(shardForEmail(user.getEmail()), key -> new ArrayList<>()).add(user);
+        }
+
+        List<Integer> shardIndexes = new ArrayList<>(byShard.keySet());
+        List<BatchSaveResult> results = gather(shardIndexes.stream()
+                .map(shard -> submit(() -> shards.get(shard)
+                        .insertWithIds(byShard.get(shard), chunkSize, local -> toGlobalId(local, shard))))
+                .toList());
+
+        int savedCount = 0;
+        List<BatchSaveResult.ChunkFailure> failures = new ArrayList<>();
+        int chunkOffset = 0;
+        for (int i = 0; i < results.size(); i++) {
+            BatchSaveResult result = results.get(i);
+            savedCount += result.savedCount();
+            for (BatchSaveResult.ChunkFailure failure : result.failures()) {
+                failures.add(new BatchSaveResult.ChunkFailure(chunkOffset + failure.chunkIndex(),
+                        failure.users(), failure.cause()));
+            }
+            int shardUsers = byShard.get(shardIndexes.get(i)).size();
+            chunkOffset += (shardUsers + chunkSize - 1) / chunkSize;
+        }
+
+        logger.info("Sharded batch save finished: {} users saved across {} shards, {} chunks failed",
+                savedCount, results.size(), failures.size());
+        return new BatchSaveResult(savedCount, failures);
+    }
+
+    @Override
+    public User update(User user) {
+        int shard = requireShard(user.getId());
+        checkEmailAvailable(user.getId(), user.getEmail(), shard);
+        return shards.get(shard).update(user);
+    }
+
+    @Override
+    public void delete(Long id) {
+        int shard = shardOf(id);
+        if (shard < 0) {
+            logger.warn("User with id {} not found for deletion", id);
+            return;
+        }
+        shards.get(shard).delete(id);
+    }
+
+    @Override
+    public int updateById(Long id, String name, String email, Integer age) {
+        int shard = shardOf(id);
+        if (shard < 0) {
+            return 0;
+        }
+        checkEmailAvailable(id, email, shard);
+        return shards.get(shard).updateById(id, name, email, age);
+    }
+
+    @Override
+    public int deleteById(Long id) {
+        int shard = shardOf(id);
+        return shard < 0 ? 0 : shards.get(shard).deleteById(id);
+    }
+
+    @Override
+    public int updateAll(Collection<UserUpdate> updates) {
+        Map<Integer, List<UserUpdate>> byShard = new LinkedHashMap<>();
+        for (UserUpdate update : updates) {
+            int shard = shardOf(update.id());
+            if (shard >= 0) {
+                checkEmailAvailable(update.id(), update.email(), shard);
+                byShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(update);
+            }
+        }
+        return gather(byShard.entrySet().stream()
+                .map(entry -> submit(() -> shards.get(entry.getKey()).updateAll(entry.getValue())))
+                .toList())
+                .stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+
+    @Override
+    public PatchResult patch(UserPatch patch) {
+        int shard = shardOf(patch.id());
+        if (shard < 0) {
+            return PatchResult.NOT_FOUND;
+        }
+        if (patch.hasEmail()) {
+            checkEmailAvailable(patch.id(), patch.email(), shard);
+        }
+        return shards.get(shard).patch(patch);
+    }
+
+    @Override
+    public UpsertResult upsertByEmail(User user) {
+        if (user == null) {
+            throw new IllegalArgumentException("User cannot be null");
+        }
+        return upsertAllByEmail(List.of(user)).get(0);
+    }
+
+    /**
+     * Пользователь, сменивший email, живёт не на шарде по хэшу email, поэтому сначала
+     * findAllByEmails находит владельцев; существующие строки обновляются на своём шарде,
+     * новые вставляются на шард по хэшу. Шарды пишутся параллельно, каждый - своей транзакцией;
+     * как и при смене email, между поиском и записью гонка с другими писателями возможна.
+     */
+    @Override
+    public List<UpsertResult> upsertAllByEmail(Collection<User> users) {
+        if (users == null) {
+            throw new IllegalArgumentException("Users cannot be null");
+        }
+        Map<String, User> byEmail = new LinkedHashMap<>();
+        for (User user : users) {
+            if (user == null || user.getEmail() == null) {
+                throw new IllegalArgumentException("User and email cannot be null");
+            }
+            byEmail.put(user.getEmail(), user);
+        }
+        if (byEmail.isEmpty()) {
+            return List.of();
+        }
+
+        Map<String, Integer> owners = new HashMap<>();
+        if (shards.size() > 1) {
+            findAllByEmails(byEmail.keySet())
+                    .found()
+                    .forEach(owner -> owners.put(owner.getEmail(), shardOf(owner.getId())));
+        }
+        Map<Integer, List<User>> byShard = new LinkedHashMap<>();
+        for (User user : byEmail.values()) {
+            int shard = owners.getOrDefault(user.getEmail(), shardForEmail(user.getEmail()));
+            byShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(user);
+        }
+
+        List<Future<List<UpsertResult>>> futures = byShard.entrySet().stream()
+                .map(entry -> submit(() -> shards.get(entry.getKey())
+                        .upsertWithIds(entry.getValue(), local -> toGlobalId(local, entry.getKey()))))
+                .toList();
+        Map<String, UpsertResult> results = new HashMap<>();
+        for (List<UpsertResult> shardResults : gather(futures)) {
+            shardResults.forEach(result -> results.put(result.user().getEmail(), result));
+        }
+        return byEmail.keySet().stream().map(results::get).toList();
+    }
+
+    @Override
+    public MultiGetResult<Long> findAllByIds(Collection<Long> ids) {
+        return findAllByIds(ids, UserDaoImpl.DEFAULT_LOOKUP_BATCH_SIZE);
+    }
+
+    // id раскладываются по шардам, шарды опрашиваются параллельно
+    @Override
+    public MultiGetResult<Long> findAllByIds(Collection<Long> ids, int batchSize) {
+        List<Long> keys = MultiGetResult.distinct(ids);
+        Map<Integer, List<Long>> idsByShard = new LinkedHashMap<>();
+        for (Long id : keys) {
+            int shard = shardOf(id);
+            if (shard >= 0) {
+                idsByShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(id);
+            }
+        }
+
+        List<Future<MultiGetResult<Long>>> futures = idsByShard.entrySet().stream()
+                .map(entry -> submit(() -> shards.get(entry.getKey()).findAllByIds(entry.getValue(), batchSize)))
+                .toList();
+        Map<Long, User> usersById = new HashMap<>();
+        for (MultiGetResult<Long> result : gather(futures)) {
+            result.found().forEach(user -> usersById.put(user.getId(), user));
+        }
+        return MultiGetResult.of(keys, usersById);
+    }
+
+    @Override
+    public MultiGetResult<String> findAllByEmails(Collection<String> emails) {
+        return findAllByEmails(emails, UserDaoImpl.DEFAULT_LOOKUP_BATCH_SIZE);
+    }
+
+    // Как findByEmail: сначала шард по хэшу email, не найденные - на остальных шардах
+    @Override
+    public MultiGetResult<String> findAllByEmails(Collection<String> emails, int batchSize) {
+        List<String> keys = MultiGetResult.distinct(emails);
+        Map<Integer, List<String>> emailsByShard = new LinkedHashMap<>();
+        for (String email : keys) {
+            emailsByShard.computeIfAbsent(shardForEmail(email), key -> new ArrayList<>()).add(email);
+        }
+
+        List<Future<MultiGetResult<String>>> futures = emailsByShard.entrySet().stream()
+                .map(entry -> submit(() -> shards.get(entry.getKey()).findAllByEmails(entry.getValue(), batchSize)))
+                .toList();
+        Map<String, User> usersByEmail = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (MultiGetResult<String> result : gather(futures)) {
+            result.found().forEach(user -> usersByEmail.put(user.getEmail(), user));
+            misses.addAll(result.missing());
+        }
+
+        if (!misses.isEmpty() && shards.size() > 1) {
+            List<Future<MultiGetResult<String>>> retries = new ArrayList<>(shards.size());
+            for (int shard = 0; shard < shards.size(); shard++) {
+                int current = shard;
+                List<String> foreign = misses.stream().filter(email -> shardForEmail(email) != current).toList();
+                if (!foreign.isEmpty()) {
+                    retries.add(submit(() -> shards.get(current).findAllByEmails(foreign, batchSize)));
+                }
+            }
+            for (MultiGetResult<String> result : gather(retries)) {
+                result.found().forEach(user -> usersByEmail.put(user.getEmail(), user));
+            }
+        }
+        return MultiGetResult.of(keys, usersByEmail);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        int home = shardForEmail(email);
+        Optional<User> user = shards.get(home).findByEmail(email);
+        if (user.isPresent() || shards.size() == 1) {
+            return user;
+        }
+        return scatter(shard -> shard == shards.get(home) ? Optional.<User>empty() : shard.findByEmail(email))
+                .stream()
+                .flatMap(Optional::stream)
+                .findFirst();
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        if (email == null) {
+            return false;
+        }
+        int home = shardForEmail(email);
+        if (shards.get(home).existsByEmail(email)) {
+            return true;
+        }
+        return scatter(shard -> shard != shards.get(home) && shard.existsByEmail(email)).contains(true);
+    }
+
+    @Override
+    public List<User> findByName(String name) {
+        return mergeById(scatter(shard -> shard.findByName(name)));
+    }
+
+    @Override
+    public List<UserSummary> findAllSummaries() {
+        return mergeSorted(scatter(UserDao::findAllSummaries), Comparator.comparing(UserSummary::id));
+    }
+
+    @Override
+    public List<UserSummary> findSummariesByName(String name) {
+        return mergeSorted(scatter(shard -> shard.findSummariesByName(name)), Comparator.comparing(UserSummary::id));
+    }
+
+    @Override
+    public List<UserContact> findAllContacts() {
+        return mergeSorted(scatter(UserDao::findAllContacts), Comparator.comparing(UserContact::id));
+    }
+
+    @Override
+    public long count() {
+        return scatter(UserDao::count).stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public List<AgeBucket> countByAgeBucket(int bucketWidth) {
+        Map<Integer, Long> counts = new TreeMap<>();
+        for (List<AgeBucket> buckets : scatter(shard -> shard.countByAgeBucket(bucketWidth))) {
+            buckets.forEach(bucket -> counts.merge(bucket.fromAge(), bucket.count(), Long::sum));
+        }
+        return counts.entrySet().stream()
+                .map(entry -> new AgeBucket(entry.getKey(), entry.getKey() + bucketWidth, entry.getValue()))
+                .toList();
+    }
+
+    @Override
+    public List<DailySignups> countSignupsByDay(LocalDate from, LocalDate to) {
+        Map<LocalDate, Long> counts = new TreeMap<>();
+        for (List<DailySignups> days : scatter(shard -> shard.countSignupsByDay(from, to))) {
+            days.forEach(day -> counts.merge(day.day(), day.count(), Long::sum));
+        }
+        return counts.entrySet().stream()
+                .map(entry -> new DailySignups(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    // Среднее по всем шардам - среднее шардов, взвешенное числом пользователей с возрастом
+    @Override
+    public AgeStats ageStats() {
+        long count = 0;
+        Integer min = null;
+        Integer max = null;
+        double sum = 0;
+        for (AgeStats stats : scatter(UserDao::ageStats)) {
+            if (stats.count() == 0) {
+                continue;
+            }
+            count += stats.count();
+            min = min == null ? stats.minAge() : Math.min(min, stats.minAge());
+            max = max == null ? stats.maxAge() : Math.max(max, stats.maxAge());
+            sum += stats.averageAge() * stats.count();
+        }
+        return new AgeStats(count, min, max, count == 0 ? null : sum / count);
+    }
+
+    @Override
+    public List<User> searchByName(String fragment, int limit) {
+        Comparator<User> byRelevance = Comparator.comparing(User::getName, NameNgramIndex.relevanceTo(fragment))
+                .thenComparing(User::getId);
+        return scatter(shard -> shard.searchByName(fragment, limit)).stream()
+                .flatMap(List::stream)
+                .sorted(byRelevance)
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    static long toGlobalId(long localId, int shard) {
+        if (localId <= 0 || localId > (Long.MAX_VALUE >>> SHARD_BITS)) {
+            throw new IllegalStateException("Sequence value " + localId + " cannot be encoded into a sharded id");
+        }
+        return (localId << SHARD_BITS) | shard;
+    }
+
+    private int requireShard(Long id) {
+        int shard = shardOf(id);
+        if (shard < 0) {
+            throw new IllegalArgumentException("Id " + id + " does not belong to any of " + shards.size() + " shards");
+        }
+        return shard;
+    }
+
+    // Ограничение уникальности действует в пределах шарда; email чужого шарда проверяем запросом
+    private void checkEmailAvailable(Long id, String email, int shard) {
+        if (email == null || shardForEmail(email) == shard) {
+            return;
+        }
+        Optional<User> owner = findByEmail(email);
+        if (owner.isPresent() && !owner.get().getId().equals(id)) {
+            logger.error("Error updating user with id: {}, email {} is taken on another shard", id, email);
+            throw new RuntimeException("Failed to update user with id " + id + ": email " + email + " already exists");
+        }
+    }
+
+    private <T> List<T> scatter(Function<UserDao, T> query) {
+        if (shards.size() == 1) {
+            return List.of(query.apply(shards.get(0)));
+        }
+        return gather(shards.stream().map(shard -> submit(() -> query.apply(shard))).toList());
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    // Ошибка любого шарда - ошибка всего запроса; остальные запросы отменяются
+    private static <T> List<T> gather(List<Future<T>> futures) {
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException("Shard query failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for shards", e);
+        }
+    }
+
+    private static List<User> mergeById(List<List<User>> perShard) {
+        return mergeSorted(perShard, Comparator.comparing(User::getId));
+    }
+
+    private static <T> List<T> mergeSorted(List<List<T>> perShard, Comparator<T> order) {
+        return perShard.stream()
+                .flatMap(List::stream)
+                .sorted(order)
+                .toList();
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.dao;
+
+import org.example.entity.User;
+
+/**
+ * Итог {@link UserDao#upsertByEmail}: строка после записи и признак, была ли она вставлена
+ * (false - пользователь с таким email уже был и обновлён).
+ */
+public record UpsertResult(User user, boolean inserted) {
+
+    public boolean updated() {
+        return !inserted;
+    }
+}
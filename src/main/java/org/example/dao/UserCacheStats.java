@@ -0,0 +1,13 @@
+package org.example.dao;
+
+/**
+ * Счётчики одного кэша {@link CachingUserDao}: попадания включают закэшированные "не найдено",
+ * evictions - вытеснения по размеру и истечению TTL (явная инвалидация при записи не считается).
+ */
+public record UserCacheStats(String cache, long hits, long misses, long loadFailures, long evictions, long size) {
+
+    public double hitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+}
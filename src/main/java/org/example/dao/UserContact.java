@@ -0,0 +1,7 @@
+package org.example.dao;
+
+/**
+ * Проекция пользователя для рассылок: только id и email, без создания сущности.
+ */
+public record UserContact(Long id, String email) {
+}
@@ -1,8 +1,12 @@
 package org.example.dao;
 
 import org.example.entity.User;
+
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserDao {
 
@@ -10,13 +14,77 @@ public interface UserDao {
 
     List<User> findAll();
 
+    // Поток нужно закрывать (try-with-resources): вместе с ним закрывается сессия и курсор
+    Stream<User> streamAll();
+
+    Stream<User> streamAll(int fetchSize);
+
+    // Keyset-пагинация: до limit пользователей с id > lastId в порядке возрастания id
+    List<User> findPageAfter(Long lastId, int limit);
+
     User save(User user);
 
+    BatchSaveResult saveAll(Collection<User> users);
+
+    BatchSaveResult saveAll(Collection<User> users, int chunkSize);
+
     User update(User user);
 
     void delete(Long id);
 
+    // Одиночные UPDATE/DELETE по id без предварительного чтения; возвращают число затронутых строк
+    int updateById(Long id, String name, String email, Integer age);
+
+    int deleteById(Long id);
+
+    // Пакетный UPDATE по id в одной транзакции; возвращает число обновлённых строк
+    int updateAll(Collection<UserUpdate> updates);
+
+    // UPDATE только заданных полей; если их значения совпадают с текущими, запись в БД не выполняется
+    PatchResult patch(UserPatch patch);
+
+    // Вставка или обновление имени и возраста по email одним запросом; id и created_at существующей строки не меняются
+    UpsertResult upsertByEmail(User user);
+
+    // Пакетный вариант в одной транзакции; при повторе email побеждают последние значения,
+    // результаты - по одному на email в порядке первого появления
+    List<UpsertResult> upsertAllByEmail(Collection<User> users);
+
+    // Поиск по набору ключей за ~N/batchSize запросов; повторы ключей схлопываются
+    MultiGetResult<Long> findAllByIds(Collection<Long> ids);
+
+    MultiGetResult<Long> findAllByIds(Collection<Long> ids, int batchSize);
+
+    MultiGetResult<String> findAllByEmails(Collection<String> emails);
+
+    MultiGetResult<String> findAllByEmails(Collection<String> emails, int batchSize);
+
     Optional<User> findByEmail(String email);
 
+    // Проверка существования без загрузки сущности
+    boolean existsByEmail(String email);
+
     List<User> findByName(String name);
+
+    // Проекции без загрузки сущностей: только нужные столбцы, в порядке возрастания id
+    List<UserSummary> findAllSummaries();
+
+    List<UserSummary> findSummariesByName(String name);
+
+    List<UserContact> findAllContacts();
+
+    // Агрегаты считаются в БД, таблица в память не читается
+    long count();
+
+    // Пользователи без возраста в корзины не попадают; пустые корзины не возвращаются
+    List<AgeBucket> countByAgeBucket(int bucketWidth);
+
+    // Регистрации по дням created_at в [from, to), дни без регистраций пропускаются
+    List<DailySignups> countSignupsByDay(LocalDate from, LocalDate to);
+
+    AgeStats ageStats();
+
+    // Поиск по подстроке имени (не короче трёх символов) через индекс, не больше limit результатов,
+    // сначала наиболее релевантные
+    List<User> searchByName(String fragment, int limit);
 }
@@ -4,22 +4,79 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.example.entity.User;
 import org.example.util.HibernateUtil;
+import org.example.util.LogSampling;
+import org.example.util.PooledConnectionProvider;
+import org.hibernate.Cache;
+import org.hibernate.FlushMode;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
 import org.hibernate.query.Query;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class UserDaoImpl implements UserDao {
 
     private static final Logger logger = LogManager.getLogger(UserDaoImpl.class);
-    private final SessionFactory sessionFactory;
+    // Размер чанка, если hibernate.jdbc.batch_size не задан
+    public static final int DEFAULT_BATCH_SIZE = 50;
+    public static final int DEFAULT_FETCH_SIZE = 500;
+    // Ключей в одном запросе findAllByIds/findAllByEmails
+    public static final int DEFAULT_LOOKUP_BATCH_SIZE = 100;
+    public static final String EMAIL_QUERY_CACHE_REGION = "users-by-email";
+    public static final String NAME_TRIGRAM_INDEX = HibernateUtil.NAME_TRIGRAM_INDEX;
+    // Короче фрагмент не даёт ни одной триграммы, и поиск свёлся бы к просмотру всех имён
+    public static final int MIN_SEARCH_FRAGMENT_LENGTH = NameNgramIndex.GRAM_SIZE;
+    /**
+     * Свойство фабрики: true включает триграммный индекс имён в памяти приложения для СУБД без pg_trgm
+     * (H2 в тестах). Индекс держит в куче имена всех пользователей и видит только записи через этот
+     * экземпляр DAO - импорт через COPY и записи других процессов в него не попадают. По умолчанию
+     * без pg_trgm поиск выполняется запросом LIKE в БД.
+     */
+    public static final String IN_MEMORY_NAME_INDEX = "user-service.search.in_memory_name_index";
 
-    // Конструктор по умолчанию - использует основной HibernateUtil
+    private static final String INSERT_WITH_ID_SQL =
+            "INSERT INTO users (id, name, email, age, created_at) VALUES (?, ?, ?, ?, ?)";
+    // Строк в одном INSERT ... ON CONFLICT / MERGE пакетного upsert
+    private static final int UPSERT_CHUNK_SIZE = 500;
+    // null у экземпляра по умолчанию, пока фабрика HibernateUtil не понадобится
+    private volatile SessionFactory sessionFactory;
+
+    // Способ поиска по подстроке имени определяется при первом вызове searchByName
+    private volatile SearchMode searchMode;
+    private volatile NameNgramIndex nameIndex;
+    private volatile Boolean readOnlyConnectionHint;
+
+    // Конструктор по умолчанию - использует основной HibernateUtil; фабрика запрашивается при первом обращении к БД
     public UserDaoImpl() {
-        this.sessionFactory = HibernateUtil.getSessionFactory();
     }
 
     // Конструктор для тестирования - позволяет передать SessionFactory
@@ -27,92 +84,326 @@ public class UserDaoImpl implements UserDao {
         this.sessionFactory = sessionFactory;
     }
 
+    private SessionFactory sessionFactory() {
+        SessionFactory factory = sessionFactory;
+        if (factory == null) {
+            factory = HibernateUtil.getSessionFactory();
+            sessionFactory = factory;
+        }
+        return factory;
+    }
+
     @Override
     public Optional<User> findById(Long id) {
-        Session session = sessionFactory.openSession();
-        Transaction transaction = null;
         try {
-            transaction = session.beginTransaction();
-            User user = session.get(User.class, id);
-            transaction.commit();
+            User user = inReadOnlySession(session -> session.get(User.class, id));
 
-            logger.info("User found by id {}: {}", id, user != null ? "exists" : "not found");
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("User found by id {}: {}", id, user != null ? "exists" : "not found");
+            }
             return Optional.ofNullable(user);
 
         } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
-            }
             logger.error("Error finding user by id: {}", id, e);
             throw new RuntimeException("Failed to find user by id: " + id, e);
-        } finally {
-            session.close();
         }
     }
 
     @Override
     public List<User> findAll() {
-        Session session = sessionFactory.openSession();
+        try {
+            List<User> users = inReadOnlySession(session -> session.createQuery("FROM User", User.class).list());
+
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("Found {} users", users.size());
+            }
+            return users;
+
+        } catch (Exception e) {
+            logger.error("Error finding all users", e);
+            throw new RuntimeException("Failed to retrieve users", e);
+        }
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return streamAll(DEFAULT_FETCH_SIZE);
+    }
+
+    @Override
+    public Stream<User> streamAll(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive");
+        }
+
+        // StatelessSession не накапливает сущности в persistence context,
+        // поэтому потребление памяти не зависит от размера таблицы
+        StatelessSession session = sessionFactory().openStatelessSession();
         Transaction transaction = null;
         try {
+            // PostgreSQL использует серверный курсор только внутри транзакции и при заданном fetch size
             transaction = session.beginTransaction();
-            List<User> users = session.createQuery("FROM User", User.class).list();
-            transaction.commit();
+            Stream<User> users = session.createQuery("FROM User", User.class)
+                    .setFetchSize(fetchSize)
+                    .stream();
 
-            logger.info("Found {} users", users.size());
-            return users;
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("Streaming users with fetch size {}", fetchSize);
+            }
+            Transaction streamTransaction = transaction;
+            return users.onClose(() -> {
+                try {
+                    if (streamTransaction.isActive()) {
+                        streamTransaction.commit();
+                    }
+                } finally {
+                    session.close();
+                }
+            });
 
         } catch (Exception e) {
-            if (transaction != null) {
+            if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
-            logger.error("Error finding all users", e);
-            throw new RuntimeException("Failed to retrieve users", e);
-        } finally {
             session.close();
+            logger.error("Error streaming users", e);
+            throw new RuntimeException("Failed to stream users", e);
+        }
+    }
+
+    @Override
+    public List<User> findPageAfter(Long lastId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+
+        try {
+            List<User> users = inReadOnlySession(session -> session
+                    .createQuery("FROM User WHERE id > :lastId ORDER BY id", User.class)
+                    .setParameter("lastId", lastId != null ? lastId : 0L)
+                    .setMaxResults(limit)
+                    .list());
+
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("Found {} users after id {}", users.size(), lastId);
+            }
+            return users;
+
+        } catch (Exception e) {
+            logger.error("Error finding users page after id: {}", lastId, e);
+            throw new RuntimeException("Failed to retrieve users page after id: " + lastId, e);
         }
     }
 
     @Override
     public User save(User user) {
-        Session session = sessionFactory.openSession();
+        Session session = sessionFactory().openSession();
         Transaction transaction = null;
         try {
             transaction = session.beginTransaction();
             session.persist(user);
             transaction.commit();
+            indexName(user);
 
-            logger.info("User saved successfully with id: {}", user.getId());
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("User saved successfully with id: {}", user.getId());
+            }
             return user;
 
         } catch (Exception e) {
             if (transaction != null) {
                 transaction.rollback();
             }
-            logger.error("Error saving user: {}", user, e);
+            logger.error("Error saving user with email: {}", user != null ? user.getEmail() : null, e);
             throw new RuntimeException("Failed to save user: " + e.getMessage(), e);
         } finally {
             session.close();
         }
     }
 
+    @Override
+    public BatchSaveResult saveAll(Collection<User> users) {
+        int batchSize = sessionFactory().unwrap(SessionFactoryImplementor.class)
+                .getSessionFactoryOptions()
+                .getJdbcBatchSize();
+        return saveAll(users, batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE);
+    }
+
+    @Override
+    public BatchSaveResult saveAll(Collection<User> users, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+
+        List<BatchSaveResult.ChunkFailure> failures = new ArrayList<>();
+        List<User> chunk = new ArrayList<>(chunkSize);
+        int savedCount = 0;
+        int chunkIndex = 0;
+
+        Session session = openBatchSession(chunkSize);
+        try {
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() < chunkSize && iterator.hasNext()) {
+                    continue;
+                }
+
+                if (saveChunk(session, chunk, chunkIndex, failures)) {
+                    savedCount += chunk.size();
+                } else {
+                    // После ошибки сессия Hibernate непригодна для дальнейшей работы
+                    session.close();
+                    session = openBatchSession(chunkSize);
+                }
+                chunkIndex++;
+                chunk.clear();
+            }
+        } finally {
+            session.close();
+        }
+
+        logger.info("Batch save finished: {} users saved in {} chunks, {} chunks failed",
+                savedCount, chunkIndex, failures.size());
+        return new BatchSaveResult(savedCount, failures);
+    }
+
+    // Каждый чанк - отдельная транзакция: упавший чанк откатывается, не затрагивая уже записанные
+    private boolean saveChunk(Session session, List<User> chunk, int chunkIndex,
+                              List<BatchSaveResult.ChunkFailure> failures) {
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            for (User user : chunk) {
+                session.persist(user);
+            }
+            transaction.commit();
+            session.clear();
+            chunk.forEach(this::indexName);
+            return true;
+
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            chunk.forEach(user -> {
+                if (user != null) {
+                    user.setId(null);
+                }
+            });
+            failures.add(new BatchSaveResult.ChunkFailure(chunkIndex, chunk, e));
+            logger.error("Error saving chunk {} of {} users", chunkIndex, chunk.size(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Вставляет пользователей чанками с id, выбранными вызывающим: idMapper получает очередное
+     * значение генератора сущности этой БД и возвращает id строки. Нужна {@link ShardedUserDao},
+     * чтобы id кодировал шард. Как и в saveAll, каждый чанк - отдельная транзакция.
+     */
+    BatchSaveResult insertWithIds(Collection<User> users, int chunkSize, LongUnaryOperator idMapper) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) sessionFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel()
+                .getEntityDescriptor(User.class)
+                .getGenerator();
+
+        List<BatchSaveResult.ChunkFailure> failures = new ArrayList<>();
+        List<User> chunk = new ArrayList<>(chunkSize);
+        int savedCount = 0;
+        int chunkIndex = 0;
+        Iterator<User> iterator = users.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() < chunkSize && iterator.hasNext()) {
+                continue;
+            }
+            if (insertChunk(chunk, chunkIndex, generator, idMapper, failures)) {
+                savedCount += chunk.size();
+            }
+            chunkIndex++;
+            chunk.clear();
+        }
+        return new BatchSaveResult(savedCount, failures);
+    }
+
+    private boolean insertChunk(List<User> chunk, int chunkIndex, BeforeExecutionGenerator generator,
+                                LongUnaryOperator idMapper, List<BatchSaveResult.ChunkFailure> failures) {
+        Session session = sessionFactory().openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            SharedSessionContractImplementor sessionImplementor = session.unwrap(SharedSessionContractImplementor.class);
+            for (User user : chunk) {
+                Long generated = (Long) generator.generate(sessionImplementor, user, null, EventType.INSERT);
+                user.setId(idMapper.applyAsLong(generated));
+            }
+            session.doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_WITH_ID_SQL)) {
+                    for (User user : chunk) {
+                        statement.setLong(1, user.getId());
+                        statement.setString(2, user.getName());
+                        statement.setString(3, user.getEmail());
+                        statement.setObject(4, user.getAge(), Types.INTEGER);
+                        statement.setObject(5, user.getCreatedAt());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            });
+            transaction.commit();
+            // Закэшированное "не найдено" для этих email больше неверно
+            chunk.forEach(user -> evictUser(user.getId()));
+            chunk.forEach(this::indexName);
+            return true;
+
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            chunk.forEach(user -> {
+                if (user != null) {
+                    user.setId(null);
+                }
+            });
+            failures.add(new BatchSaveResult.ChunkFailure(chunkIndex, chunk, e));
+            logger.error("Error inserting chunk {} of {} users", chunkIndex, chunk.size(), e);
+            return false;
+        } finally {
+            session.close();
+        }
+    }
+
+    private Session openBatchSession(int chunkSize) {
+        Session session = sessionFactory().openSession();
+        session.setJdbcBatchSize(chunkSize);
+        return session;
+    }
+
     @Override
     public User update(User user) {
-        Session session = sessionFactory.openSession();
+        Session session = sessionFactory().openSession();
         Transaction transaction = null;
         try {
             transaction = session.beginTransaction();
             User updatedUser = session.merge(user);
             transaction.commit();
+            indexName(updatedUser);
 
-            logger.info("User updated successfully with id: {}", updatedUser.getId());
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("User updated successfully with id: {}", updatedUser.getId());
+            }
             return updatedUser;
 
         } catch (Exception e) {
             if (transaction != null) {
                 transaction.rollback();
             }
-            logger.error("Error updating user: {}", user, e);
+            logger.error("Error updating user with id: {}", user != null ? user.getId() : null, e);
             throw new RuntimeException("Failed to update user: " + e.getMessage(), e);
         } finally {
             session.close();
@@ -121,18 +412,21 @@ public class UserDaoImpl implements UserDao {
 
     @Override
     public void delete(Long id) {
-        Session session = sessionFactory.openSession();
+        Session session = sessionFactory().openSession();
         Transaction transaction = null;
         try {
             transaction = session.beginTransaction();
             User user = session.get(User.class, id);
             if (user != null) {
                 session.remove(user);
-                logger.info("User deleted successfully with id: {}", id);
+                if (LogSampling.sampledDebug(logger)) {
+                    logger.debug("User deleted successfully with id: {}", id);
+                }
             } else {
                 logger.warn("User with id {} not found for deletion", id);
             }
             transaction.commit();
+            unindexName(id);
 
         } catch (Exception e) {
             if (transaction != null) {
@@ -146,52 +440,900 @@ public class UserDaoImpl implements UserDao {
     }
 
     @Override
-    public Optional<User> findByEmail(String email) {
-        Session session = sessionFactory.openSession();
+    public int updateById(Long id, String name, String email, Integer age) {
+        Session session = sessionFactory().openSession();
         Transaction transaction = null;
         try {
             transaction = session.beginTransaction();
-            Query<User> query = session.createQuery("FROM User WHERE email = :email", User.class);
-            query.setParameter("email", email);
-            User user = query.uniqueResult();
+            evictUser(id);
+            int updated = session.doReturningWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "UPDATE users SET name = ?, email = ?, age = ? WHERE id = ?")) {
+                    statement.setString(1, name);
+                    statement.setString(2, email);
+                    statement.setObject(3, age, Types.INTEGER);
+                    statement.setLong(4, id);
+                    return statement.executeUpdate();
+                }
+            });
             transaction.commit();
+            evictUser(id);
+            if (updated > 0) {
+                indexName(id, name);
+            }
 
-            logger.info("User found by email {}: {}", email, user != null ? "exists" : "not found");
-            return Optional.ofNullable(user);
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("Updated {} users with id: {}", updated, id);
+            }
+            return updated;
 
         } catch (Exception e) {
             if (transaction != null) {
                 transaction.rollback();
             }
-            logger.error("Error finding user by email: {}", email, e);
-            throw new RuntimeException("Failed to find user by email: " + email, e);
+            logger.error("Error updating user with id: {}", id, e);
+            throw new RuntimeException("Failed to update user with id " + id + ": " + e.getMessage(), e);
         } finally {
             session.close();
         }
     }
 
     @Override
-    public List<User> findByName(String name) {
-        Session session = sessionFactory.openSession();
+    public int updateAll(Collection<UserUpdate> updates) {
+        if (updates == null || updates.isEmpty()) {
+            return 0;
+        }
+        List<UserUpdate> batch = List.copyOf(updates);
+        Session session = sessionFactory().openSession();
         Transaction transaction = null;
         try {
             transaction = session.beginTransaction();
-            Query<User> query = session.createQuery("FROM User WHERE name LIKE :name", User.class);
-            query.setParameter("name", "%" + name + "%");
-            List<User> users = query.list();
+            batch.forEach(update -> evictUser(update.id()));
+            int[] counts = session.doReturningWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "UPDATE users SET name = ?, email = ?, age = ? WHERE id = ?")) {
+                    for (UserUpdate update : batch) {
+                        statement.setString(1, update.name());
+                        statement.setString(2, update.email());
+                        statement.setObject(3, update.age(), Types.INTEGER);
+                        statement.setLong(4, update.id());
+                        statement.addBatch();
+                    }
+                    return statement.executeBatch();
+                }
+            });
             transaction.commit();
 
-            logger.info("Found {} users with name containing: {}", users.size(), name);
-            return users;
+            int updated = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                UserUpdate update = batch.get(i);
+                evictUser(update.id());
+                // SUCCESS_NO_INFO: драйвер не сообщил число строк, индекс обновляем на всякий случай
+                if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                    indexName(update.id(), update.name());
+                    updated += Math.max(counts[i], 1);
+                }
+            }
+
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("Batch update finished: {} of {} users updated", updated, batch.size());
+            }
+            return updated;
+
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.error("Error updating batch of {} users", batch.size(), e);
+            throw new RuntimeException("Failed to update batch of " + batch.size() + " users: " + e.getMessage(), e);
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Один UPDATE по заданным столбцам с условием, что хотя бы один из них меняется
+     * (IS DISTINCT FROM учитывает NULL). Совпавшая строка не обновляется: без новой версии строки,
+     * записи в WAL и блокировки. Только если UPDATE не затронул строк, отдельный SELECT
+     * отличает "без изменений" от "нет такого пользователя".
+     */
+    @Override
+    public PatchResult patch(UserPatch patch) {
+        List<String> columns = new ArrayList<>(3);
+        List<Object> values = new ArrayList<>(3);
+        // Тип нужен явно: PostgreSQL не выведет тип NULL в IS DISTINCT FROM
+        List<Integer> types = new ArrayList<>(3);
+        if (patch.hasName()) {
+            columns.add("name");
+            values.add(patch.name());
+            types.add(Types.VARCHAR);
+        }
+        if (patch.hasEmail()) {
+            columns.add("email");
+            values.add(patch.email());
+            types.add(Types.VARCHAR);
+        }
+        if (patch.hasAge()) {
+            columns.add("age");
+            values.add(patch.age());
+            types.add(Types.INTEGER);
+        }
+
+        Long id = patch.id();
+        Session session = sessionFactory().openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            int updated = 0;
+            if (!columns.isEmpty()) {
+                String sql = "UPDATE users SET " + columns.stream().map(column -> column + " = ?")
+                        .collect(Collectors.joining(", "))
+                        + " WHERE id = ? AND (" + columns.stream().map(column -> column + " IS DISTINCT FROM ?")
+                        .collect(Collectors.joining(" OR ")) + ")";
+                updated = session.doReturningWork(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                        int count = values.size();
+                        for (int i = 0; i < count; i++) {
+                            statement.setObject(i + 1, values.get(i), types.get(i));
+                            statement.setObject(count + 2 + i, values.get(i), types.get(i));
+                        }
+                        statement.setLong(count + 1, id);
+                        return statement.executeUpdate();
+                    }
+                });
+            }
+
+            PatchResult result;
+            if (updated > 0) {
+                result = PatchResult.UPDATED;
+            } else {
+                boolean exists = session.doReturningWork(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM users WHERE id = ?")) {
+                        statement.setLong(1, id);
+                        try (var resultSet = statement.executeQuery()) {
+                            return resultSet.next();
+                        }
+                    }
+                });
+                result = exists ? PatchResult.UNCHANGED : PatchResult.NOT_FOUND;
+            }
+            transaction.commit();
+
+            if (result == PatchResult.UPDATED) {
+                evictUser(id);
+                if (patch.hasName()) {
+                    indexName(id, patch.name());
+                }
+            }
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("Patched user with id {}: {}", id, result);
+            }
+            return result;
+
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.error("Error patching user with id: {}", id, e);
+            throw new RuntimeException("Failed to patch user with id " + id + ": " + e.getMessage(), e);
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public UpsertResult upsertByEmail(User user) {
+        if (user == null) {
+            throw new IllegalArgumentException("User cannot be null");
+        }
+        return upsertWithIds(List.of(user), LongUnaryOperator.identity()).get(0);
+    }
+
+    @Override
+    public List<UpsertResult> upsertAllByEmail(Collection<User> users) {
+        return upsertWithIds(users, LongUnaryOperator.identity());
+    }
+
+    /**
+     * Upsert по email с id новых строк от idMapper, как в {@link #insertWithIds}. Каждой строке заранее
+     * выдаётся id из генератора сущности; строка вставлена, если в БД оказался именно он, поэтому
+     * отдельный запрос "была ли строка" не нужен. PostgreSQL: INSERT ... ON CONFLICT (email) DO UPDATE
+     * ... RETURNING - один запрос на чанк; H2: MERGE и чтение результата в той же транзакции.
+     * Неиспользованные id обновлённых строк дают пропуски в последовательности.
+     */
+    List<UpsertResult> upsertWithIds(Collection<User> users, LongUnaryOperator idMapper) {
+        if (users == null) {
+            throw new IllegalArgumentException("Users cannot be null");
+        }
+        // ON CONFLICT не может обновить одну строку дважды за запрос, поэтому повторы email схлопываются
+        Map<String, User> byEmail = new LinkedHashMap<>();
+        for (User user : users) {
+            if (user == null || user.getEmail() == null) {
+                throw new IllegalArgumentException("User and email cannot be null");
+            }
+            byEmail.put(user.getEmail(), user);
+        }
+        if (byEmail.isEmpty()) {
+            return List.of();
+        }
+
+        List<User> batch = List.copyOf(byEmail.values());
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) sessionFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel()
+                .getEntityDescriptor(User.class)
+                .getGenerator();
+        boolean postgreSQL = isPostgreSQL();
+        Session session = sessionFactory().openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            SharedSessionContractImplementor sessionImplementor = session.unwrap(SharedSessionContractImplementor.class);
+            Map<String, Long> proposedIds = new HashMap<>();
+            for (User user : batch) {
+                Long generated = (Long) generator.generate(sessionImplementor, user, null, EventType.INSERT);
+                proposedIds.put(user.getEmail(), idMapper.applyAsLong(generated));
+            }
+
+            Map<String, User> rows = new HashMap<>();
+            for (int from = 0; from < batch.size(); from += UPSERT_CHUNK_SIZE) {
+                List<User> chunk = batch.subList(from, Math.min(from + UPSERT_CHUNK_SIZE, batch.size()));
+                session.doWork(connection -> {
+                    if (postgreSQL) {
+                        try (PreparedStatement statement = connection.prepareStatement(postgreSQLUpsertSql(chunk.size()))) {
+                            bindUpsertRows(statement, chunk, proposedIds);
+                            readUsers(statement.executeQuery(), rows);
+                        }
+                    } else {
+                        try (PreparedStatement statement = connection.prepareStatement(mergeSql(chunk.size()))) {
+                            bindUpsertRows(statement, chunk, proposedIds);
+                            statement.executeUpdate();
+                        }
+                        String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                        try (PreparedStatement statement = connection.prepareStatement(
+                                "SELECT id, name, email, age, created_at FROM users WHERE email IN (" + placeholders + ")")) {
+                            for (int i = 0; i < chunk.size(); i++) {
+                                statement.setString(i + 1, chunk.get(i).getEmail());
+                            }
+                            readUsers(statement.executeQuery(), rows);
+                        }
+                    }
+                });
+            }
+            transaction.commit();
+
+            List<UpsertResult> results = new ArrayList<>(batch.size());
+            for (User user : batch) {
+                User row = rows.get(user.getEmail());
+                evictUser(row.getId());
+                indexName(row);
+                results.add(new UpsertResult(row, row.getId().equals(proposedIds.get(user.getEmail()))));
+            }
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("Upserted {} users by email, {} inserted", results.size(),
+                        results.stream().filter(UpsertResult::inserted).count());
+            }
+            return results;
+
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.error("Error upserting {} users by email", batch.size(), e);
+            throw new RuntimeException("Failed to upsert " + batch.size() + " users by email: " + e.getMessage(), e);
+        } finally {
+            session.close();
+        }
+    }
+
+    private static String postgreSQLUpsertSql(int rows) {
+        return "INSERT INTO users (id, name, email, age, created_at) VALUES "
+                + String.join(", ", Collections.nCopies(rows, "(?, ?, ?, ?, ?)"))
+                + " ON CONFLICT (email) DO UPDATE SET name = EXCLUDED.name, age = EXCLUDED.age"
+                + " RETURNING id, name, email, age, created_at";
+    }
+
+    // Типы заданы явно: H2 не выводит типы параметров в VALUES
+    private static String mergeSql(int rows) {
+        return "MERGE INTO users u USING (VALUES "
+                + String.join(", ", Collections.nCopies(rows, "(CAST(? AS BIGINT), CAST(? AS VARCHAR(100)), "
+                + "CAST(? AS VARCHAR(150)), CAST(? AS INTEGER), CAST(? AS TIMESTAMP))"))
+                + ") AS s (id, name, email, age, created_at) ON u.email = s.email"
+                + " WHEN MATCHED THEN UPDATE SET name = s.name, age = s.age"
+                + " WHEN NOT MATCHED THEN INSERT (id, name, email, age, created_at)"
+                + " VALUES (s.id, s.name, s.email, s.age, s.created_at)";
+    }
+
+    private static void bindUpsertRows(PreparedStatement statement, List<User> chunk, Map<String, Long> ids)
+            throws SQLException {
+        int index = 1;
+        for (User user : chunk) {
+            statement.setLong(index++, ids.get(user.getEmail()));
+            statement.setString(index++, user.getName());
+            statement.setString(index++, user.getEmail());
+            statement.setObject(index++, user.getAge(), Types.INTEGER);
+            statement.setObject(index++, user.getCreatedAt());
+        }
+    }
+
+    private static void readUsers(ResultSet resultSet, Map<String, User> usersByEmail) throws SQLException {
+        try (resultSet) {
+            while (resultSet.next()) {
+                User user = new User();
+                user.setId(resultSet.getLong("id"));
+                user.setName(resultSet.getString("name"));
+                user.setEmail(resultSet.getString("email"));
+                user.setAge(resultSet.getObject("age", Integer.class));
+                user.setCreatedAt(resultSet.getObject("created_at", LocalDateTime.class));
+                usersByEmail.put(user.getEmail(), user);
+            }
+        }
+    }
+
+    @Override
+    public int deleteById(Long id) {
+        Session session = sessionFactory().openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            evictUser(id);
+            int deleted = session.doReturningWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement("DELETE FROM users WHERE id = ?")) {
+                    statement.setLong(1, id);
+                    return statement.executeUpdate();
+                }
+            });
+            transaction.commit();
+            evictUser(id);
+            unindexName(id);
+
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("Deleted {} users with id: {}", deleted, id);
+            }
+            return deleted;
 
         } catch (Exception e) {
             if (transaction != null) {
                 transaction.rollback();
             }
+            logger.error("Error deleting user with id: {}", id, e);
+            throw new RuntimeException("Failed to delete user with id: " + id, e);
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Изменения через JDBC идут в обход Hibernate, поэтому кэш сбрасывается точечно: запись пользователя
+     * и регион результатов findByEmail. HQL UPDATE/DELETE сбросил бы весь регион User.
+     * Сброс до и после коммита сужает окно, в котором читатель может вернуть в кэш старую версию.
+     */
+    private void evictUser(Long id) {
+        Cache cache = sessionFactory().getCache();
+        if (cache != null) {
+            cache.evictEntityData(User.class, id);
+            cache.evictQueryRegion(EMAIL_QUERY_CACHE_REGION);
+        }
+    }
+
+    /**
+     * Выполняет чтение в сессии только для чтения: сущности не получают снимков для dirty checking,
+     * а коммит не делает flush. Если пул соединений наш (HikariCP сбрасывает флаг при возврате
+     * соединения), соединение помечается read-only и PostgreSQL открывает READ ONLY транзакцию.
+     */
+    private <T> T inReadOnlySession(Function<Session, T> work) {
+        Session session = sessionFactory().openSession();
+        session.setDefaultReadOnly(true);
+        session.setHibernateFlushMode(FlushMode.MANUAL);
+        Transaction transaction = null;
+        try {
+            if (readOnlyConnectionHint()) {
+                session.doWork(connection -> connection.setReadOnly(true));
+            }
+            transaction = session.beginTransaction();
+            T result = work.apply(session);
+            transaction.commit();
+            return result;
+
+        } catch (RuntimeException e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            session.close();
+        }
+    }
+
+    private boolean readOnlyConnectionHint() {
+        Boolean hint = readOnlyConnectionHint;
+        if (hint == null) {
+            hint = sessionFactory().unwrap(SessionFactoryImplementor.class)
+                    .getServiceRegistry()
+                    .getService(ConnectionProvider.class) instanceof PooledConnectionProvider;
+            readOnlyConnectionHint = hint;
+        }
+        return hint;
+    }
+
+    @Override
+    public MultiGetResult<Long> findAllByIds(Collection<Long> ids) {
+        return findAllByIds(ids, DEFAULT_LOOKUP_BATCH_SIZE);
+    }
+
+    @Override
+    public MultiGetResult<Long> findAllByIds(Collection<Long> ids, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        List<Long> keys = MultiGetResult.distinct(ids);
+        if (keys.isEmpty()) {
+            return new MultiGetResult<>(List.of(), List.of());
+        }
+
+        try {
+            // multiLoad берёт найденное в кэше второго уровня, остальное читает запросами WHERE id IN (...)
+            // по batchSize ключей и возвращает сущности в порядке ключей, null - для отсутствующих
+            List<User> loaded = inReadOnlySession(session -> session
+                    .byMultipleIds(User.class)
+                    .withBatchSize(batchSize)
+                    .enableOrderedReturn(true)
+                    .multiLoad(keys));
+
+            Map<Long, User> usersById = new HashMap<>(keys.size() * 4 / 3 + 1);
+            for (int i = 0; i < keys.size(); i++) {
+                if (loaded.get(i) != null) {
+                    usersById.put(keys.get(i), loaded.get(i));
+                }
+            }
+            MultiGetResult<Long> result = MultiGetResult.of(keys, usersById);
+
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("Found {} of {} users by id", result.found().size(), keys.size());
+            }
+            return result;
+
+        } catch (Exception e) {
+            logger.error("Error finding {} users by id", keys.size(), e);
+            throw new RuntimeException("Failed to find users by ids", e);
+        }
+    }
+
+    @Override
+    public MultiGetResult<String> findAllByEmails(Collection<String> emails) {
+        return findAllByEmails(emails, DEFAULT_LOOKUP_BATCH_SIZE);
+    }
+
+    @Override
+    public MultiGetResult<String> findAllByEmails(Collection<String> emails, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        List<String> keys = MultiGetResult.distinct(emails);
+        if (keys.isEmpty()) {
+            return new MultiGetResult<>(List.of(), List.of());
+        }
+
+        try {
+            // Все пачки читаются в одной сессии и транзакции
+            Map<String, User> usersByEmail = inReadOnlySession(session -> {
+                Map<String, User> found = new HashMap<>(keys.size() * 4 / 3 + 1);
+                for (int from = 0; from < keys.size(); from += batchSize) {
+                    List<String> batch = keys.subList(from, Math.min(from + batchSize, keys.size()));
+                    session.createQuery("FROM User WHERE email IN :emails", User.class)
+                            .setParameterList("emails", batch)
+                            .list()
+                            .forEach(user -> found.put(user.getEmail(), user));
+                }
+                return found;
+            });
+            MultiGetResult<String> result = MultiGetResult.of(keys, usersByEmail);
+
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("Found {} of {} users by email", result.found().size(), keys.size());
+            }
+            return result;
+
+        } catch (Exception e) {
+            logger.error("Error finding {} users by email", keys.size(), e);
+            throw new RuntimeException("Failed to find users by emails", e);
+        }
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        try {
+            User user = inReadOnlySession(session -> session
+                    .createQuery("FROM User WHERE email = :email", User.class)
+                    .setParameter("email", email)
+                    .setCacheable(true)
+                    .setCacheRegion(EMAIL_QUERY_CACHE_REGION)
+                    .uniqueResult());
+
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("User found by email {}: {}", email, user != null ? "exists" : "not found");
+            }
+            return Optional.ofNullable(user);
+
+        } catch (Exception e) {
+            logger.error("Error finding user by email: {}", email, e);
+            throw new RuntimeException("Failed to find user by email: " + email, e);
+        }
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        try {
+            boolean exists = inReadOnlySession(session -> session
+                    .createQuery("SELECT u.id FROM User u WHERE u.email = :email", Long.class)
+                    .setParameter("email", email)
+                    .setMaxResults(1)
+                    .uniqueResult() != null);
+
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("User exists by email {}: {}", email, exists);
+            }
+            return exists;
+
+        } catch (Exception e) {
+            logger.error("Error checking user by email: {}", email, e);
+            throw new RuntimeException("Failed to check user by email: " + email, e);
+        }
+    }
+
+    @Override
+    public List<User> findByName(String name) {
+        try {
+            List<User> users = inReadOnlySession(session -> session
+                    .createQuery("FROM User WHERE name LIKE :name", User.class)
+                    .setParameter("name", "%" + name + "%")
+                    .list());
+
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("Found {} users with name containing: {}", users.size(), name);
+            }
+            return users;
+
+        } catch (Exception e) {
             logger.error("Error finding users by name: {}", name, e);
             throw new RuntimeException("Failed to find users by name: " + name, e);
+        }
+    }
+
+    @Override
+    public List<UserSummary> findAllSummaries() {
+        try {
+            // Записи создаются прямо из строк результата: без сущностей и снимков для dirty checking
+            List<UserSummary> summaries = inReadOnlySession(session -> session
+                    .createQuery("SELECT new org.example.dao.UserSummary(u.id, u.name) FROM User u ORDER BY u.id",
+                            UserSummary.class)
+                    .list());
+
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("Found {} user summaries", summaries.size());
+            }
+            return summaries;
+
+        } catch (Exception e) {
+            logger.error("Error finding user summaries", e);
+            throw new RuntimeException("Failed to retrieve user summaries", e);
+        }
+    }
+
+    @Override
+    public List<UserSummary> findSummariesByName(String name) {
+        try {
+            List<UserSummary> summaries = inReadOnlySession(session -> session
+                    .createQuery("SELECT new org.example.dao.UserSummary(u.id, u.name) FROM User u "
+                            + "WHERE u.name LIKE :name ORDER BY u.id", UserSummary.class)
+                    .setParameter("name", "%" + name + "%")
+                    .list());
+
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("Found {} user summaries with name containing: {}", summaries.size(), name);
+            }
+            return summaries;
+
+        } catch (Exception e) {
+            logger.error("Error finding user summaries by name: {}", name, e);
+            throw new RuntimeException("Failed to find user summaries by name: " + name, e);
+        }
+    }
+
+    @Override
+    public List<UserContact> findAllContacts() {
+        try {
+            List<UserContact> contacts = inReadOnlySession(session -> session
+                    .createQuery("SELECT new org.example.dao.UserContact(u.id, u.email) FROM User u ORDER BY u.id",
+                            UserContact.class)
+                    .list());
+
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("Found {} user contacts", contacts.size());
+            }
+            return contacts;
+
+        } catch (Exception e) {
+            logger.error("Error finding user contacts", e);
+            throw new RuntimeException("Failed to retrieve user contacts", e);
+        }
+    }
+
+    @Override
+    public long count() {
+        try {
+            return inReadOnlySession(session -> session
+                    .createQuery("SELECT count(u) FROM User u", Long.class)
+                    .getSingleResult());
+
+        } catch (Exception e) {
+            logger.error("Error counting users", e);
+            throw new RuntimeException("Failed to count users", e);
+        }
+    }
+
+    @Override
+    public List<AgeBucket> countByAgeBucket(int bucketWidth) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("Bucket width must be positive");
+        }
+
+        // Ширина подставляется в текст запроса, а не параметром: PostgreSQL не сочтёт выражения
+        // в SELECT и GROUP BY одинаковыми, если в них разные параметры
+        String bucket = "(u.age / " + bucketWidth + ") * " + bucketWidth;
+        try {
+            List<Object[]> rows = inReadOnlySession(session -> session
+                    .createQuery("SELECT " + bucket + ", count(u) FROM User u WHERE u.age IS NOT NULL "
+                            + "GROUP BY " + bucket + " ORDER BY " + bucket, Object[].class)
+                    .list());
+
+            List<AgeBucket> buckets = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                int from = ((Number) row[0]).intValue();
+                buckets.add(new AgeBucket(from, from + bucketWidth, ((Number) row[1]).longValue()));
+            }
+            return buckets;
+
+        } catch (Exception e) {
+            logger.error("Error counting users by age bucket of width {}", bucketWidth, e);
+            throw new RuntimeException("Failed to count users by age", e);
+        }
+    }
+
+    @Override
+    public List<DailySignups> countSignupsByDay(LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new IllegalArgumentException("Date range must be set and not reversed");
+        }
+
+        try {
+            // Границы - по created_at, чтобы условие шло по столбцу, а не по выражению от него
+            List<Object[]> rows = inReadOnlySession(session -> session
+                    .createQuery("SELECT cast(u.createdAt AS LocalDate) AS day, count(u) FROM User u "
+                            + "WHERE u.createdAt >= :from AND u.createdAt < :to "
+                            + "GROUP BY cast(u.createdAt AS LocalDate) ORDER BY day", Object[].class)
+                    .setParameter("from", from.atStartOfDay())
+                    .setParameter("to", to.atStartOfDay())
+                    .list());
+
+            List<DailySignups> days = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                days.add(new DailySignups((LocalDate) row[0], ((Number) row[1]).longValue()));
+            }
+            return days;
+
+        } catch (Exception e) {
+            logger.error("Error counting signups between {} and {}", from, to, e);
+            throw new RuntimeException("Failed to count signups by day", e);
+        }
+    }
+
+    @Override
+    public AgeStats ageStats() {
+        try {
+            Object[] row = inReadOnlySession(session -> session
+                    .createQuery("SELECT count(u.age), min(u.age), max(u.age), avg(u.age) FROM User u", Object[].class)
+                    .getSingleResult());
+
+            return new AgeStats(((Number) row[0]).longValue(), (Integer) row[1], (Integer) row[2], (Double) row[3]);
+
+        } catch (Exception e) {
+            logger.error("Error calculating age statistics", e);
+            throw new RuntimeException("Failed to calculate age statistics", e);
+        }
+    }
+
+    @Override
+    public List<User> searchByName(String fragment, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        if (fragment == null || fragment.trim().length() < MIN_SEARCH_FRAGMENT_LENGTH) {
+            throw new IllegalArgumentException(
+                    "Search fragment must be at least " + MIN_SEARCH_FRAGMENT_LENGTH + " characters");
+        }
+
+        try {
+            List<User> users = switch (searchMode()) {
+                case TRIGRAM -> searchByTrigramIndex(fragment, limit);
+                case IN_MEMORY -> searchByNgramIndex(fragment, limit);
+                case LIKE -> searchByLike(fragment, limit);
+            };
+
+            if (LogSampling.sampledDebug(logger)) {
+                logger.debug("Found {} users by name search: {}", users.size(), fragment);
+            }
+            return users;
+
+        } catch (Exception e) {
+            logger.error("Error searching users by name: {}", fragment, e);
+            throw new RuntimeException("Failed to search users by name: " + fragment, e);
+        }
+    }
+
+    // GIN-индекс pg_trgm обслуживает ILIKE '%x%', порядок - по триграммному сходству
+    private List<User> searchByTrigramIndex(String fragment, int limit) {
+        return inReadOnlySession(session -> session.createNativeQuery(
+                        "SELECT * FROM users WHERE name ILIKE :pattern "
+                                + "ORDER BY similarity(name, :fragment) DESC, id LIMIT :limit", User.class)
+                .setParameter("pattern", "%" + escapeLike(fragment) + "%")
+                .setParameter("fragment", fragment)
+                .setParameter("limit", limit)
+                .list());
+    }
+
+    // Без индекса: тот же порядок релевантности, что у NameNgramIndex.relevanceTo, считает сама БД
+    private List<User> searchByLike(String fragment, int limit) {
+        String needle = escapeLike(fragment.toLowerCase(Locale.ROOT));
+        return inReadOnlySession(session -> session.createQuery(
+                        "FROM User u WHERE lower(u.name) LIKE :pattern ESCAPE '\\' "
+                                + "ORDER BY CASE WHEN lower(u.name) = :needle THEN 0 "
+                                + "WHEN lower(u.name) LIKE :prefix ESCAPE '\\' THEN 1 "
+                                + "WHEN lower(u.name) LIKE :wordStart ESCAPE '\\' THEN 2 ELSE 3 END, "
+                                + "length(u.name), u.id",
+                        User.class)
+                .setParameter("pattern", "%" + needle + "%")
+                .setParameter("needle", fragment.toLowerCase(Locale.ROOT))
+                .setParameter("prefix", needle + "%")
+                .setParameter("wordStart", "% " + needle + "%")
+                .setMaxResults(limit)
+                .list());
+    }
+
+    private List<User> searchByNgramIndex(String fragment, int limit) {
+        List<Long> ids = nameIndex().search(fragment, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, User> usersById = inReadOnlySession(session -> session
+                .createQuery("FROM User WHERE id IN :ids", User.class)
+                .setParameter("ids", ids)
+                .list())
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        // Сохраняем порядок релевантности, найденный индексом
+        return ids.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    // Есть ли GIN-индекс pg_trgm по name; сам индекс создаётся при настройке схемы (HibernateUtil)
+    public boolean hasTrigramIndex() {
+        try {
+            Number indexCount = inReadOnlySession(session -> (Number) session.createNativeQuery(
+                            "SELECT count(*) FROM pg_indexes WHERE tablename = 'users' AND indexname = :index",
+                            Object.class)
+                    .setParameter("index", NAME_TRIGRAM_INDEX)
+                    .uniqueResult());
+
+            boolean exists = indexCount != null && indexCount.intValue() > 0;
+            logger.info("Trigram index {} {}", NAME_TRIGRAM_INDEX, exists ? "is available" : "is missing");
+            return exists;
+
+        } catch (Exception e) {
+            logger.warn("Failed to check trigram index {}", NAME_TRIGRAM_INDEX, e);
+            return false;
+        }
+    }
+
+    private SearchMode searchMode() {
+        SearchMode mode = searchMode;
+        if (mode == null) {
+            synchronized (this) {
+                mode = searchMode;
+                if (mode == null) {
+                    if (isPostgreSQL() && hasTrigramIndex()) {
+                        mode = SearchMode.TRIGRAM;
+                    } else if (Boolean.parseBoolean(String.valueOf(
+                            sessionFactory().getProperties().get(IN_MEMORY_NAME_INDEX)))) {
+                        mode = SearchMode.IN_MEMORY;
+                    } else {
+                        mode = SearchMode.LIKE;
+                    }
+                    logger.info("Name search uses {}", mode);
+                    searchMode = mode;
+                }
+            }
+        }
+        return mode;
+    }
+
+    private boolean isPostgreSQL() {
+        return sessionFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect() instanceof PostgreSQLDialect;
+    }
+
+    private NameNgramIndex nameIndex() {
+        NameNgramIndex index = nameIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = nameIndex;
+                if (index == null) {
+                    index = buildNameIndex();
+                    nameIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private NameNgramIndex buildNameIndex() {
+        NameNgramIndex index = new NameNgramIndex();
+        StatelessSession session = sessionFactory().openStatelessSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            try (Stream<Object[]> rows = session.createQuery("SELECT id, name FROM User", Object[].class)
+                    .setFetchSize(DEFAULT_FETCH_SIZE)
+                    .stream()) {
+                rows.forEach(row -> index.put((Long) row[0], (String) row[1]));
+            }
+            transaction.commit();
+
+            logger.info("Built in-memory name index for {} users", index.size());
+            return index;
+
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
         } finally {
             session.close();
         }
     }
-}
\ No newline at end of file
+
+    // Индекс в памяти поддерживается только после того, как он построен при первом поиске;
+    // записи, закоммиченные во время самого построения, могут в него не попасть
+    private void indexName(User user) {
+        if (user != null && user.getId() != null) {
+            indexName(user.getId(), user.getName());
+        }
+    }
+
+    private void indexName(Long id, String name) {
+        NameNgramIndex index = nameIndex;
+        if (index != null) {
+            index.put(id, name);
+        }
+    }
+
+    private void unindexName(Long id) {
+        NameNgramIndex index = nameIndex;
+        if (index != null) {
+            index.remove(id);
+        }
+    }
+
+    private enum SearchMode {
+        TRIGRAM, IN_MEMORY, LIKE
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
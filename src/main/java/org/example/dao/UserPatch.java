@@ -0,0 +1,116 @@
+package org.example.dao;
+
+import java.util.Objects;
+
+/**
+ * Частичное изменение пользователя: в UPDATE попадают только заданные поля.
+ * Заданное значение null (например, withAge(null)) очищает поле, а не оставляет его как есть.
+ */
+public final class UserPatch {
+
+    private final Long id;
+    private final String name;
+    private final String email;
+    private final Integer age;
+    private final boolean hasName;
+    private final boolean hasEmail;
+    private final boolean hasAge;
+
+    private UserPatch(Long id, String name, String email, Integer age,
+                      boolean hasName, boolean hasEmail, boolean hasAge) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.age = age;
+        this.hasName = hasName;
+        this.hasEmail = hasEmail;
+        this.hasAge = hasAge;
+    }
+
+    // Пустое изменение пользователя id; поля добавляются через with*
+    public static UserPatch of(Long id) {
+        return new UserPatch(id, null, null, null, false, false, false);
+    }
+
+    // Замена всех полей, как в updateById, но без записи, если значения не изменились
+    public static UserPatch replace(Long id, String name, String email, Integer age) {
+        return new UserPatch(id, name, email, age, true, true, true);
+    }
+
+    public UserPatch withName(String name) {
+        return new UserPatch(id, name, email, age, true, hasEmail, hasAge);
+    }
+
+    public UserPatch withEmail(String email) {
+        return new UserPatch(id, name, email, age, hasName, true, hasAge);
+    }
+
+    public UserPatch withAge(Integer age) {
+        return new UserPatch(id, name, email, age, hasName, hasEmail, true);
+    }
+
+    public Long id() {
+        return id;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String email() {
+        return email;
+    }
+
+    public Integer age() {
+        return age;
+    }
+
+    public boolean hasName() {
+        return hasName;
+    }
+
+    public boolean hasEmail() {
+        return hasEmail;
+    }
+
+    public boolean hasAge() {
+        return hasAge;
+    }
+
+    public boolean isEmpty() {
+        return !hasName && !hasEmail && !hasAge;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof UserPatch patch)) {
+            return false;
+        }
+        return hasName == patch.hasName && hasEmail == patch.hasEmail && hasAge == patch.hasAge
+                && Objects.equals(id, patch.id) && Objects.equals(name, patch.name)
+                && Objects.equals(email, patch.email) && Objects.equals(age, patch.age);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, email, age, hasName, hasEmail, hasAge);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("UserPatch{id=").append(id);
+        if (hasName) {
+            result.append(", name='").append(name).append('\'');
+        }
+        if (hasEmail) {
+            result.append(", email='").append(email).append('\'');
+        }
+        if (hasAge) {
+            result.append(", age=").append(age);
+        }
+        return result.append('}').toString();
+    }
+}
@@ -0,0 +1,8 @@
+package org.example.dao;
+
+/**
+ * Проекция пользователя для списков: только id и имя. Строится прямо в запросе
+ * (select new), без создания сущности и её снимка в persistence context.
+ */
+public record UserSummary(Long id, String name) {
+}
@@ -0,0 +1,8 @@
+package org.example.dao;
+
+/**
+ * Новые значения полей пользователя для пакетного {@link UserDao#updateAll}; как и updateById,
+ * перезаписывает name, email и age целиком.
+ */
+public record UserUpdate(Long id, String name, String email, Integer age) {
+}
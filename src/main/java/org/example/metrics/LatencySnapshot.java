@@ -0,0 +1,26 @@
+package org.example.metrics;
+
+/**
+ * Снимок гистограммы задержек. Все значения в наносекундах.
+ */
+public record LatencySnapshot(long count, long sumNanos, long maxNanos, long p50Nanos, long p95Nanos, long p99Nanos) {
+
+    public double meanNanos() {
+        return count == 0 ? 0.0 : (double) sumNanos / count;
+    }
+
+    static double toMillis(double nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    static double toSeconds(double nanos) {
+        return nanos / 1_000_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LatencySnapshot{count=%d, mean=%.3fms, p50=%.3fms, p95=%.3fms, p99=%.3fms, max=%.3fms}",
+                count, toMillis(meanNanos()), toMillis(p50Nanos), toMillis(p95Nanos), toMillis(p99Nanos),
+                toMillis(maxNanos));
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр метрик операций, сгруппированных по слою (dao, service).
+ * После {@link #registerMBeans()} каждая операция видна в JMX как
+ * org.example:type=Operation,layer=...,name=..., в том числе созданные позже.
+ */
+public class MetricsRegistry {
+
+    public static final String JMX_DOMAIN = "org.example";
+
+    private static final Logger logger = LogManager.getLogger(MetricsRegistry.class);
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private volatile MBeanServer mBeanServer;
+
+    public OperationMetrics operation(String layer, String operation) {
+        return operations.computeIfAbsent(layer + '.' + operation, key -> {
+            OperationMetrics metrics = new OperationMetrics(layer, operation);
+            MBeanServer server = mBeanServer;
+            if (server != null) {
+                register(server, metrics);
+            }
+            return metrics;
+        });
+    }
+
+    // Операции, отсортированные по слою и имени - в таком порядке они выводятся экспортёром
+    public List<OperationMetrics> operations() {
+        List<OperationMetrics> result = new ArrayList<>(operations.values());
+        result.sort(Comparator.comparing(OperationMetrics::layer).thenComparing(OperationMetrics::operation));
+        return result;
+    }
+
+    public synchronized void registerMBeans() {
+        if (mBeanServer != null) {
+            return;
+        }
+        mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        for (OperationMetrics metrics : operations.values()) {
+            register(mBeanServer, metrics);
+        }
+    }
+
+    public synchronized void unregisterMBeans() {
+        MBeanServer server = mBeanServer;
+        if (server == null) {
+            return;
+        }
+        mBeanServer = null;
+        unregister(server, operations.values());
+    }
+
+    static ObjectName objectNameOf(OperationMetrics metrics) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=Operation,layer=" + ObjectName.quote(metrics.layer())
+                + ",name=" + ObjectName.quote(metrics.operation()));
+    }
+
+    private static void register(MBeanServer server, OperationMetrics metrics) {
+        try {
+            ObjectName name = objectNameOf(metrics);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(metrics, name);
+            }
+        } catch (JMException e) {
+            logger.warn("Failed to register MBean for operation {}.{}", metrics.layer(), metrics.operation(), e);
+        }
+    }
+
+    private static void unregister(MBeanServer server, Collection<OperationMetrics> metrics) {
+        for (OperationMetrics operation : metrics) {
+            try {
+                ObjectName name = objectNameOf(operation);
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            } catch (JMException e) {
+                logger.warn("Failed to unregister MBean for operation {}.{}",
+                        operation.layer(), operation.operation(), e);
+            }
+        }
+    }
+}
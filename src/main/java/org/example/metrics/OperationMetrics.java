@@ -0,0 +1,106 @@
+package org.example.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Задержки и счётчики успешных и неудачных вызовов одной операции.
+ * Декораторы получают экземпляр один раз при создании и на горячем пути только вызывают {@link #record}.
+ */
+public final class OperationMetrics implements OperationMetricsMXBean {
+
+    private final String layer;
+    private final String operation;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final long jmxSnapshotTtlNanos;
+    private volatile CachedSnapshot jmxSnapshot;
+
+    OperationMetrics(String layer, String operation) {
+        this(layer, operation, TimeUnit.SECONDS.toNanos(1));
+    }
+
+    OperationMetrics(String layer, String operation, long jmxSnapshotTtlNanos) {
+        this.layer = layer;
+        this.operation = operation;
+        this.jmxSnapshotTtlNanos = jmxSnapshotTtlNanos;
+    }
+
+    public void record(long nanos, boolean success) {
+        latency.record(nanos);
+        if (success) {
+            successes.increment();
+        } else {
+            errors.increment();
+        }
+    }
+
+    public String layer() {
+        return layer;
+    }
+
+    public String operation() {
+        return operation;
+    }
+
+    public LatencySnapshot latency() {
+        return latency.snapshot();
+    }
+
+    @Override
+    public long getSuccessCount() {
+        return successes.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return LatencySnapshot.toMillis(jmxLatency().meanNanos());
+    }
+
+    @Override
+    public double getP50Millis() {
+        return LatencySnapshot.toMillis(jmxLatency().p50Nanos());
+    }
+
+    @Override
+    public double getP95Millis() {
+        return LatencySnapshot.toMillis(jmxLatency().p95Nanos());
+    }
+
+    @Override
+    public double getP99Millis() {
+        return LatencySnapshot.toMillis(jmxLatency().p99Nanos());
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return LatencySnapshot.toMillis(jmxLatency().maxNanos());
+    }
+
+    // JMX читает атрибуты по одному: все геттеры одного опроса берут общий снимок гистограммы,
+    // а не делают по полному снимку на атрибут с несогласованными между собой значениями
+    private LatencySnapshot jmxLatency() {
+        CachedSnapshot cached = jmxSnapshot;
+        long now = System.nanoTime();
+        if (cached == null || now - cached.takenAtNanos() >= jmxSnapshotTtlNanos) {
+            cached = new CachedSnapshot(latency.snapshot(), now);
+            jmxSnapshot = cached;
+        }
+        return cached.latency();
+    }
+
+    private record CachedSnapshot(LatencySnapshot latency, long takenAtNanos) {
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OperationMetrics{%s.%s, success=%d, error=%d, latency=%s}",
+                layer, operation, getSuccessCount(), getErrorCount(), latency());
+    }
+}
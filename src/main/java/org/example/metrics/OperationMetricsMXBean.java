@@ -0,0 +1,19 @@
+package org.example.metrics;
+
+// Представление метрик одной операции в JMX (jconsole, VisualVM, JMX-экспортёры)
+public interface OperationMetricsMXBean {
+
+    long getSuccessCount();
+
+    long getErrorCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+}
@@ -0,0 +1,131 @@
+package org.example.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Встроенный HTTP-эндпоинт /metrics в текстовом формате Prometheus.
+ * Задержки публикуются как summary с квантилями 0.5/0.95/0.99, вызовы - как счётчик с меткой outcome.
+ */
+public class PrometheusExporter implements AutoCloseable {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final Logger logger = LogManager.getLogger(PrometheusExporter.class);
+
+    private final MetricsRegistry registry;
+    private final HttpServer server;
+
+    public PrometheusExporter(MetricsRegistry registry, int port) {
+        this.registry = registry;
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to bind metrics endpoint on port " + port, e);
+        }
+        server.createContext("/metrics", this::handle);
+        server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    public PrometheusExporter start() {
+        server.start();
+        logger.info("Metrics endpoint started on port {}", getPort());
+        return this;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+
+        out.append("# HELP user_service_operation_duration_seconds Latency of user service operations\n");
+        out.append("# TYPE user_service_operation_duration_seconds summary\n");
+        // Один снимок на операцию: квантили, сумма, count и max в ответе согласованы между собой
+        Map<OperationMetrics, LatencySnapshot> snapshots = new LinkedHashMap<>();
+        for (OperationMetrics metrics : registry.operations()) {
+            snapshots.put(metrics, metrics.latency());
+        }
+        for (Map.Entry<OperationMetrics, LatencySnapshot> entry : snapshots.entrySet()) {
+            OperationMetrics metrics = entry.getKey();
+            LatencySnapshot latency = entry.getValue();
+            String labels = labels(metrics);
+            sample(out, "user_service_operation_duration_seconds", labels + ",quantile=\"0.5\"",
+                    LatencySnapshot.toSeconds(latency.p50Nanos()));
+            sample(out, "user_service_operation_duration_seconds", labels + ",quantile=\"0.95\"",
+                    LatencySnapshot.toSeconds(latency.p95Nanos()));
+            sample(out, "user_service_operation_duration_seconds", labels + ",quantile=\"0.99\"",
+                    LatencySnapshot.toSeconds(latency.p99Nanos()));
+            sample(out, "user_service_operation_duration_seconds_sum", labels,
+                    LatencySnapshot.toSeconds(latency.sumNanos()));
+            sample(out, "user_service_operation_duration_seconds_count", labels, latency.count());
+        }
+
+        out.append("# HELP user_service_operation_max_seconds Maximum observed latency since start\n");
+        out.append("# TYPE user_service_operation_max_seconds gauge\n");
+        for (Map.Entry<OperationMetrics, LatencySnapshot> entry : snapshots.entrySet()) {
+            sample(out, "user_service_operation_max_seconds", labels(entry.getKey()),
+                    LatencySnapshot.toSeconds(entry.getValue().maxNanos()));
+        }
+
+        out.append("# HELP user_service_operations_total Completed user service operations by outcome\n");
+        out.append("# TYPE user_service_operations_total counter\n");
+        for (OperationMetrics metrics : registry.operations()) {
+            String labels = labels(metrics);
+            sample(out, "user_service_operations_total", labels + ",outcome=\"success\"", metrics.getSuccessCount());
+            sample(out, "user_service_operations_total", labels + ",outcome=\"error\"", metrics.getErrorCount());
+        }
+        return out.toString();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        logger.info("Metrics endpoint stopped");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream response = exchange.getResponseBody()) {
+                response.write(body);
+            }
+        }
+    }
+
+    private static String labels(OperationMetrics metrics) {
+        return "layer=\"" + metrics.layer() + "\",operation=\"" + metrics.operation() + "\"";
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append('{').append(labels).append("} ")
+                .append(String.format(Locale.ROOT, "%.9f", value)).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.service;
+
+/**
+ * Снимок состояния исполнителя {@link AsyncUserService}. queuedTasks - задачи, ожидающие потока
+ * (или разрешения на обращение к БД в режиме виртуальных потоков).
+ */
+public record AsyncExecutorStats(
+        int activeTasks,
+        int queuedTasks,
+        int queueCapacity,
+        long submitted,
+        long completed,
+        long failed,
+        long rejected,
+        long timedOut,
+        long cancelled) {
+}
@@ -0,0 +1,353 @@
+package org.example.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.dao.AgeBucket;
+import org.example.dao.AgeStats;
+import org.example.dao.BatchSaveResult;
+import org.example.dao.DailySignups;
+import org.example.dao.MultiGetResult;
+import org.example.dao.PatchResult;
+import org.example.dao.UpsertResult;
+import org.example.dao.UserContact;
+import org.example.dao.UserPatch;
+import org.example.dao.UserSummary;
+import org.example.entity.User;
+import org.example.util.ConnectionPoolStats;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Асинхронный фасад над {@link UserService}. Вызовы выполняются на ограниченном пуле потоков,
+ * размер которого стоит согласовывать с пулом соединений: лишние потоки всё равно ждали бы соединение.
+ * streamAllUsers сюда не вынесен - поток привязан к открытой сессии и читается вызывающим кодом.
+ */
+public class AsyncUserService implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(AsyncUserService.class);
+
+    private final UserService userService;
+    private final Engine engine;
+    private final Duration timeout;
+
+    public AsyncUserService(UserService userService, int maxConcurrency, int queueCapacity, Duration timeout) {
+        this(userService, new Engine(maxConcurrency, queueCapacity, false), timeout);
+    }
+
+    private AsyncUserService(UserService userService, Engine engine, Duration timeout) {
+        if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+        this.userService = userService;
+        this.engine = engine;
+        this.timeout = timeout;
+    }
+
+    // Пул потоков по размеру пула соединений
+    public static AsyncUserService sizedToConnectionPool(UserService userService, ConnectionPoolStats poolStats,
+                                                         int queueCapacity, Duration timeout) {
+        return new AsyncUserService(userService, poolStats.maxPoolSize(), queueCapacity, timeout);
+    }
+
+    /**
+     * Вариант на виртуальных потоках, требует JDK 21: поток на каждый вызов, а число одновременных
+     * обращений к БД ограничено maxConcurrency. Ждать разрешения могут не больше queueCapacity вызовов,
+     * остальные отклоняются с RejectedExecutionException, как при переполнении очереди обычного пула.
+     * На JDK 17 (цель сборки) выбрасывает UnsupportedOperationException.
+     */
+    public static AsyncUserService withVirtualThreads(UserService userService, int maxConcurrency,
+                                                      int queueCapacity, Duration timeout) {
+        return new AsyncUserService(userService, new Engine(maxConcurrency, queueCapacity, true), timeout);
+    }
+
+    // Тот же исполнитель, но с другим таймаутом для вызовов через возвращённый объект
+    public AsyncUserService withTimeout(Duration timeout) {
+        return new AsyncUserService(userService, engine, timeout);
+    }
+
+    public CompletableFuture<User> createUser(String name, String email, Integer age) {
+        return submit(() -> userService.createUser(name, email, age));
+    }
+
+    public CompletableFuture<BatchSaveResult> createUsers(Collection<User> users) {
+        return submit(() -> userService.createUsers(users));
+    }
+
+    public CompletableFuture<BatchSaveResult> createUsers(Collection<User> users, int chunkSize) {
+        return submit(() -> userService.createUsers(users, chunkSize));
+    }
+
+    public CompletableFuture<Optional<User>> getUserById(Long id) {
+        return submit(() -> userService.getUserById(id));
+    }
+
+    public CompletableFuture<List<User>> getAllUsers() {
+        return submit(userService::getAllUsers);
+    }
+
+    public CompletableFuture<List<User>> getUsersPage(Long lastId, int pageSize) {
+        return submit(() -> userService.getUsersPage(lastId, pageSize));
+    }
+
+    public CompletableFuture<User> updateUser(Long id, String name, String email, Integer age) {
+        return submit(() -> userService.updateUser(id, name, email, age));
+    }
+
+    public CompletableFuture<Void> deleteUser(Long id) {
+        return submit(() -> {
+            userService.deleteUser(id);
+            return null;
+        });
+    }
+
+    public CompletableFuture<PatchResult> patchUser(UserPatch patch) {
+        return submit(() -> userService.patchUser(patch));
+    }
+
+    public CompletableFuture<UpsertResult> upsertUserByEmail(String name, String email, Integer age) {
+        return submit(() -> userService.upsertUserByEmail(name, email, age));
+    }
+
+    public CompletableFuture<List<UpsertResult>> upsertUsersByEmail(Collection<User> users) {
+        return submit(() -> userService.upsertUsersByEmail(users));
+    }
+
+    public CompletableFuture<Optional<User>> findUserByEmail(String email) {
+        return submit(() -> userService.findUserByEmail(email));
+    }
+
+    public CompletableFuture<List<User>> findUsersByName(String name) {
+        return submit(() -> userService.findUsersByName(name));
+    }
+
+    public CompletableFuture<List<User>> searchUsersByName(String name, int limit) {
+        return submit(() -> userService.searchUsersByName(name, limit));
+    }
+
+    public CompletableFuture<MultiGetResult<Long>> getUsersByIds(Collection<Long> ids) {
+        return submit(() -> userService.getUsersByIds(ids));
+    }
+
+    public CompletableFuture<MultiGetResult<String>> findUsersByEmails(Collection<String> emails) {
+        return submit(() -> userService.findUsersByEmails(emails));
+    }
+
+    public CompletableFuture<List<UserSummary>> getUserSummaries() {
+        return submit(userService::getUserSummaries);
+    }
+
+    public CompletableFuture<List<UserSummary>> findUserSummariesByName(String name) {
+        return submit(() -> userService.findUserSummariesByName(name));
+    }
+
+    public CompletableFuture<List<UserContact>> getUserContacts() {
+        return submit(userService::getUserContacts);
+    }
+
+    public CompletableFuture<Long> getUserCount() {
+        return submit(userService::getUserCount);
+    }
+
+    public CompletableFuture<List<AgeBucket>> getAgeDistribution(int bucketWidth) {
+        return submit(() -> userService.getAgeDistribution(bucketWidth));
+    }
+
+    public CompletableFuture<List<DailySignups>> getSignupsPerDay(LocalDate from, LocalDate to) {
+        return submit(() -> userService.getSignupsPerDay(from, to));
+    }
+
+    public CompletableFuture<AgeStats> getAgeStats() {
+        return submit(userService::getAgeStats);
+    }
+
+    public AsyncExecutorStats getStats() {
+        return engine.stats();
+    }
+
+    @Override
+    public void close() {
+        engine.shutdown();
+    }
+
+    /**
+     * Отмена или таймаут возвращённого future прерывает задачу: ещё не начатая не выполнится,
+     * выполняющаяся получит interrupt.
+     */
+    private <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> execution;
+        try {
+            execution = engine.execute(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                try {
+                    result.complete(task.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        result.whenComplete((value, error) -> {
+            if (error == null) {
+                engine.completed.increment();
+            } else if (error instanceof CancellationException) {
+                engine.cancelled.increment();
+                execution.cancel(true);
+            } else if (error instanceof TimeoutException) {
+                engine.timedOut.increment();
+                execution.cancel(true);
+            } else {
+                engine.failed.increment();
+            }
+        });
+        return result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Исполнитель и счётчики, общие для всех представлений с разными таймаутами
+    private static final class Engine {
+        private final ExecutorService executor;
+        private final ThreadPoolExecutor pool;
+        private final Semaphore permits;
+        // Для виртуальных потоков: выполняющиеся плюс ждущие разрешения вызовы
+        private final Semaphore admission;
+        private final int maxConcurrency;
+        private final int queueCapacity;
+
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+
+        Engine(int maxConcurrency, int queueCapacity, boolean virtualThreads) {
+            if (maxConcurrency <= 0) {
+                throw new IllegalArgumentException("Max concurrency must be positive");
+            }
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("Queue capacity must be positive");
+            }
+            this.maxConcurrency = maxConcurrency;
+            this.queueCapacity = queueCapacity;
+            if (virtualThreads) {
+                this.executor = newVirtualThreadExecutor();
+                this.pool = null;
+                this.permits = new Semaphore(maxConcurrency, true);
+                this.admission = new Semaphore(Math.addExact(maxConcurrency, queueCapacity));
+            } else {
+                this.pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity), new NamedThreadFactory(),
+                        new ThreadPoolExecutor.AbortPolicy());
+                this.executor = pool;
+                this.permits = null;
+                this.admission = null;
+            }
+        }
+
+        Future<?> execute(Runnable task) {
+            submitted.increment();
+            try {
+                if (permits == null) {
+                    return executor.submit(task);
+                }
+                if (!admission.tryAcquire()) {
+                    throw new RejectedExecutionException("Too many pending calls: " + maxConcurrency
+                            + " running and " + queueCapacity + " waiting");
+                }
+                // done() срабатывает и при отмене ещё не начатой задачи, так что место не теряется
+                FutureTask<Void> future = new FutureTask<>(() -> {
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                }, null) {
+                    @Override
+                    protected void done() {
+                        admission.release();
+                    }
+                };
+                try {
+                    executor.execute(future);
+                } catch (RejectedExecutionException e) {
+                    admission.release();
+                    throw e;
+                }
+                return future;
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                throw e;
+            }
+        }
+
+        AsyncExecutorStats stats() {
+            int active = pool != null ? pool.getActiveCount() : maxConcurrency - permits.availablePermits();
+            int queued = pool != null ? pool.getQueue().size() : permits.getQueueLength();
+            return new AsyncExecutorStats(active, queued, queueCapacity, submitted.sum(), completed.sum(),
+                    failed.sum(), rejected.sum(), timedOut.sum(), cancelled.sum());
+        }
+
+        void shutdown() {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    logger.warn("Async user service executor did not terminate in time, forcing shutdown");
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private static ExecutorService newVirtualThreadExecutor() {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new UnsupportedOperationException("Virtual threads require JDK 21 or newer", e);
+            }
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "user-service-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package org.example.service;
+
+import org.example.dao.AgeBucket;
+import org.example.dao.AgeStats;
+import org.example.dao.BatchSaveResult;
+import org.example.dao.DailySignups;
+import org.example.dao.MultiGetResult;
+import org.example.dao.PatchResult;
+import org.example.dao.UserContact;
+import org.example.dao.UserDao;
+import org.example.dao.UserPatch;
+import org.example.dao.UpsertResult;
+import org.example.dao.UserSummary;
+import org.example.entity.User;
+import org.example.metrics.MetricsRegistry;
+import org.example.metrics.OperationMetrics;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * UserService с замером задержки и исхода каждого вызова. Ошибки валидации
+ * (IllegalArgumentException) тоже считаются ошибками операции.
+ */
+public class InstrumentedUserService extends UserService {
+
+    public static final String LAYER = "service";
+
+    private final OperationMetrics createUser;
+    private final OperationMetrics createUsers;
+    private final OperationMetrics getUserById;
+    private final OperationMetrics getAllUsers;
+    private final OperationMetrics streamAllUsers;
+    private final OperationMetrics getUsersPage;
+    private final OperationMetrics updateUser;
+    private final OperationMetrics patchUser;
+    private final OperationMetrics upsertUserByEmail;
+    private final OperationMetrics upsertUsersByEmail;
+    private final OperationMetrics deleteUser;
+    private final OperationMetrics findUserByEmail;
+    private final OperationMetrics findUsersByName;
+    private final OperationMetrics getUsersByIds;
+    private final OperationMetrics findUsersByEmails;
+    private final OperationMetrics getUserSummaries;
+    private final OperationMetrics findUserSummariesByName;
+    private final OperationMetrics getUserContacts;
+    private final OperationMetrics getUserCount;
+    private final OperationMetrics getAgeDistribution;
+    private final OperationMetrics getSignupsPerDay;
+    private final OperationMetrics getAgeStats;
+    private final OperationMetrics searchUsersByName;
+
+    public InstrumentedUserService(UserDao userDao, MetricsRegistry registry) {
+        super(userDao);
+        this.createUser = registry.operation(LAYER, "createUser");
+        this.createUsers = registry.operation(LAYER, "createUsers");
+        this.getUserById = registry.operation(LAYER, "getUserById");
+        this.getAllUsers = registry.operation(LAYER, "getAllUsers");
+        this.streamAllUsers = registry.operation(LAYER, "streamAllUsers");
+        this.getUsersPage = registry.operation(LAYER, "getUsersPage");
+        this.updateUser = registry.operation(LAYER, "updateUser");
+        this.patchUser = registry.operation(LAYER, "patchUser");
+        this.upsertUserByEmail = registry.operation(LAYER, "upsertUserByEmail");
+        this.upsertUsersByEmail = registry.operation(LAYER, "upsertUsersByEmail");
+        this.deleteUser = registry.operation(LAYER, "deleteUser");
+        this.findUserByEmail = registry.operation(LAYER, "findUserByEmail");
+        this.findUsersByName = registry.operation(LAYER, "findUsersByName");
+        this.getUsersByIds = registry.operation(LAYER, "getUsersByIds");
+        this.findUsersByEmails = registry.operation(LAYER, "findUsersByEmails");
+        this.getUserSummaries = registry.operation(LAYER, "getUserSummaries");
+        this.findUserSummariesByName = registry.operation(LAYER, "findUserSummariesByName");
+        this.getUserContacts = registry.operation(LAYER, "getUserContacts");
+        this.getUserCount = registry.operation(LAYER, "getUserCount");
+        this.getAgeDistribution = registry.operation(LAYER, "getAgeDistribution");
+        this.getSignupsPerDay = registry.operation(LAYER, "getSignupsPerDay");
+        this.getAgeStats = registry.operation(LAYER, "getAgeStats");
+        this.searchUsersByName = registry.operation(LAYER, "searchUsersByName");
+    }
+
+    @Override
+    public User createUser(String name, String email, Integer age) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            User result = super.createUser(name, email, age);
+            success = true;
+            return result;
+        } finally {
+            createUser.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public BatchSaveResult createUsers(Collection<User> users) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            BatchSaveResult result = super.createUsers(users);
+            success = !result.hasFailures();
+            return result;
+        } finally {
+            createUsers.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public BatchSaveResult createUsers(Collection<User> users, int chunkSize) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            BatchSaveResult result = super.createUsers(users, chunkSize);
+            success = !result.hasFailures();
+            return result;
+        } finally {
+            createUsers.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public Optional<User> getUserById(Long id) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Optional<User> result = super.getUserById(id);
+            success = true;
+            return result;
+        } finally {
+            getUserById.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<User> result = super.getAllUsers();
+            success = true;
+            return result;
+        } finally {
+            getAllUsers.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public Stream<User> streamAllUsers() {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Stream<User> result = super.streamAllUsers();
+            success = true;
+            return result;
+        } finally {
+            streamAllUsers.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<User> getUsersPage(Long lastId, int pageSize) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<User> result = super.getUsersPage(lastId, pageSize);
+            success = true;
+            return result;
+        } finally {
+            getUsersPage.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public User updateUser(Long id, String name, String email, Integer age) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            User result = super.updateUser(id, name, email, age);
+            success = true;
+            return result;
+        } finally {
+            updateUser.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public PatchResult patchUser(UserPatch patch) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            PatchResult result = super.patchUser(patch);
+            success = true;
+            return result;
+        } finally {
+            patchUser.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public UpsertResult upsertUserByEmail(String name, String email, Integer age) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            UpsertResult result = super.upsertUserByEmail(name, email, age);
+            success = true;
+            return result;
+        } finally {
+            upsertUserByEmail.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<UpsertResult> upsertUsersByEmail(Collection<User> users) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<UpsertResult> result = super.upsertUsersByEmail(users);
+            success = true;
+            return result;
+        } finally {
+            upsertUsersByEmail.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public void deleteUser(Long id) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            super.deleteUser(id);
+            success = true;
+        } finally {
+            deleteUser.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public Optional<User> findUserByEmail(String email) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Optional<User> result = super.findUserByEmail(email);
+            success = true;
+            return result;
+        } finally {
+            findUserByEmail.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<User> findUsersByName(String name) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<User> result = super.findUsersByName(name);
+            success = true;
+            return result;
+        } finally {
+            findUsersByName.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public MultiGetResult<Long> getUsersByIds(Collection<Long> ids) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            MultiGetResult<Long> result = super.getUsersByIds(ids);
+            success = true;
+            return result;
+        } finally {
+            getUsersByIds.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public MultiGetResult<String> findUsersByEmails(Collection<String> emails) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            MultiGetResult<String> result = super.findUsersByEmails(emails);
+            success = true;
+            return result;
+        } finally {
+            findUsersByEmails.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<UserSummary> getUserSummaries() {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<UserSummary> result = super.getUserSummaries();
+            success = true;
+            return result;
+        } finally {
+            getUserSummaries.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<UserSummary> findUserSummariesByName(String name) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<UserSummary> result = super.findUserSummariesByName(name);
+            success = true;
+            return result;
+        } finally {
+            findUserSummariesByName.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<UserContact> getUserContacts() {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<UserContact> result = super.getUserContacts();
+            success = true;
+            return result;
+        } finally {
+            getUserContacts.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public long getUserCount() {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            long result = super.getUserCount();
+            success = true;
+            return result;
+        } finally {
+            getUserCount.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<AgeBucket> getAgeDistribution(int bucketWidth) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<AgeBucket> result = super.getAgeDistribution(bucketWidth);
+            success = true;
+            return result;
+        } finally {
+            getAgeDistribution.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<DailySignups> getSignupsPerDay(LocalDate from, LocalDate to) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<DailySignups> result = super.getSignupsPerDay(from, to);
+            success = true;
+            return result;
+        } finally {
+            getSignupsPerDay.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public AgeStats getAgeStats() {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            AgeStats result = super.getAgeStats();
+            success = true;
+            return result;
+        } finally {
+            getAgeStats.record(System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<User> searchUsersByName(String name, int limit) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<User> result = super.searchUsersByName(name, limit);
+            success = true;
+            return result;
+        } finally {
+            searchUsersByName.record(System.nanoTime() - start, success);
+        }
+    }
+}
@@ -1,13 +1,33 @@
 package org.example.service;
 
+import org.example.dao.AgeBucket;
+import org.example.dao.AgeStats;
+import org.example.dao.BatchSaveResult;
+import org.example.dao.DailySignups;
+import org.example.dao.MultiGetResult;
+import org.example.dao.PatchResult;
+import org.example.dao.UserContact;
 import org.example.dao.UserDao;
+import org.example.dao.UserPatch;
+import org.example.dao.UpsertResult;
+import org.example.dao.UserSummary;
 import org.example.entity.User;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
 public class UserService {
+    public static final int MAX_PAGE_SIZE = 1000;
+    // Поиск по подстроке имени идёт по триграммам: короче фрагмента индекс не поможет
+    public static final int MIN_SEARCH_FRAGMENT_LENGTH = 3;
+
     private final UserDao userDao;
+    // Обновления, совпавшие с текущими значениями и потому не записанные в БД
+    private final LongAdder writesAvoided = new LongAdder();
 
     public UserService(UserDao userDao) {
         this.userDao = userDao;
@@ -20,6 +40,19 @@ public class UserService {
         return userDao.save(user);
     }
 
+    public BatchSaveResult createUsers(Collection<User> users) {
+        validateUsers(users);
+        return userDao.saveAll(users);
+    }
+
+    public BatchSaveResult createUsers(Collection<User> users, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        validateUsers(users);
+        return userDao.saveAll(users, chunkSize);
+    }
+
     public Optional<User> getUserById(Long id) {
         if (id == null || id <= 0) {
             throw new IllegalArgumentException("User ID must be positive");
@@ -31,20 +64,65 @@ public class UserService {
         return userDao.findAll();
     }
 
+    public Stream<User> streamAllUsers() {
+        return userDao.streamAll();
+    }
+
+    public List<User> getUsersPage(Long lastId, int pageSize) {
+        if (lastId != null && lastId < 0) {
+            throw new IllegalArgumentException("Last ID cannot be negative");
+        }
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return userDao.findPageAfter(lastId, pageSize);
+    }
+
+    // Запись - один UPDATE без предварительного чтения; возвращаемая сущность перечитывается после него
     public User updateUser(Long id, String name, String email, Integer age) {
         if (id == null || id <= 0) {
             throw new IllegalArgumentException("User ID must be positive");
         }
         validateUserData(name, email, age);
 
-        User existingUser = userDao.findById(id)
+        applyPatch(UserPatch.replace(id, name, email, age));
+        return userDao.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + id));
+    }
 
-        existingUser.setName(name);
-        existingUser.setEmail(email);
-        existingUser.setAge(age);
+    // Меняет только заданные в patch поля; UNCHANGED - значения совпали и запись не выполнялась
+    public PatchResult patchUser(UserPatch patch) {
+        if (patch == null) {
+            throw new IllegalArgumentException("Patch cannot be null");
+        }
+        if (patch.id() == null || patch.id() <= 0) {
+            throw new IllegalArgumentException("User ID must be positive");
+        }
+        if (patch.hasName()) {
+            UserValidator.validateName(patch.name());
+        }
+        if (patch.hasEmail()) {
+            UserValidator.validateEmail(patch.email());
+        }
+        if (patch.hasAge()) {
+            UserValidator.validateAge(patch.age());
+        }
+        return applyPatch(patch);
+    }
+
+    // Создаёт пользователя или обновляет имя и возраст существующего с тем же email одним запросом
+    public UpsertResult upsertUserByEmail(String name, String email, Integer age) {
+        validateUserData(name, email, age);
+        return userDao.upsertByEmail(new User(name, email, age));
+    }
 
-        return userDao.update(existingUser);
+    public List<UpsertResult> upsertUsersByEmail(Collection<User> users) {
+        validateUsers(users);
+        return userDao.upsertAllByEmail(users);
+    }
+
+    public long getWritesAvoided() {
+        return writesAvoided.sum();
     }
 
     public void deleteUser(Long id) {
@@ -52,11 +130,9 @@ public class UserService {
             throw new IllegalArgumentException("User ID must be positive");
         }
 
-        if (!userDao.findById(id).isPresent()) {
+        if (userDao.deleteById(id) == 0) {
             throw new IllegalArgumentException("User not found with id: " + id);
         }
-
-        userDao.delete(id);
     }
 
     public Optional<User> findUserByEmail(String email) {
@@ -73,18 +149,120 @@ public class UserService {
         return userDao.findByName(name);
     }
 
-    private void validateUserData(String name, String email, Integer age) {
+    // Пакетный поиск: результат в порядке ключей, повторы схлопнуты, отсутствующие - в missing()
+    public MultiGetResult<Long> getUsersByIds(Collection<Long> ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("Keys cannot be null");
+        }
+        for (Long id : ids) {
+            if (id == null || id <= 0) {
+                throw new IllegalArgumentException("User ID must be positive");
+            }
+        }
+        return userDao.findAllByIds(distinctKeys(ids));
+    }
+
+    public MultiGetResult<String> findUsersByEmails(Collection<String> emails) {
+        if (emails == null) {
+            throw new IllegalArgumentException("Keys cannot be null");
+        }
+        for (String email : emails) {
+            if (email == null || email.trim().isEmpty()) {
+                throw new IllegalArgumentException("Email cannot be empty");
+            }
+        }
+        return userDao.findAllByEmails(distinctKeys(emails));
+    }
+
+    // Облегчённые варианты getAllUsers/findUsersByName: только id и имя, без загрузки сущностей
+    public List<UserSummary> getUserSummaries() {
+        return userDao.findAllSummaries();
+    }
+
+    public List<UserSummary> findUserSummariesByName(String name) {
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Name cannot be empty");
         }
-        if (email == null || email.trim().isEmpty()) {
-            throw new IllegalArgumentException("Email cannot be empty");
+        return userDao.findSummariesByName(name);
+    }
+
+    public List<UserContact> getUserContacts() {
+        return userDao.findAllContacts();
+    }
+
+    // Статистика считается в БД: для дашбордов не нужно читать всю таблицу через getAllUsers
+    public long getUserCount() {
+        return userDao.count();
+    }
+
+    public List<AgeBucket> getAgeDistribution(int bucketWidth) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("Bucket width must be positive");
         }
-        if (!email.contains("@")) {
-            throw new IllegalArgumentException("Invalid email format");
+        return userDao.countByAgeBucket(bucketWidth);
+    }
+
+    public List<DailySignups> getSignupsPerDay(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Date range cannot be empty");
         }
-        if (age != null && (age < 0 || age > 150)) {
-            throw new IllegalArgumentException("Age must be between 0 and 150");
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
         }
+        return userDao.countSignupsByDay(from, to);
+    }
+
+    public AgeStats getAgeStats() {
+        return userDao.ageStats();
+    }
+
+    public List<User> searchUsersByName(String name, int limit) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Name cannot be empty");
+        }
+        if (name.trim().length() < MIN_SEARCH_FRAGMENT_LENGTH) {
+            throw new IllegalArgumentException(
+                    "Search fragment must be at least " + MIN_SEARCH_FRAGMENT_LENGTH + " characters");
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return userDao.searchByName(name.trim(), limit);
+    }
+
+    private PatchResult applyPatch(UserPatch patch) {
+        PatchResult result = userDao.patch(patch);
+        if (result == PatchResult.NOT_FOUND) {
+            throw new IllegalArgumentException("User not found with id: " + patch.id());
+        }
+        if (result == PatchResult.UNCHANGED) {
+            writesAvoided.increment();
+        }
+        return result;
+    }
+
+    // Лимит считается по уникальным ключам: повторы одного id не должны упираться в MAX_PAGE_SIZE
+    private <K> List<K> distinctKeys(Collection<K> keys) {
+        List<K> distinct = MultiGetResult.distinct(keys);
+        if (distinct.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Cannot look up more than " + MAX_PAGE_SIZE + " keys at once");
+        }
+        return distinct;
+    }
+
+    private void validateUsers(Collection<User> users) {
+        if (users == null) {
+            throw new IllegalArgumentException("Users cannot be null");
+        }
+        for (User user : users) {
+            if (user == null) {
+                throw new IllegalArgumentException("User cannot be null");
+            }
+            validateUserData(user.getName(), user.getEmail(), user.getAge());
+        }
+    }
+
+    private void validateUserData(String name, String email, Integer age) {
+        UserValidator.validate(name, email, age);
     }
 }
@@ -0,0 +1,37 @@
+package org.example.service;
+
+/**
+ * Правила проверки данных пользователя - общие для UserService и массового импорта.
+ */
+public final class UserValidator {
+
+    private UserValidator() {
+    }
+
+    public static void validate(String name, String email, Integer age) {
+        validateName(name);
+        validateEmail(email);
+        validateAge(age);
+    }
+
+    public static void validateName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Name cannot be empty");
+        }
+    }
+
+    public static void validateEmail(String email) {
+        if (email == null || email.trim().isEmpty()) {
+            throw new IllegalArgumentException("Email cannot be empty");
+        }
+        if (!email.contains("@")) {
+            throw new IllegalArgumentException("Invalid email format");
+        }
+    }
+
+    public static void validateAge(Integer age) {
+        if (age != null && (age < 0 || age > 150)) {
+            throw new IllegalArgumentException("Age must be between 0 and 150");
+        }
+    }
+}
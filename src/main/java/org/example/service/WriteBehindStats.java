@@ -0,0 +1,23 @@
+package org.example.service;
+
+/**
+ * Снимок состояния буфера {@link WriteBehindUserService}. coalesced - обновления, поглощённые
+ * более поздним обновлением того же пользователя до записи в БД; notFound - обновления
+ * пользователей, которых к моменту записи уже не было.
+ */
+public record WriteBehindStats(
+        int pending,
+        int capacity,
+        long received,
+        long coalesced,
+        long rejected,
+        long flushedBatches,
+        long rowsWritten,
+        long notFound,
+        long failed) {
+
+    // Доля обновлений, не дошедших до БД отдельной записью
+    public double coalescingRatio() {
+        return received == 0 ? 0.0 : (double) coalesced / received;
+    }
+}
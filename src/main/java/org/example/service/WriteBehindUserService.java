@@ -0,0 +1,326 @@
+package org.example.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.dao.PatchResult;
+import org.example.dao.UpsertResult;
+import org.example.dao.UserDao;
+import org.example.dao.UserPatch;
+import org.example.dao.UserUpdate;
+import org.example.entity.User;
+import org.example.util.HibernateUtil;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * UserService с отложенной записью обновлений. updateUser только кладёт изменение в буфер по id:
+ * повторные обновления того же пользователя до записи сливаются в одно (побеждает последнее),
+ * а фоновый поток пишет буфер пакетами через {@link UserDao#updateAll} - по заполнению пакета
+ * или по таймеру.
+ *
+ * Буфер ограничен числом различных пользователей: когда он полон, updateUser ждёт места
+ * до offerTimeout и затем выбрасывает RejectedExecutionException. Обновление несуществующего
+ * пользователя не даёт ошибки вызывающему - оно учитывается в статистике при записи.
+ * patchUser и upsert пишут сразу, но сначала сбрасывают отложенные обновления, которые иначе затёрли бы их.
+ * При закрытии (и в {@link HibernateUtil#shutdown()}) буфер сбрасывается в БД.
+ */
+public class WriteBehindUserService extends UserService implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(200);
+    public static final Duration DEFAULT_OFFER_TIMEOUT = Duration.ofSeconds(5);
+
+    private static final Logger logger = LogManager.getLogger(WriteBehindUserService.class);
+
+    private final UserDao userDao;
+    private final int capacity;
+    private final int batchSize;
+    private final Duration offerTimeout;
+
+    private final Map<Long, UserUpdate> pending = new ConcurrentHashMap<>();
+    // Разрешение - место для ещё одного пользователя в буфере
+    private final Semaphore slots;
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // Пакеты пишутся строго по очереди, иначе старое значение могло бы перезаписать новое
+    private final Object flushLock = new Object();
+    private final Runnable shutdownHook = this::close;
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder flushedBatches = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public WriteBehindUserService(UserDao userDao) {
+        this(userDao, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL, DEFAULT_OFFER_TIMEOUT);
+    }
+
+    public WriteBehindUserService(UserDao userDao, int capacity, int batchSize,
+                                  Duration flushInterval, Duration offerTimeout) {
+        super(userDao);
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        if (flushInterval == null || flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        if (offerTimeout == null || offerTimeout.isNegative()) {
+            throw new IllegalArgumentException("Offer timeout cannot be negative");
+        }
+        this.userDao = userDao;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.offerTimeout = offerTimeout;
+        this.slots = new Semaphore(capacity);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = Math.max(1, flushInterval.toMillis());
+        flusher.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        HibernateUtil.addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Возвращает состояние из буфера, а не из БД: строка ещё не записана, существование
+     * пользователя не проверялось, а createdAt неизвестен и равен null.
+     */
+    @Override
+    public User updateUser(Long id, String name, String email, Integer age) {
+        if (id == null || id <= 0) {
+            throw new IllegalArgumentException("User ID must be positive");
+        }
+        UserValidator.validate(name, email, age);
+        if (closed.get()) {
+            throw new RejectedExecutionException("Write-behind buffer is closed");
+        }
+        enqueue(new UserUpdate(id, name, email, age));
+
+        User buffered = new User(name, email, age);
+        buffered.setId(id);
+        buffered.setCreatedAt(null);
+        return buffered;
+    }
+
+    // Отложенное обновление ещё в буфере - накладываем его, чтобы вызывающий видел свою запись
+    @Override
+    public Optional<User> getUserById(Long id) {
+        Optional<User> user = super.getUserById(id);
+        UserUpdate update = pending.get(id);
+        if (update != null) {
+            user.ifPresent(found -> {
+                found.setName(update.name());
+                found.setEmail(update.email());
+                found.setAge(update.age());
+            });
+        }
+        return user;
+    }
+
+    // Отложенное обновление того же пользователя пишется раньше patch, иначе оно затёрло бы patch при сбросе буфера
+    @Override
+    public PatchResult patchUser(UserPatch patch) {
+        synchronized (flushLock) {
+            if (patch != null && patch.id() != null) {
+                UserUpdate update = pending.remove(patch.id());
+                if (update != null) {
+                    slots.release();
+                    write(List.of(update));
+                }
+            }
+            return super.patchUser(patch);
+        }
+    }
+
+    // Какие id затронет upsert, известно только после записи, поэтому буфер сбрасывается целиком
+    @Override
+    public UpsertResult upsertUserByEmail(String name, String email, Integer age) {
+        synchronized (flushLock) {
+            flush();
+            return super.upsertUserByEmail(name, email, age);
+        }
+    }
+
+    @Override
+    public List<UpsertResult> upsertUsersByEmail(Collection<User> users) {
+        synchronized (flushLock) {
+            flush();
+            return super.upsertUsersByEmail(users);
+        }
+    }
+
+    // Отложенное обновление удаляемого пользователя писать уже незачем
+    @Override
+    public void deleteUser(Long id) {
+        if (id != null && pending.remove(id) != null) {
+            slots.release();
+        }
+        super.deleteUser(id);
+    }
+
+    /**
+     * Синхронно записывает всё, что накопилось в буфере к моменту вызова.
+     * Возвращает число обновлённых строк.
+     */
+    public int flush() {
+        synchronized (flushLock) {
+            int written = 0;
+            List<UserUpdate> batch;
+            do {
+                batch = drain();
+                if (!batch.isEmpty()) {
+                    written += write(batch);
+                }
+            } while (batch.size() == batchSize);
+            return written;
+        }
+    }
+
+    public WriteBehindStats getStats() {
+        return new WriteBehindStats(pending.size(), capacity, received.sum(), coalesced.sum(), rejected.sum(),
+                flushedBatches.sum(), rowsWritten.sum(), notFound.sum(), failed.sum());
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        HibernateUtil.removeShutdownHook(shutdownHook);
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Write-behind flusher did not finish in time");
+                flusher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            flusher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        logger.info("Write-behind buffer closed: {}", getStats());
+    }
+
+    private void enqueue(UserUpdate update) {
+        received.increment();
+        while (true) {
+            if (pending.replace(update.id(), update) != null) {
+                coalesced.increment();
+                return;
+            }
+            acquireSlot();
+            if (pending.putIfAbsent(update.id(), update) == null) {
+                break;
+            }
+            // Другой поток успел добавить этого пользователя - сливаемся с его обновлением
+            slots.release();
+        }
+        if (pending.size() >= batchSize) {
+            requestFlush();
+        }
+    }
+
+    private void acquireSlot() {
+        boolean acquired;
+        try {
+            acquired = slots.tryAcquire(offerTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            requestFlush();
+            throw new RejectedExecutionException("Write-behind buffer is full: " + capacity + " users pending");
+        }
+    }
+
+    private void requestFlush() {
+        if (!flushRequested.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flushQuietly();
+            });
+        } catch (RejectedExecutionException e) {
+            // Исполнитель остановлен - остаток запишет close()
+            flushRequested.set(false);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Write-behind flush failed", e);
+        }
+    }
+
+    private List<UserUpdate> drain() {
+        List<UserUpdate> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        Iterator<Long> ids = pending.keySet().iterator();
+        while (batch.size() < batchSize && ids.hasNext()) {
+            UserUpdate update = pending.remove(ids.next());
+            if (update != null) {
+                slots.release();
+                batch.add(update);
+            }
+        }
+        return batch;
+    }
+
+    // Ошибка одной строки (например, занятый email) откатывает весь пакет - тогда пишем построчно
+    private int write(List<UserUpdate> batch) {
+        flushedBatches.increment();
+        try {
+            int updated = userDao.updateAll(batch);
+            rowsWritten.add(updated);
+            notFound.add(batch.size() - updated);
+            return updated;
+        } catch (RuntimeException e) {
+            logger.warn("Batch of {} buffered updates failed, retrying one by one", batch.size(), e);
+        }
+
+        int updated = 0;
+        for (UserUpdate update : batch) {
+            try {
+                if (userDao.updateById(update.id(), update.name(), update.email(), update.age()) > 0) {
+                    updated++;
+                } else {
+                    notFound.increment();
+                }
+            } catch (RuntimeException e) {
+                failed.increment();
+                logger.error("Dropping buffered update for user with id: {}", update.id(), e);
+            }
+        }
+        rowsWritten.add(updated);
+        return updated;
+    }
+}
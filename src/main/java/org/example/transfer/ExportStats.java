@@ -0,0 +1,26 @@
+package org.example.transfer;
+
+import java.time.Duration;
+
+/**
+ * Счётчики экспорта; bytesWritten - размер файла на диске, то есть после сжатия.
+ * В промежуточных уведомлениях о прогрессе он равен -1: до закрытия файла размер неизвестен.
+ */
+public record ExportStats(long rowsWritten, long bytesWritten, Duration elapsed) {
+
+    public double rowsPerSecond() {
+        double seconds = elapsed.toNanos() / 1_000_000_000.0;
+        return seconds == 0 ? 0.0 : rowsWritten / seconds;
+    }
+
+    public double megabytesPerSecond() {
+        double seconds = elapsed.toNanos() / 1_000_000_000.0;
+        return seconds == 0 || bytesWritten < 0 ? 0.0 : bytesWritten / 1_048_576.0 / seconds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ExportStats{rows=%d, bytes=%d, elapsed=%dms, rate=%.0f rows/s, %.1f MB/s}",
+                rowsWritten, bytesWritten, elapsed.toMillis(), rowsPerSecond(), megabytesPerSecond());
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.transfer;
+
+import org.example.entity.User;
+
+// Разобранная строка входного файла; error заполнен, если строку не удалось разобрать
+record ImportRow(long lineNumber, String raw, String name, String email, Integer age, String error) {
+
+    static ImportRow parsed(long lineNumber, String raw, String name, String email, Integer age) {
+        return new ImportRow(lineNumber, raw, name, email, age, null);
+    }
+
+    static ImportRow malformed(long lineNumber, String raw, String error) {
+        return new ImportRow(lineNumber, raw, null, null, null, error);
+    }
+
+    User toUser() {
+        return new User(name, email, age);
+    }
+}
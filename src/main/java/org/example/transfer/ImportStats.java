@@ -0,0 +1,20 @@
+package org.example.transfer;
+
+import java.time.Duration;
+
+/**
+ * Счётчики импорта: промежуточные - в уведомлениях о прогрессе, итоговые - в результате.
+ */
+public record ImportStats(long rowsRead, long imported, long rejected, Duration elapsed) {
+
+    public double rowsPerSecond() {
+        double seconds = elapsed.toNanos() / 1_000_000_000.0;
+        return seconds == 0 ? 0.0 : rowsRead / seconds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImportStats{read=%d, imported=%d, rejected=%d, elapsed=%dms, rate=%.0f rows/s}",
+                rowsRead, imported, rejected, elapsed.toMillis(), rowsPerSecond());
+    }
+}
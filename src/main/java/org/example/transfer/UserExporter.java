@@ -0,0 +1,157 @@
+package org.example.transfer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.dao.UserDao;
+import org.example.entity.User;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Потоковый экспорт таблицы users в CSV/NDJSON. Строки читаются серверным курсором
+ * через {@link UserDao#streamAll(int)} и сразу пишутся в файл, поэтому расход памяти
+ * не зависит от размера таблицы. Формат совместим с {@link UserImporter}.
+ */
+public class UserExporter {
+
+    public static final int DEFAULT_FETCH_SIZE = 1_000;
+    public static final int PROGRESS_INTERVAL_ROWS = 100_000;
+
+    private static final Logger logger = LogManager.getLogger(UserExporter.class);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String CSV_HEADER = "id,name,email,age,created_at";
+
+    private final UserDao userDao;
+    private final int fetchSize;
+
+    public UserExporter(UserDao userDao) {
+        this(userDao, DEFAULT_FETCH_SIZE);
+    }
+
+    public UserExporter(UserDao userDao, int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive");
+        }
+        this.userDao = userDao;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Экспортирует в файл; формат определяется по расширению, при .gz вывод сжимается.
+     * Данные пишутся во временный файл рядом с целевым и переносятся на его место только
+     * после успешного завершения, так что читатели не увидят недописанный экспорт.
+     */
+    public ExportStats exportFile(Path target, Consumer<ExportStats> progress) {
+        String fileName = target.getFileName().toString();
+        UserFileFormat format = UserFileFormat.fromFileName(fileName);
+        boolean gzip = fileName.endsWith(".gz");
+        Path partial = target.resolveSibling(fileName + ".part");
+
+        long start = System.nanoTime();
+        long rows;
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream output = Channels.newOutputStream(channel);
+            if (gzip) {
+                output = new GZIPOutputStream(output, BUFFER_SIZE);
+            }
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                rows = exportTo(writer, format, progress);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(partial);
+            logger.error("Error exporting users to {}", target, e);
+            throw new UncheckedIOException("Failed to export users to " + target, e);
+        } catch (RuntimeException e) {
+            deleteQuietly(partial);
+            throw e;
+        }
+
+        ExportStats stats;
+        try {
+            stats = new ExportStats(rows, Files.size(target), Duration.ofNanos(System.nanoTime() - start));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read size of " + target, e);
+        }
+        logger.info("Exported users to {}: {}", target, stats);
+        return stats;
+    }
+
+    // Пишет всех пользователей в writer и возвращает число строк; writer не закрывается
+    public long exportTo(Writer writer, UserFileFormat format, Consumer<ExportStats> progress) throws IOException {
+        long start = System.nanoTime();
+        long rows = 0;
+        StringBuilder line = new StringBuilder(256);
+
+        if (format == UserFileFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        try (Stream<User> users = userDao.streamAll(fetchSize)) {
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                line.setLength(0);
+                appendRow(line, iterator.next(), format);
+                writer.append(line);
+                rows++;
+                if (progress != null && rows % PROGRESS_INTERVAL_ROWS == 0) {
+                    progress.accept(new ExportStats(rows, -1, Duration.ofNanos(System.nanoTime() - start)));
+                }
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private static void appendRow(StringBuilder out, User user, UserFileFormat format) {
+        switch (format) {
+            case CSV -> {
+                out.append(user.getId()).append(',');
+                Csv.appendField(out, user.getName());
+                out.append(',');
+                Csv.appendField(out, user.getEmail());
+                out.append(',');
+                if (user.getAge() != null) {
+                    out.append(user.getAge());
+                }
+                out.append(',').append(user.getCreatedAt());
+            }
+            case NDJSON -> {
+                out.append("{\"id\":").append(user.getId()).append(",\"name\":");
+                Json.appendString(out, user.getName());
+                out.append(",\"email\":");
+                Json.appendString(out, user.getEmail());
+                out.append(",\"age\":").append(user.getAge());
+                out.append(",\"created_at\":\"").append(user.getCreatedAt()).append("\"}");
+            }
+        }
+        out.append('\n');
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Failed to delete partial export {}", path, e);
+        }
+    }
+}
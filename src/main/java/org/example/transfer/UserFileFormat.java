@@ -0,0 +1,25 @@
+package org.example.transfer;
+
+import java.util.Locale;
+
+/**
+ * Форматы файлов с пользователями: CSV с заголовком (name,email,age) и NDJSON - один JSON-объект на строку.
+ */
+public enum UserFileFormat {
+    CSV,
+    NDJSON;
+
+    public static UserFileFormat fromFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json")) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Unsupported file format: " + fileName);
+    }
+}
@@ -0,0 +1,302 @@
+package org.example.transfer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.dao.BatchSaveResult;
+import org.example.dao.UserDao;
+import org.example.entity.User;
+import org.example.service.UserValidator;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.postgresql.PGConnection;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Потоковый импорт пользователей из CSV/NDJSON. Файл читается построчно, строки проверяются
+ * по правилам {@link UserValidator} и пишутся порциями по chunkSize в отдельных транзакциях:
+ * в PostgreSQL через COPY FROM STDIN, в остальных СУБД - батчевыми INSERT через {@link UserDao#saveAll}.
+ * Порция, которую БД отвергла целиком (например, дубликат email), повторяется построчно,
+ * и в файл отказов попадают только действительно плохие строки.
+ */
+public class UserImporter {
+
+    public static final int DEFAULT_CHUNK_SIZE = 10_000;
+
+    private static final Logger logger = LogManager.getLogger(UserImporter.class);
+
+    private static final String COPY_SQL =
+            "COPY users (id, name, email, age, created_at) FROM STDIN WITH (FORMAT csv)";
+
+    private final SessionFactory sessionFactory;
+    private final UserDao userDao;
+    private final int chunkSize;
+    private final boolean copySupported;
+    private final Consumer<List<User>> copyListener;
+
+    public UserImporter(SessionFactory sessionFactory, UserDao userDao) {
+        this(sessionFactory, userDao, DEFAULT_CHUNK_SIZE);
+    }
+
+    public UserImporter(SessionFactory sessionFactory, UserDao userDao, int chunkSize) {
+        this(sessionFactory, userDao, chunkSize, users -> { });
+    }
+
+    /**
+     * copyListener получает пользователей каждой порции, записанной COPY в обход userDao, после её коммита:
+     * декораторы userDao (фильтр email, кэш) иначе не узнают об этих строках.
+     */
+    public UserImporter(SessionFactory sessionFactory, UserDao userDao, int chunkSize,
+                        Consumer<List<User>> copyListener) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.sessionFactory = sessionFactory;
+        this.userDao = userDao;
+        this.chunkSize = chunkSize;
+        this.copyListener = copyListener;
+        this.copySupported = sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect() instanceof PostgreSQLDialect;
+    }
+
+    /**
+     * Импортирует файл; формат определяется по расширению, .gz распаковывается на лету.
+     * rejectFile может быть null - тогда отказы только считаются и пишутся в лог.
+     */
+    public ImportStats importFile(Path source, Path rejectFile, Consumer<ImportStats> progress) {
+        UserFileFormat format = UserFileFormat.fromFileName(source.getFileName().toString());
+        try (InputStream input = open(source);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+             Writer rejects = rejectFile != null ? Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8) : null) {
+            return importFrom(reader, format, rejects, progress);
+        } catch (IOException e) {
+            logger.error("Error importing users from {}", source, e);
+            throw new UncheckedIOException("Failed to import users from " + source, e);
+        }
+    }
+
+    public ImportStats importFrom(BufferedReader reader, UserFileFormat format, Writer rejects,
+                                  Consumer<ImportStats> progress) throws IOException {
+        Run run = new Run(rejects, progress);
+        UserRowReader rows = UserRowReader.open(format, reader);
+        logger.info("Starting {} import, chunk size {}, using {}", format, chunkSize,
+                copySupported ? "COPY" : "batched inserts");
+
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        ImportRow row;
+        while ((row = rows.next()) != null) {
+            run.rowsRead++;
+            if (row.error() != null) {
+                run.reject(row, row.error());
+                continue;
+            }
+            try {
+                UserValidator.validate(row.name(), row.email(), row.age());
+            } catch (IllegalArgumentException e) {
+                run.reject(row, e.getMessage());
+                continue;
+            }
+
+            chunk.add(row);
+            if (chunk.size() == chunkSize) {
+                writeChunk(chunk, run);
+                chunk.clear();
+                run.reportProgress();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, run);
+            run.reportProgress();
+        }
+        if (rejects != null) {
+            rejects.flush();
+        }
+
+        ImportStats stats = run.stats();
+        logger.info("Import finished: {}", stats);
+        return stats;
+    }
+
+    private void writeChunk(List<ImportRow> chunk, Run run) {
+        Map<User, ImportRow> rowsByUser = new IdentityHashMap<>(chunk.size() * 2);
+        List<User> users = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            User user = row.toUser();
+            users.add(user);
+            rowsByUser.put(user, row);
+        }
+
+        if (copySupported) {
+            try {
+                copyChunk(users);
+                run.imported += users.size();
+            } catch (RuntimeException e) {
+                logger.warn("COPY of {} rows failed, retrying row by row: {}", users.size(), e.getMessage());
+                users.forEach(user -> user.setId(null));
+                saveRowByRow(users, rowsByUser, run);
+            }
+            return;
+        }
+
+        BatchSaveResult result = userDao.saveAll(users);
+        run.imported += result.savedCount();
+        for (BatchSaveResult.ChunkFailure failure : result.failures()) {
+            logger.warn("Batch of {} rows failed, retrying row by row: {}",
+                    failure.users().size(), failure.cause().getMessage());
+            saveRowByRow(failure.users(), rowsByUser, run);
+        }
+    }
+
+    // Идентификаторы берутся из генератора сущности, чтобы не пересекаться с блоками, выданными Hibernate
+    private void copyChunk(List<User> users) {
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                BeforeExecutionGenerator generator = (BeforeExecutionGenerator) sessionFactory
+                        .unwrap(SessionFactoryImplementor.class)
+                        .getMappingMetamodel()
+                        .getEntityDescriptor(User.class)
+                        .getGenerator();
+                SharedSessionContractImplementor sessionImplementor = session.unwrap(SharedSessionContractImplementor.class);
+
+                StringBuilder data = new StringBuilder(users.size() * 64);
+                for (User user : users) {
+                    user.setId((Long) generator.generate(sessionImplementor, user, null, EventType.INSERT));
+                    appendCopyRow(data, user);
+                }
+
+                session.doWork(connection -> {
+                    try {
+                        connection.unwrap(PGConnection.class).getCopyAPI()
+                                .copyIn(COPY_SQL, new StringReader(data.toString()));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                transaction.commit();
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+        // COPY идёт мимо Hibernate: закэшированные "не найдено" по email могли устареть
+        sessionFactory.getCache().evictQueryRegions();
+        copyListener.accept(users);
+    }
+
+    private void saveRowByRow(List<User> users, Map<User, ImportRow> rowsByUser, Run run) {
+        for (User user : users) {
+            try {
+                userDao.save(user);
+                run.imported++;
+            } catch (RuntimeException e) {
+                user.setId(null);
+                run.reject(rowsByUser.get(user), rootMessage(e));
+            }
+        }
+    }
+
+    private static void appendCopyRow(StringBuilder out, User user) {
+        out.append(user.getId()).append(',');
+        Csv.appendQuoted(out, user.getName());
+        out.append(',');
+        Csv.appendQuoted(out, user.getEmail());
+        out.append(',');
+        if (user.getAge() != null) {
+            out.append(user.getAge());
+        }
+        out.append(',').append(user.getCreatedAt()).append('\n');
+    }
+
+    private static InputStream open(Path source) throws IOException {
+        InputStream input = Files.newInputStream(source);
+        if (source.getFileName().toString().endsWith(".gz")) {
+            return new GZIPInputStream(input, 1 << 16);
+        }
+        return input;
+    }
+
+    // Первая строка сообщения исходной ошибки: драйверы дописывают в сообщение SQL целиком
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        String message = root.getMessage();
+        if (message == null) {
+            return root.getClass().getSimpleName();
+        }
+        return message.lines().findFirst().orElse(message).trim();
+    }
+
+    // Состояние одного запуска импорта
+    private static final class Run {
+        private final Writer rejects;
+        private final Consumer<ImportStats> progress;
+        private final long startNanos = System.nanoTime();
+        private long rowsRead;
+        private long imported;
+        private long rejected;
+
+        Run(Writer rejects, Consumer<ImportStats> progress) {
+            this.rejects = rejects;
+            this.progress = progress;
+        }
+
+        // Файл отказов - CSV: номер строки, причина, исходная строка
+        void reject(ImportRow row, String reason) {
+            rejected++;
+            logger.debug("Rejected line {}: {}", row.lineNumber(), reason);
+            if (rejects == null) {
+                return;
+            }
+            StringBuilder line = new StringBuilder();
+            line.append(row.lineNumber()).append(',');
+            Csv.appendField(line, reason);
+            line.append(',');
+            Csv.appendField(line, row.raw());
+            line.append('\n');
+            try {
+                rejects.write(line.toString());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write reject file", e);
+            }
+        }
+
+        void reportProgress() {
+            if (progress != null) {
+                progress.accept(stats());
+            }
+        }
+
+        ImportStats stats() {
+            return new ImportStats(rowsRead, imported, rejected, Duration.ofNanos(System.nanoTime() - startNanos));
+        }
+    }
+}
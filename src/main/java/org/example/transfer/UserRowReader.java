@@ -0,0 +1,141 @@
+package org.example.transfer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Построчное чтение файла с пользователями. В памяти держится только текущая строка.
+ */
+abstract class UserRowReader {
+
+    protected final BufferedReader reader;
+    protected long lineNumber;
+
+    UserRowReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    static UserRowReader open(UserFileFormat format, BufferedReader reader) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvReader(reader);
+            case NDJSON -> new NdjsonReader(reader);
+        };
+    }
+
+    // Следующая строка с данными или null в конце файла; пустые строки пропускаются
+    ImportRow next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+
+        try {
+            return parse(line);
+        } catch (IllegalArgumentException e) {
+            return ImportRow.malformed(lineNumber, line, e.getMessage());
+        }
+    }
+
+    protected abstract ImportRow parse(String line);
+
+    static Integer parseAge(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid age: " + value);
+        }
+    }
+
+    private static final class CsvReader extends UserRowReader {
+        private final int nameColumn;
+        private final int emailColumn;
+        private final int ageColumn;
+
+        CsvReader(BufferedReader reader) throws IOException {
+            super(reader);
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IllegalArgumentException("CSV file is empty");
+            }
+            lineNumber = 1;
+            List<String> columns = Csv.parseLine(stripBom(header)).stream()
+                    .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                    .toList();
+            nameColumn = columns.indexOf("name");
+            emailColumn = columns.indexOf("email");
+            ageColumn = columns.indexOf("age");
+            if (nameColumn < 0 || emailColumn < 0) {
+                throw new IllegalArgumentException("CSV header must contain name and email columns: " + header);
+            }
+        }
+
+        @Override
+        protected ImportRow parse(String line) {
+            List<String> fields = Csv.parseLine(line);
+            if (fields.size() <= Math.max(nameColumn, Math.max(emailColumn, ageColumn))) {
+                throw new IllegalArgumentException("Expected at least "
+                        + (Math.max(nameColumn, Math.max(emailColumn, ageColumn)) + 1) + " fields, got " + fields.size());
+            }
+            return ImportRow.parsed(lineNumber, line,
+                    fields.get(nameColumn),
+                    fields.get(emailColumn),
+                    ageColumn >= 0 ? parseAge(fields.get(ageColumn)) : null);
+        }
+
+        private static String stripBom(String header) {
+            return !header.isEmpty() && header.charAt(0) == '\uFEFF' ? header.substring(1) : header;
+        }
+    }
+
+    private static final class NdjsonReader extends UserRowReader {
+
+        NdjsonReader(BufferedReader reader) {
+            super(reader);
+        }
+
+        @Override
+        protected ImportRow parse(String line) {
+            Map<String, Object> object = Json.parseObject(line);
+            return ImportRow.parsed(lineNumber, line,
+                    stringField(object, "name"),
+                    stringField(object, "email"),
+                    ageField(object.get("age")));
+        }
+
+        private static String stringField(Map<String, Object> object, String key) {
+            Object value = object.get(key);
+            if (value != null && !(value instanceof String)) {
+                throw new IllegalArgumentException("Field " + key + " must be a string");
+            }
+            return (String) value;
+        }
+
+        private static Integer ageField(Object value) {
+            if (value == null) {
+                return null;
+            }
+            if (value instanceof BigDecimal number) {
+                try {
+                    return number.intValueExact();
+                } catch (ArithmeticException e) {
+                    throw new IllegalArgumentException("Invalid age: " + number);
+                }
+            }
+            if (value instanceof String text) {
+                return parseAge(text);
+            }
+            throw new IllegalArgumentException("Invalid age: " + value);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.util;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Счётчики одного региона кэша второго уровня. Заполняются только при hibernate.generate_statistics=true.
+ */
+public record CacheRegionStats(String region, long hits, long misses, long puts, long elementsInMemory) {
+
+    public double hitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    public static List<CacheRegionStats> of(SessionFactory sessionFactory) {
+        Statistics statistics = sessionFactory.getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return List.of();
+        }
+
+        List<CacheRegionStats> result = new ArrayList<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics != null) {
+                result.add(new CacheRegionStats(
+                        region,
+                        regionStatistics.getHitCount(),
+                        regionStatistics.getMissCount(),
+                        regionStatistics.getPutCount(),
+                        regionStatistics.getElementCountInMemory()
+                ));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheRegionStats{region='%s', hits=%d, misses=%d, puts=%d, size=%d, hitRatio=%.2f}",
+                region, hits, misses, puts, elementsInMemory, hitRatio());
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.util;
+
+/**
+ * Снимок состояния пула соединений на момент вызова.
+ */
+public record ConnectionPoolStats(
+        int activeConnections,
+        int idleConnections,
+        int totalConnections,
+        int maxPoolSize,
+        int threadsAwaitingConnection,
+        long acquireCount,
+        long acquireTimeouts,
+        double averageAcquireMillis,
+        double maxAcquireMillis) {
+
+    @Override
+    public String toString() {
+        return String.format(
+                "ConnectionPoolStats{active=%d, idle=%d, total=%d, max=%d, waiting=%d, acquired=%d, "
+                        + "timeouts=%d, avgAcquireMs=%.3f, maxAcquireMs=%.3f}",
+                activeConnections, idleConnections, totalConnections, maxPoolSize, threadsAwaitingConnection,
+                acquireCount, acquireTimeouts, averageAcquireMillis, maxAcquireMillis
+        );
+    }
+}
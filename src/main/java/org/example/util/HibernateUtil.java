@@ -2,48 +2,419 @@ package org.example.util;
 
 import org.example.entity.User;
 import org.hibernate.SessionFactory;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.model.relational.Namespace;
+import org.hibernate.boot.model.relational.Sequence;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.Index;
+import org.hibernate.mapping.Selectable;
+import org.hibernate.mapping.Table;
+import org.hibernate.mapping.UniqueKey;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.jdbc.spi.JdbcServices;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-public class HibernateUtil {
-
-    private static final Logger logger = LogManager.getLogger(HibernateUtil.class);
-    private static SessionFactory sessionFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-    static {
-        try {
-            Configuration configuration = new Configuration();
-            configuration.configure("hibernate.cfg.xml");
+/**
+ * Ленивая фабрика сессий приложения. SessionFactory строится при первом обращении
+ * или заранее в фоне через {@link #startInBackground()}, а не при загрузке класса.
+ *
+ * Работа со схемой задаётся свойством user-service.schema.mode (системное свойство
+ * или hibernate.cfg.xml): update - как hbm2ddl.auto=update, validate, none - без обращения
+ * к метаданным БД, cached - update только при изменении маппинга; отпечаток схемы хранится в самой БД
+ * (таблица {@value #SCHEMA_FINGERPRINT_TABLE}), поэтому пересозданная база проходит update заново.
+ * Вместе с update на PostgreSQL создаётся триграммный индекс для поиска по имени ({@link #createNameSearchIndex}).
+ */
+public class HibernateUtil {
 
-            configuration.addAnnotatedClass(User.class);
+    public static final String SCHEMA_MODE = "user-service.schema.mode";
+    public static final String SCHEMA_FINGERPRINT_TABLE = "user_service_schema_fingerprint";
+    // GIN-индекс pg_trgm по users.name, которым пользуется UserDao.searchByName
+    public static final String NAME_TRIGRAM_INDEX = "idx_users_name_trgm";
 
-            StandardServiceRegistry serviceRegistry = new StandardServiceRegistryBuilder()
-                    .applySettings(configuration.getProperties())
-                    .build();
+    private static final Logger logger = LogManager.getLogger(HibernateUtil.class);
+    private static final String CONNECTION_PROVIDER = "hibernate.connection.provider_class";
+    private static final String HBM2DDL_AUTO = "hibernate.hbm2ddl.auto";
 
-            sessionFactory = configuration.buildSessionFactory(serviceRegistry);
-            logger.info("Hibernate SessionFactory created successfully");
+    private static CompletableFuture<SessionFactory> startup;
+    // После shutdown фабрика не строится заново: поздний вызов не должен поднять вторую фабрику и пул
+    private static boolean closed;
+    private static volatile StartupReport startupReport;
+    // Действия, выполняемые в shutdown до закрытия фабрики (например, сброс отложенных записей)
+    private static final List<Runnable> shutdownHooks = new CopyOnWriteArrayList<>();
 
-        } catch (Throwable ex) {
-            logger.error("Initial SessionFactory creation failed.", ex);
-            throw new ExceptionInInitializerError(ex);
-        }
+    // Запускает построение фабрики в фоновом потоке, чтобы приложение отвечало сразу
+    public static void startInBackground() {
+        startup(true);
     }
 
+    /**
+     * Возвращает фабрику, при необходимости построив её в текущем потоке
+     * или дождавшись фонового запуска. После {@link #shutdown()} выбрасывает IllegalStateException.
+     */
     public static SessionFactory getSessionFactory() {
-        if (sessionFactory == null || sessionFactory.isClosed()) {
+        SessionFactory sessionFactory;
+        try {
+            sessionFactory = startup(false).join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("SessionFactory is not available", e.getCause());
+        }
+        if (sessionFactory.isClosed()) {
             throw new IllegalStateException("SessionFactory is not available");
         }
         return sessionFactory;
     }
 
+    // Пусто, пока фабрика не построена
+    public static Optional<StartupReport> getStartupReport() {
+        return Optional.ofNullable(startupReport);
+    }
+
+    // Пусто, если фабрика настроена на другой ConnectionProvider
+    public static Optional<ConnectionPoolStats> getConnectionPoolStats() {
+        return PooledConnectionProvider.statsOf(getSessionFactory());
+    }
+
+    public static List<CacheRegionStats> getCacheStats() {
+        return CacheRegionStats.of(getSessionFactory());
+    }
+
+    public static void addShutdownHook(Runnable hook) {
+        shutdownHooks.add(Objects.requireNonNull(hook));
+    }
+
+    public static void removeShutdownHook(Runnable hook) {
+        shutdownHooks.remove(hook);
+    }
+
     public static void shutdown() {
-        logger.info("Closing Hibernate SessionFactory");
+        CompletableFuture<SessionFactory> current;
+        synchronized (HibernateUtil.class) {
+            // Новые построения запрещаются сразу: хук не должен поднимать фабрику во время остановки,
+            // а уже построенная (или строящаяся) остаётся доступной хукам до закрытия
+            current = startup;
+            closed = true;
+        }
+        if (current == null) {
+            if (!shutdownHooks.isEmpty()) {
+                logger.info("SessionFactory was never started, skipping {} shutdown hook(s)", shutdownHooks.size());
+            }
+            return;
+        }
+
+        SessionFactory sessionFactory = current.exceptionally(e -> null).join();
+        if (sessionFactory == null) {
+            logger.warn("SessionFactory failed to start, skipping {} shutdown hook(s)", shutdownHooks.size());
+        } else {
+            // Хуки могут писать в БД, поэтому выполняются, пока фабрика ещё открыта
+            for (Runnable hook : shutdownHooks) {
+                try {
+                    hook.run();
+                } catch (RuntimeException e) {
+                    logger.error("Shutdown hook failed", e);
+                }
+            }
+        }
+        synchronized (HibernateUtil.class) {
+            startup = null;
+        }
+
         if (sessionFactory != null && !sessionFactory.isClosed()) {
+            logger.info("Closing Hibernate SessionFactory");
             sessionFactory.close();
         }
     }
-}
\ No newline at end of file
+
+    private static CompletableFuture<SessionFactory> startup(boolean background) {
+        CompletableFuture<SessionFactory> future;
+        synchronized (HibernateUtil.class) {
+            if (startup != null) {
+                return startup;
+            }
+            if (closed) {
+                throw new IllegalStateException("SessionFactory has been shut down");
+            }
+            future = new CompletableFuture<>();
+            startup = future;
+        }
+
+        Runnable build = () -> {
+            try {
+                future.complete(buildSessionFactory());
+            } catch (Throwable ex) {
+                logger.error("Initial SessionFactory creation failed.", ex);
+                // Следующее обращение попробует построить фабрику заново
+                synchronized (HibernateUtil.class) {
+                    if (startup == future) {
+                        startup = null;
+                    }
+                }
+                future.completeExceptionally(ex);
+            }
+        };
+        if (background) {
+            Thread thread = new Thread(build, "hibernate-bootstrap");
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            build.run();
+        }
+        return future;
+    }
+
+    private static SessionFactory buildSessionFactory() {
+        Map<String, Duration> phases = new LinkedHashMap<>();
+        long start = System.nanoTime();
+        long phaseStart = start;
+
+        Configuration configuration = new Configuration();
+        configuration.configure("hibernate.cfg.xml");
+        if (configuration.getProperty(CONNECTION_PROVIDER) == null) {
+            configuration.setProperty(CONNECTION_PROVIDER, PooledConnectionProvider.class.getName());
+        }
+        String schemaMode = System.getProperty(SCHEMA_MODE, configuration.getProperty(SCHEMA_MODE) != null
+                ? configuration.getProperty(SCHEMA_MODE) : "update").trim();
+        // Схемой управляем сами, чтобы замерить этот этап отдельно
+        configuration.setProperty(HBM2DDL_AUTO, "none");
+        configuration.addAnnotatedClass(User.class);
+        phaseStart = phase(phases, "configure", phaseStart);
+
+        StandardServiceRegistry serviceRegistry = new StandardServiceRegistryBuilder()
+                .applySettings(configuration.getProperties())
+                .build();
+        phaseStart = phase(phases, "serviceRegistry", phaseStart);
+
+        try {
+            Metadata metadata = new MetadataSources(serviceRegistry)
+                    .addAnnotatedClass(User.class)
+                    .buildMetadata();
+            phaseStart = phase(phases, "metadata", phaseStart);
+
+            String schemaAction = applySchemaMode(schemaMode, metadata, serviceRegistry, configuration.getProperties());
+            phaseStart = phase(phases, "schema", phaseStart);
+
+            SessionFactory sessionFactory = metadata.buildSessionFactory();
+            phase(phases, "sessionFactory", phaseStart);
+
+            startupReport = new StartupReport(schemaAction, phases, Duration.ofNanos(System.nanoTime() - start));
+            logger.info("Hibernate SessionFactory created successfully: {}", startupReport);
+            return sessionFactory;
+
+        } catch (RuntimeException e) {
+            StandardServiceRegistryBuilder.destroy(serviceRegistry);
+            throw e;
+        }
+    }
+
+    private static String applySchemaMode(String mode, Metadata metadata, StandardServiceRegistry serviceRegistry,
+                                          Properties properties) {
+        switch (mode) {
+            case "none":
+                return "none";
+            case "validate":
+                runSchemaAction(mode, metadata, serviceRegistry);
+                return mode;
+            case "update":
+                runSchemaAction(mode, metadata, serviceRegistry);
+                createNameSearchIndex(serviceRegistry);
+                return mode;
+            case "cached":
+                ConnectionProvider connections = serviceRegistry.getService(ConnectionProvider.class);
+                String fingerprint = fingerprint(metadata, properties);
+                if (fingerprint.equals(readFingerprint(connections))) {
+                    return "cached";
+                }
+                runSchemaAction("update", metadata, serviceRegistry);
+                createNameSearchIndex(serviceRegistry);
+                writeFingerprint(connections, fingerprint);
+                return "update";
+            default:
+                throw new IllegalArgumentException("Unknown " + SCHEMA_MODE + ": " + mode
+                        + " (expected update, validate, none or cached)");
+        }
+    }
+
+    // То же, что делает hbm2ddl.auto при построении фабрики, но отдельным замеряемым шагом
+    private static void runSchemaAction(String action, Metadata metadata, StandardServiceRegistry serviceRegistry) {
+        Map<String, Object> settings = new HashMap<>(serviceRegistry.getService(ConfigurationService.class).getSettings());
+        settings.put(HBM2DDL_AUTO, action);
+        SchemaManagementToolCoordinator.process(metadata, serviceRegistry, settings, dropAction -> {
+        });
+    }
+
+    /**
+     * Создаёт расширение pg_trgm и индекс {@value #NAME_TRIGRAM_INDEX}, если их ещё нет; на других СУБД
+     * ничего не делает. Это часть настройки схемы, а не первого поиска: для фабрик, построенных в обход
+     * HibernateUtil (тесты, отдельные шарды и реплики), вызывается явно после создания таблиц.
+     * Если прав на расширение нет, пишет предупреждение, а поиск по имени обходится без индекса.
+     */
+    public static void createNameSearchIndex(SessionFactory sessionFactory) {
+        createNameSearchIndex(sessionFactory.unwrap(SessionFactoryImplementor.class).getServiceRegistry());
+    }
+
+    private static void createNameSearchIndex(ServiceRegistry serviceRegistry) {
+        if (!(serviceRegistry.getService(JdbcServices.class).getDialect() instanceof PostgreSQLDialect)) {
+            return;
+        }
+        ConnectionProvider connections = serviceRegistry.getService(ConnectionProvider.class);
+        try {
+            Connection connection = connections.getConnection();
+            boolean autoCommit = connection.getAutoCommit();
+            try (Statement statement = connection.createStatement()) {
+                connection.setAutoCommit(false);
+                statement.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+                statement.execute("CREATE INDEX IF NOT EXISTS " + NAME_TRIGRAM_INDEX
+                        + " ON users USING gin (name gin_trgm_ops)");
+                connection.commit();
+                logger.info("Trigram index {} is available", NAME_TRIGRAM_INDEX);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+                connections.closeConnection(connection);
+            }
+        } catch (SQLException e) {
+            logger.warn("Failed to create trigram index {}, name search will run without it", NAME_TRIGRAM_INDEX, e);
+        }
+    }
+
+    /**
+     * Отпечаток ожидаемой схемы: адрес БД и описание таблиц, колонок, ключей, индексов и
+     * последовательностей из маппинга. Считается без обращения к метаданным БД.
+     */
+    private static String fingerprint(Metadata metadata, Properties properties) {
+        StringBuilder description = new StringBuilder();
+        description.append(properties.getProperty("hibernate.connection.url")).append('|')
+                .append(properties.getProperty("hibernate.connection.username")).append('\n');
+        for (Namespace namespace : metadata.getDatabase().getNamespaces()) {
+            namespace.getTables().stream()
+                    .sorted(Comparator.comparing(Table::getName))
+                    .forEach(table -> describe(description, table, metadata));
+            List<Sequence> sequences = new ArrayList<>();
+            namespace.getSequences().forEach(sequences::add);
+            sequences.sort(Comparator.comparing(sequence -> sequence.getName().getSequenceName().getText()));
+            sequences.forEach(sequence -> describe(description, sequence));
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(description.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void describe(StringBuilder out, Table table, Metadata metadata) {
+        out.append("table ").append(table.getName()).append('\n');
+        for (Column column : table.getColumns()) {
+            out.append("  column ").append(column.getName()).append(' ').append(column.getSqlType(metadata))
+                    .append(column.isNullable() ? " null" : " not null")
+                    .append(column.isUnique() ? " unique" : "").append('\n');
+        }
+        for (UniqueKey uniqueKey : table.getUniqueKeys().values()) {
+            out.append("  unique ").append(uniqueKey.getName()).append(' ').append(uniqueKey.getColumns()).append('\n');
+        }
+        for (Index index : table.getIndexes().values()) {
+            out.append("  index ").append(index.getName());
+            for (Selectable selectable : index.getSelectables()) {
+                out.append(' ').append(selectable.getText());
+                String order = index.getSelectableOrderMap().get(selectable);
+                if (order != null) {
+                    out.append(' ').append(order);
+                }
+            }
+            out.append('\n');
+        }
+    }
+
+    private static void describe(StringBuilder out, Sequence sequence) {
+        out.append("sequence ").append(sequence.getName().getSequenceName().getText())
+                .append(' ').append(sequence.getInitialValue())
+                .append(' ').append(sequence.getIncrementSize()).append('\n');
+    }
+
+    // null, если таблицы с отпечатком нет: база новая или пересоздана
+    private static String readFingerprint(ConnectionProvider connections) {
+        try {
+            Connection connection = connections.getConnection();
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT fingerprint FROM " + SCHEMA_FINGERPRINT_TABLE)) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            } finally {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+                connections.closeConnection(connection);
+            }
+        } catch (SQLException e) {
+            logger.debug("Schema fingerprint is not available: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeFingerprint(ConnectionProvider connections, String fingerprint) {
+        try {
+            Connection connection = connections.getConnection();
+            boolean autoCommit = connection.getAutoCommit();
+            try (Statement statement = connection.createStatement()) {
+                connection.setAutoCommit(false);
+                statement.execute("CREATE TABLE IF NOT EXISTS " + SCHEMA_FINGERPRINT_TABLE
+                        + " (fingerprint VARCHAR(64) NOT NULL)");
+                statement.executeUpdate("DELETE FROM " + SCHEMA_FINGERPRINT_TABLE);
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO " + SCHEMA_FINGERPRINT_TABLE + " (fingerprint) VALUES (?)")) {
+                    insert.setString(1, fingerprint);
+                    insert.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+                connections.closeConnection(connection);
+            }
+        } catch (SQLException e) {
+            logger.warn("Failed to write schema fingerprint", e);
+        }
+    }
+
+    private static long phase(Map<String, Duration> phases, String name, long phaseStart) {
+        long now = System.nanoTime();
+        phases.put(name, Duration.ofNanos(now - phaseStart));
+        return now;
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.util;
+
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Выборочное DEBUG-логирование успешных вызовов на горячих путях: пишется примерно один
+ * из N вызовов (N задаётся системным свойством user-service.log.sample_rate, по умолчанию 100).
+ * При выключенном DEBUG проверка сводится к isDebugEnabled и ничего не аллоцирует.
+ */
+public final class LogSampling {
+
+    public static final String SAMPLE_RATE = "user-service.log.sample_rate";
+
+    private static final int RATE = Math.max(1, Integer.getInteger(SAMPLE_RATE, 100));
+
+    private LogSampling() {
+    }
+
+    public static boolean sampledDebug(Logger logger) {
+        return logger.isDebugEnabled() && (RATE == 1 || ThreadLocalRandom.current().nextInt(RATE) == 0);
+    }
+}
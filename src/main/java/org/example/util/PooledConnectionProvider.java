@@ -0,0 +1,183 @@
+package org.example.util;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.Stoppable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ConnectionProvider на основе HikariCP. Подключается через hibernate.connection.provider_class,
+ * настройки пула читаются из свойств hibernate.pool.*.
+ */
+public class PooledConnectionProvider implements ConnectionProvider, Configurable, Stoppable {
+
+    public static final String MIN_SIZE = "hibernate.pool.min_size";
+    public static final String MAX_SIZE = "hibernate.pool.max_size";
+    public static final String ACQUIRE_TIMEOUT_MS = "hibernate.pool.acquire_timeout_ms";
+    public static final String VALIDATION_TIMEOUT_MS = "hibernate.pool.validation_timeout_ms";
+    public static final String IDLE_TIMEOUT_MS = "hibernate.pool.idle_timeout_ms";
+    public static final String MAX_LIFETIME_MS = "hibernate.pool.max_lifetime_ms";
+    public static final String LEAK_DETECTION_MS = "hibernate.pool.leak_detection_ms";
+    public static final String STATEMENT_CACHE_SIZE = "hibernate.pool.statement_cache_size";
+
+    // ConnectionProvider наследует Serializable от Service; провайдер не сериализуется
+    private static final long serialVersionUID = 1L;
+    private static final Logger logger = LogManager.getLogger(PooledConnectionProvider.class);
+
+    private HikariDataSource dataSource;
+
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+
+    @Override
+    public void configure(Map<String, Object> settings) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("user-service-pool");
+
+        String url = stringSetting(settings, "hibernate.connection.url", null);
+        if (url == null) {
+            throw new IllegalStateException("hibernate.connection.url is not configured");
+        }
+        config.setJdbcUrl(url);
+        config.setUsername(stringSetting(settings, "hibernate.connection.username", null));
+        config.setPassword(stringSetting(settings, "hibernate.connection.password", null));
+        String driverClass = stringSetting(settings, "hibernate.connection.driver_class", null);
+        if (driverClass != null) {
+            config.setDriverClassName(driverClass);
+        }
+        // Транзакциями управляет Hibernate
+        config.setAutoCommit(false);
+
+        int maxSize = intSetting(settings, MAX_SIZE, 10);
+        config.setMaximumPoolSize(maxSize);
+        config.setMinimumIdle(Math.min(intSetting(settings, MIN_SIZE, 2), maxSize));
+        config.setConnectionTimeout(longSetting(settings, ACQUIRE_TIMEOUT_MS, 30_000));
+        config.setValidationTimeout(longSetting(settings, VALIDATION_TIMEOUT_MS, 5_000));
+        config.setIdleTimeout(longSetting(settings, IDLE_TIMEOUT_MS, 600_000));
+        config.setMaxLifetime(longSetting(settings, MAX_LIFETIME_MS, 1_800_000));
+        config.setLeakDetectionThreshold(longSetting(settings, LEAK_DETECTION_MS, 0));
+
+        // Кэш подготовленных выражений держит драйвер: у pgjdbc он свой на каждое соединение
+        int statementCacheSize = intSetting(settings, STATEMENT_CACHE_SIZE, 256);
+        if (url.startsWith("jdbc:postgresql:") && statementCacheSize > 0) {
+            config.addDataSourceProperty("prepareThreshold", "1");
+            config.addDataSourceProperty("preparedStatementCacheQueries", String.valueOf(statementCacheSize));
+        }
+
+        dataSource = new HikariDataSource(config);
+        logger.info("Connection pool started: min={}, max={}, acquireTimeout={}ms",
+                config.getMinimumIdle(), config.getMaximumPoolSize(), config.getConnectionTimeout());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return dataSource.getConnection();
+        } catch (SQLTransientConnectionException e) {
+            acquireTimeouts.increment();
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            acquireCount.increment();
+            acquireNanos.add(elapsed);
+            maxAcquireNanos.accumulate(elapsed);
+        }
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    public ConnectionPoolStats getStats() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        long count = acquireCount.sum();
+        double averageAcquireMillis = count == 0 ? 0.0 : acquireNanos.sum() / (double) count / 1_000_000.0;
+        return new ConnectionPoolStats(
+                pool.getActiveConnections(),
+                pool.getIdleConnections(),
+                pool.getTotalConnections(),
+                dataSource.getMaximumPoolSize(),
+                pool.getThreadsAwaitingConnection(),
+                count,
+                acquireTimeouts.sum(),
+                averageAcquireMillis,
+                maxAcquireNanos.get() / 1_000_000.0
+        );
+    }
+
+    // Статистика пула фабрики, если она настроена на этот провайдер
+    public static Optional<ConnectionPoolStats> statsOf(SessionFactory sessionFactory) {
+        ConnectionProvider provider = sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(ConnectionProvider.class);
+        if (provider instanceof PooledConnectionProvider pooled) {
+            return Optional.of(pooled.getStats());
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void stop() {
+        if (dataSource != null && !dataSource.isClosed()) {
+            logger.info("Closing connection pool, final stats: {}", getStats());
+            dataSource.close();
+        }
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class<?> unwrapType) {
+        return unwrapType.isAssignableFrom(PooledConnectionProvider.class)
+                || unwrapType.isAssignableFrom(HikariDataSource.class);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (unwrapType.isAssignableFrom(PooledConnectionProvider.class)) {
+            return (T) this;
+        }
+        if (unwrapType.isAssignableFrom(HikariDataSource.class)) {
+            return (T) dataSource;
+        }
+        throw new UnknownUnwrapTypeException(unwrapType);
+    }
+
+    private static String stringSetting(Map<String, Object> settings, String key, String defaultValue) {
+        Object value = settings.get(key);
+        return value != null ? value.toString().trim() : defaultValue;
+    }
+
+    private static int intSetting(Map<String, Object> settings, String key, int defaultValue) {
+        String value = stringSetting(settings, key, null);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private static long longSetting(Map<String, Object> settings, String key, long defaultValue) {
+        String value = stringSetting(settings, key, null);
+        return value != null ? Long.parseLong(value) : defaultValue;
+    }
+}
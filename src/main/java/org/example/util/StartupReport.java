@@ -0,0 +1,19 @@
+package org.example.util;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Время этапов запуска Hibernate в порядке выполнения и выбранное действие со схемой.
+ */
+public record StartupReport(String schemaAction, Map<String, Duration> phases, Duration total) {
+
+    @Override
+    public String toString() {
+        String breakdown = phases.entrySet().stream()
+                .map(phase -> phase.getKey() + "=" + phase.getValue().toMillis() + "ms")
+                .collect(Collectors.joining(", "));
+        return String.format("StartupReport{total=%dms, schema=%s, %s}", total.toMillis(), schemaAction, breakdown);
+    }
+}
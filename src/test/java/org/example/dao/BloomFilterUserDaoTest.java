@@ -0,0 +1,74 @@
+package org.example.dao;
+
+import org.example.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class BloomFilterUserDaoTest {
+
+    private UserDao delegate;
+    private BloomFilterUserDao userDao;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(UserDao.class);
+        userDao = new BloomFilterUserDao(delegate, 1_000, 0.01);
+        when(delegate.streamAll(anyInt())).thenAnswer(invocation -> Stream.of(
+                new User("John", "john@example.com", 30),
+                new User("Jane", "jane@example.com", 25)));
+    }
+
+    @Test
+    void testLookupsGoToDatabaseUntilBuilt() {
+        when(delegate.findByEmail("absent@example.com")).thenReturn(Optional.empty());
+
+        assertTrue(userDao.findByEmail("absent@example.com").isEmpty());
+
+        verify(delegate).findByEmail("absent@example.com");
+        assertFalse(userDao.getStats().ready());
+    }
+
+    @Test
+    void testDefiniteMissSkipsDatabase() {
+        User john = new User("John", "john@example.com", 30);
+        when(delegate.findByEmail("john@example.com")).thenReturn(Optional.of(john));
+        userDao.rebuild();
+
+        assertFalse(userDao.existsByEmail("absent@example.com"));
+        assertTrue(userDao.findByEmail("absent@example.com").isEmpty());
+        assertSame(john, userDao.findByEmail("john@example.com").orElseThrow());
+
+        verify(delegate, never()).existsByEmail("absent@example.com");
+        verify(delegate, never()).findByEmail("absent@example.com");
+        EmailFilterStats stats = userDao.getStats();
+        assertTrue(stats.ready());
+        assertEquals(2, stats.insertions());
+        assertEquals(3, stats.lookups());
+        assertEquals(2, stats.definiteMisses());
+        assertTrue(stats.memoryBytes() > 0);
+    }
+
+    @Test
+    void testWritesAreVisibleBeforeReachingDatabase() {
+        userDao.rebuild();
+        when(delegate.existsByEmail(anyString())).thenReturn(true);
+
+        userDao.save(new User("New", "new@example.com", 20));
+        userDao.saveAll(List.of(new User("Batch", "batch@example.com", 20)));
+        userDao.updateById(1L, "Renamed", "renamed@example.com", null);
+
+        assertTrue(userDao.existsByEmail("new@example.com"));
+        assertTrue(userDao.existsByEmail("batch@example.com"));
+        assertTrue(userDao.existsByEmail("renamed@example.com"));
+        assertEquals(0, userDao.getStats().definiteMisses());
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.dao;
+
+import org.example.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingUserDaoTest {
+
+    private UserDao delegate;
+    private CachingUserDao userDao;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(UserDao.class);
+        userDao = new CachingUserDao(delegate, 1_000, Duration.ofMinutes(5), Duration.ofMinutes(1));
+    }
+
+    @Test
+    void testHitsAndMissesAreCachedAndCopied() {
+        User john = user(1L, "John", "john@example.com");
+        when(delegate.findById(1L)).thenReturn(Optional.of(john));
+        when(delegate.findByEmail("absent@example.com")).thenReturn(Optional.empty());
+
+        User first = userDao.findById(1L).orElseThrow();
+        first.setName("Changed by caller");
+        User second = userDao.findById(1L).orElseThrow();
+        assertTrue(userDao.findByEmail("absent@example.com").isEmpty());
+        assertTrue(userDao.findByEmail("absent@example.com").isEmpty());
+        assertFalse(userDao.existsByEmail("absent@example.com"));
+
+        assertEquals("John", second.getName());
+        verify(delegate, times(1)).findById(1L);
+        verify(delegate, times(1)).findByEmail("absent@example.com");
+        verify(delegate, never()).existsByEmail("absent@example.com");
+        UserCacheStats byId = userDao.getStats().get(0);
+        assertEquals(1, byId.hits());
+        assertEquals(1, byId.misses());
+    }
+
+    @Test
+    void testWritesInvalidateIdAndBothEmails() {
+        when(delegate.findByEmail("john@example.com"))
+                .thenReturn(Optional.of(user(1L, "John", "john@example.com")))
+                .thenReturn(Optional.empty());
+        when(delegate.findByEmail("new@example.com"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(user(1L, "John", "new@example.com")));
+        when(delegate.updateById(1L, "John", "new@example.com", 30)).thenReturn(1);
+
+        userDao.findByEmail("john@example.com");
+        assertTrue(userDao.findByEmail("new@example.com").isEmpty());
+
+        userDao.updateById(1L, "John", "new@example.com", 30);
+
+        assertTrue(userDao.findByEmail("john@example.com").isEmpty());
+        assertEquals(1L, userDao.findByEmail("new@example.com").orElseThrow().getId());
+        verify(delegate, times(2)).findByEmail("john@example.com");
+        verify(delegate, times(2)).findByEmail("new@example.com");
+    }
+
+    @Test
+    void testMultiGetLoadsOnlyMisses() {
+        User john = user(1L, "John", "john@example.com");
+        User alice = user(2L, "Alice", "alice@example.com");
+        when(delegate.findById(1L)).thenReturn(Optional.of(john));
+        when(delegate.findAllByIds(anyCollection(), anyInt()))
+                .thenReturn(new MultiGetResult<>(List.of(alice), List.of(3L)));
+
+        userDao.findById(1L);
+        MultiGetResult<Long> first = userDao.findAllByIds(List.of(2L, 1L, 3L));
+        MultiGetResult<Long> second = userDao.findAllByIds(List.of(3L, 2L, 1L));
+
+        assertEquals(List.of(2L, 1L), first.found().stream().map(User::getId).toList());
+        assertEquals(List.of(3L), first.missing());
+        assertEquals(List.of(2L, 1L), second.found().stream().map(User::getId).toList());
+        assertEquals(List.of(3L), second.missing());
+        verify(delegate, times(1)).findAllByIds(argThat(ids -> ids.size() == 2 && !ids.contains(1L)), anyInt());
+    }
+
+    @Test
+    void testSaveInvalidatesNegativeEntry() {
+        User saved = user(2L, "Jane", "jane@example.com");
+        when(delegate.findByEmail("jane@example.com"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(saved));
+        when(delegate.save(any())).thenReturn(saved);
+
+        assertTrue(userDao.findByEmail("jane@example.com").isEmpty());
+        userDao.save(new User("Jane", "jane@example.com", 25));
+
+        assertTrue(userDao.findByEmail("jane@example.com").isPresent());
+    }
+
+    @Test
+    void testFailedSaveStillInvalidatesNegativeEntry() {
+        User john = user(1L, "John", "john@example.com");
+        when(delegate.findByEmail("john@example.com"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(john));
+        when(delegate.save(any(User.class))).thenThrow(new RuntimeException("Commit failed"));
+
+        assertTrue(userDao.findByEmail("john@example.com").isEmpty());
+        assertThrows(RuntimeException.class, () -> userDao.save(new User("John", "john@example.com", 30)));
+
+        assertTrue(userDao.findByEmail("john@example.com").isPresent());
+        verify(delegate, times(2)).findByEmail("john@example.com");
+    }
+
+    @Test
+    void testConcurrentMissesLoadOnce() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        when(delegate.findById(1L)).thenAnswer(invocation -> {
+            loading.await(5, TimeUnit.SECONDS);
+            return Optional.of(user(1L, "John", "john@example.com"));
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Optional<User>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> userDao.findById(1L)));
+            }
+            Thread.sleep(100);
+            loading.countDown();
+            for (Future<Optional<User>> result : results) {
+                assertEquals("John", result.get(5, TimeUnit.SECONDS).orElseThrow().getName());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(delegate, times(1)).findById(1L);
+    }
+
+    private static User user(Long id, String name, String email) {
+        User user = new User(name, email, 30);
+        user.setId(id);
+        return user;
+    }
+}
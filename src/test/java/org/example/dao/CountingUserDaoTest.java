@@ -0,0 +1,74 @@
+package org.example.dao;
+
+import org.example.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CountingUserDaoTest {
+
+    private UserDao delegate;
+    private CountingUserDao userDao;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(UserDao.class);
+        userDao = new CountingUserDao(delegate, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void testWritesKeepCachedCountUpToDate() {
+        User user = new User("John", "john@example.com", 30);
+        when(delegate.count()).thenReturn(10L);
+        when(delegate.save(user)).thenReturn(user);
+        when(delegate.saveAll(anyCollection())).thenReturn(new BatchSaveResult(3, List.of()));
+        when(delegate.deleteById(1L)).thenReturn(1);
+        when(delegate.deleteById(2L)).thenReturn(0);
+        when(delegate.upsertAllByEmail(anyCollection()))
+                .thenReturn(List.of(new UpsertResult(user, true), new UpsertResult(user, false)));
+
+        assertEquals(10, userDao.count());
+        userDao.save(user);
+        userDao.saveAll(List.of(user, user, user, user));
+        userDao.deleteById(1L);
+        userDao.deleteById(2L);
+        userDao.upsertAllByEmail(List.of(user, user));
+
+        assertEquals(14, userDao.count());
+        verify(delegate, times(1)).count();
+        assertEquals(1, userDao.getHits());
+    }
+
+    @Test
+    void testDeleteAndInvalidateReloadCount() {
+        when(delegate.count()).thenReturn(5L, 4L, 7L);
+
+        assertEquals(5, userDao.count());
+        userDao.delete(1L);
+        assertEquals(4, userDao.count());
+        userDao.invalidate();
+        assertEquals(7, userDao.count());
+        assertEquals(7, userDao.count());
+
+        verify(delegate, times(3)).count();
+        assertEquals(3, userDao.getLoads());
+    }
+
+    @Test
+    void testFailedSaveReloadsCount() {
+        User user = new User("John", "john@example.com", 30);
+        when(delegate.count()).thenReturn(10L, 11L);
+        when(delegate.save(user)).thenThrow(new RuntimeException("Commit failed"));
+
+        assertEquals(10, userDao.count());
+        assertThrows(RuntimeException.class, () -> userDao.save(user));
+
+        assertEquals(11, userDao.count());
+        verify(delegate, times(2)).count();
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.dao;
+
+import org.example.entity.User;
+import org.example.metrics.MetricsRegistry;
+import org.example.metrics.OperationMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InstrumentedUserDaoTest {
+
+    private UserDao delegate;
+    private MetricsRegistry registry;
+    private InstrumentedUserDao userDao;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(UserDao.class);
+        registry = new MetricsRegistry();
+        userDao = new InstrumentedUserDao(delegate, registry);
+    }
+
+    @Test
+    void testSuccessIsRecorded() {
+        User user = new User("John", "john@example.com", 30);
+        when(delegate.findById(1L)).thenReturn(Optional.of(user));
+
+        assertSame(user, userDao.findById(1L).orElseThrow());
+
+        OperationMetrics metrics = registry.operation(InstrumentedUserDao.LAYER, "findById");
+        assertEquals(1, metrics.getSuccessCount());
+        assertEquals(0, metrics.getErrorCount());
+        assertEquals(1, metrics.latency().count());
+    }
+
+    @Test
+    void testFailureIsRecordedAndRethrown() {
+        when(delegate.deleteById(1L)).thenThrow(new RuntimeException("Failed to delete user"));
+
+        assertThrows(RuntimeException.class, () -> userDao.deleteById(1L));
+
+        OperationMetrics metrics = registry.operation(InstrumentedUserDao.LAYER, "deleteById");
+        assertEquals(0, metrics.getSuccessCount());
+        assertEquals(1, metrics.getErrorCount());
+    }
+
+    @Test
+    void testAllOperationsRegisteredUpFront() {
+        assertEquals(27, registry.operations().size());
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.dao;
+
+import org.example.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Две независимые H2 изображают primary и реплику без репликации:
+ * по тому, видна ли запись, понятно, куда ушло чтение.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReplicaRoutingUserDaoTest {
+
+    private SessionFactory primaryFactory;
+    private SessionFactory replicaFactory;
+    // Реплика без таблицы users: любое чтение с неё падает
+    private SessionFactory brokenFactory;
+    private UserDao primary;
+    private UserDao replica;
+
+    @BeforeAll
+    void setUpAll() {
+        primaryFactory = buildSessionFactory("replica_test_primary");
+        replicaFactory = buildSessionFactory("replica_test_replica");
+        brokenFactory = buildSessionFactory("replica_test_broken");
+        primary = new UserDaoImpl(primaryFactory);
+        replica = new UserDaoImpl(replicaFactory);
+    }
+
+    @BeforeEach
+    void setUp() {
+        for (SessionFactory sessionFactory : List.of(primaryFactory, replicaFactory)) {
+            try (var session = sessionFactory.openSession()) {
+                var transaction = session.beginTransaction();
+                session.createMutationQuery("DELETE FROM User").executeUpdate();
+                transaction.commit();
+            }
+        }
+    }
+
+    @AfterAll
+    void tearDownAll() {
+        primaryFactory.close();
+        replicaFactory.close();
+        brokenFactory.close();
+    }
+
+    @Test
+    void testReadsGoToReplicaAndWritesToPrimary() {
+        ReplicaRoutingUserDao userDao = new ReplicaRoutingUserDao(primary, List.of(replica),
+                ReplicaSelection.ROUND_ROBIN, Duration.ZERO, Duration.ofSeconds(5));
+
+        User saved = userDao.save(new User("John", "john@example.com", 30));
+
+        assertTrue(primary.findById(saved.getId()).isPresent());
+        assertTrue(userDao.findByEmail("john@example.com").isEmpty());
+
+        replica.save(new User("John", "john@example.com", 30));
+        assertTrue(userDao.findByEmail("john@example.com").isPresent());
+        assertEquals(2, userDao.getStats().replicas().get(0).reads());
+    }
+
+    @Test
+    void testWriterReadsItsOwnWritesFromPrimary() throws Exception {
+        ReplicaRoutingUserDao userDao = new ReplicaRoutingUserDao(primary, List.of(replica),
+                ReplicaSelection.ROUND_ROBIN, Duration.ofMinutes(1), Duration.ofSeconds(5));
+
+        User saved = userDao.save(new User("Jane", "jane@example.com", 25));
+
+        assertTrue(userDao.findById(saved.getId()).isPresent());
+        Optional<User> fromOtherThread = CompletableFuture.supplyAsync(() -> userDao.findById(saved.getId())).get();
+        assertTrue(fromOtherThread.isEmpty());
+        assertEquals(1, userDao.getStats().pinnedReads());
+    }
+
+    @Test
+    void testUnhealthyReplicaFallsBackToPrimary() {
+        try (var session = brokenFactory.openSession()) {
+            session.doWork(connection -> connection.createStatement().execute("DROP ALL OBJECTS"));
+        }
+        ReplicaRoutingUserDao userDao = new ReplicaRoutingUserDao(primary, List.of(new UserDaoImpl(brokenFactory)),
+                ReplicaSelection.LEAST_LATENCY, Duration.ZERO, Duration.ofMinutes(1));
+        primary.save(new User("Bob", "bob@example.com", 40));
+
+        assertTrue(userDao.findByEmail("bob@example.com").isPresent());
+        assertTrue(userDao.findByEmail("bob@example.com").isPresent());
+
+        ReplicaRoutingStats stats = userDao.getStats();
+        assertEquals(1, stats.replicas().get(0).failures());
+        assertFalse(stats.replicas().get(0).healthy());
+        assertEquals(2, stats.fallbacks());
+    }
+
+    @Test
+    void testCallerErrorsDoNotMarkReplicaDown() {
+        UserDao failingReplica = mock(UserDao.class);
+        UserDao checkedPrimary = spy(primary);
+        when(failingReplica.findPageAfter(null, 0)).thenThrow(new IllegalArgumentException("Limit must be positive"));
+        ReplicaRoutingUserDao userDao = new ReplicaRoutingUserDao(checkedPrimary, List.of(failingReplica),
+                ReplicaSelection.ROUND_ROBIN, Duration.ZERO, Duration.ofMinutes(1));
+
+        assertThrows(IllegalArgumentException.class, () -> userDao.findPageAfter(null, 0));
+
+        ReplicaRoutingStats stats = userDao.getStats();
+        assertEquals(0, stats.replicas().get(0).failures());
+        assertTrue(stats.replicas().get(0).healthy());
+        assertEquals(0, stats.fallbacks());
+        verify(checkedPrimary, never()).findPageAfter(any(), anyInt());
+    }
+
+    @Test
+    void testRoundRobinSpreadsReads() {
+        UserDao first = mock(UserDao.class);
+        UserDao second = mock(UserDao.class);
+        ReplicaRoutingUserDao userDao = new ReplicaRoutingUserDao(mock(UserDao.class), List.of(first, second),
+                ReplicaSelection.ROUND_ROBIN, Duration.ZERO, Duration.ofSeconds(5));
+
+        for (int i = 0; i < 10; i++) {
+            userDao.findAll();
+        }
+
+        verify(first, times(5)).findAll();
+        verify(second, times(5)).findAll();
+    }
+
+    private static SessionFactory buildSessionFactory(String database) {
+        Configuration configuration = new Configuration();
+        configuration.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+        configuration.setProperty("hibernate.connection.url", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1");
+        configuration.setProperty("hibernate.connection.username", "sa");
+        configuration.setProperty("hibernate.connection.password", "");
+        configuration.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        configuration.setProperty("hibernate.cache.region_prefix", database);
+        configuration.addAnnotatedClass(User.class);
+        return configuration.buildSessionFactory();
+    }
+}
@@ -0,0 +1,192 @@
+package org.example.dao;
+
+import org.example.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ShardedUserDaoTest {
+
+    private static final int SHARDS = 3;
+
+    private final List<SessionFactory> sessionFactories = new ArrayList<>();
+    private ShardedUserDao userDao;
+
+    @BeforeAll
+    void setUpAll() {
+        for (int i = 0; i < SHARDS; i++) {
+            Configuration configuration = new Configuration();
+            configuration.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+            configuration.setProperty("hibernate.connection.url", "jdbc:h2:mem:shard_" + i + ";DB_CLOSE_DELAY=-1");
+            configuration.setProperty("hibernate.connection.username", "sa");
+            configuration.setProperty("hibernate.connection.password", "");
+            configuration.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+            configuration.setProperty("hibernate.cache.region_prefix", "shard_" + i);
+            configuration.addAnnotatedClass(User.class);
+            sessionFactories.add(configuration.buildSessionFactory());
+        }
+        userDao = new ShardedUserDao(sessionFactories);
+    }
+
+    @BeforeEach
+    void setUp() {
+        for (SessionFactory sessionFactory : sessionFactories) {
+            try (var session = sessionFactory.openSession()) {
+                var transaction = session.beginTransaction();
+                session.createMutationQuery("DELETE FROM User").executeUpdate();
+                transaction.commit();
+            }
+        }
+    }
+
+    @AfterAll
+    void tearDownAll() {
+        userDao.close();
+        sessionFactories.forEach(SessionFactory::close);
+    }
+
+    @Test
+    void testUsersAreSpreadAcrossShardsWithUniqueRoutableIds() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            users.add(new User("User " + i, "user" + i + "@example.com", 20 + i % 50));
+        }
+
+        BatchSaveResult result = userDao.saveAll(users, 7);
+
+        assertEquals(60, result.savedCount());
+        Set<Long> ids = new HashSet<>();
+        Set<Integer> usedShards = new HashSet<>();
+        for (User user : users) {
+            assertTrue(ids.add(user.getId()));
+            assertEquals(userDao.shardForEmail(user.getEmail()), userDao.shardOf(user.getId()));
+            usedShards.add(userDao.shardOf(user.getId()));
+            assertEquals(user.getEmail(), userDao.findById(user.getId()).orElseThrow().getEmail());
+        }
+        assertEquals(SHARDS, usedShards.size());
+        assertEquals(60, userDao.findAll().size());
+        assertEquals(userDao.findAll().stream().map(User::getId).sorted().toList(),
+                userDao.findAll().stream().map(User::getId).toList());
+    }
+
+    @Test
+    void testRoutedReadsAndWrites() {
+        User user = userDao.save(new User("John Smith", "john@example.com", 30));
+
+        assertTrue(userDao.findByEmail("john@example.com").isPresent());
+        assertTrue(userDao.existsByEmail("john@example.com"));
+        assertFalse(userDao.existsByEmail("absent@example.com"));
+        assertEquals(1, userDao.updateById(user.getId(), "John Smith", "john@example.com", 31));
+        assertEquals(31, userDao.findById(user.getId()).orElseThrow().getAge());
+        assertEquals(1, userDao.deleteById(user.getId()));
+        assertTrue(userDao.findById(user.getId()).isEmpty());
+        assertEquals(0, userDao.deleteById(user.getId()));
+    }
+
+    @Test
+    void testEmailChangeToAnotherShardIsStillFound() {
+        User user = userDao.save(new User("Mover", "mover@example.com", 30));
+        int shard = userDao.shardOf(user.getId());
+        String foreignEmail = Stream.iterate(0, i -> i + 1)
+                .map(i -> "moved" + i + "@example.com")
+                .filter(email -> userDao.shardForEmail(email) != shard)
+                .findFirst()
+                .orElseThrow();
+        User other = userDao.save(new User("Other", "other@example.com", 40));
+
+        userDao.updateById(user.getId(), "Mover", foreignEmail, 30);
+
+        assertEquals(user.getId(), userDao.findByEmail(foreignEmail).orElseThrow().getId());
+        assertThrows(RuntimeException.class,
+                () -> userDao.updateById(other.getId(), "Other", foreignEmail, 40));
+    }
+
+    @Test
+    void testMultiGetCollectsUsersFromAllShards() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            users.add(userDao.save(new User("Multi " + i, "multi" + i + "@example.com", 30)));
+        }
+        User mover = users.get(0);
+        String foreignEmail = Stream.iterate(0, i -> i + 1)
+                .map(i -> "multimoved" + i + "@example.com")
+                .filter(email -> userDao.shardForEmail(email) != userDao.shardOf(mover.getId()))
+                .findFirst()
+                .orElseThrow();
+        userDao.updateById(mover.getId(), "Multi 0", foreignEmail, 30);
+
+        List<Long> ids = new ArrayList<>(users.stream().map(User::getId).toList());
+        Collections.reverse(ids);
+        assertEquals(ids, userDao.findAllByIds(ids).found().stream().map(User::getId).toList());
+
+        MultiGetResult<String> byEmails = userDao.findAllByEmails(
+                List.of("multi5@example.com", foreignEmail, "multi0@example.com"));
+        assertEquals(List.of(users.get(5).getId(), mover.getId()),
+                byEmails.found().stream().map(User::getId).toList());
+        assertEquals(List.of("multi0@example.com"), byEmails.missing());
+    }
+
+    @Test
+    void testUpsertUpdatesUserOnItsCurrentShard() {
+        User mover = userDao.save(new User("Mover", "upsert-mover@example.com", 30));
+        String foreignEmail = Stream.iterate(0, i -> i + 1)
+                .map(i -> "upsertmoved" + i + "@example.com")
+                .filter(email -> userDao.shardForEmail(email) != userDao.shardOf(mover.getId()))
+                .findFirst()
+                .orElseThrow();
+        userDao.updateById(mover.getId(), "Mover", foreignEmail, 30);
+
+        List<UpsertResult> results = userDao.upsertAllByEmail(List.of(
+                new User("Moved", foreignEmail, 31), new User("Fresh", "upsert-fresh@example.com", 20)));
+
+        assertTrue(results.get(0).updated());
+        assertEquals(mover.getId(), results.get(0).user().getId());
+        assertTrue(results.get(1).inserted());
+        assertEquals(userDao.shardForEmail("upsert-fresh@example.com"), userDao.shardOf(results.get(1).user().getId()));
+        assertEquals(31, userDao.findById(mover.getId()).orElseThrow().getAge());
+    }
+
+    @Test
+    void testScatterGatherQueriesMergeShards() {
+        for (int i = 0; i < 12; i++) {
+            userDao.save(new User((i % 2 == 0 ? "John " : "Alice ") + i, "scatter" + i + "@example.com", 30));
+        }
+
+        assertEquals(6, userDao.findByName("John").size());
+        assertEquals(5, userDao.searchByName("john", 5).size());
+
+        List<User> firstPage = userDao.findPageAfter(null, 5);
+        List<User> secondPage = userDao.findPageAfter(firstPage.get(4).getId(), 5);
+        assertEquals(5, firstPage.size());
+        assertTrue(secondPage.get(0).getId() > firstPage.get(4).getId());
+
+        try (Stream<User> users = userDao.streamAll()) {
+            assertEquals(12, users.count());
+        }
+    }
+
+    @Test
+    void testAggregatesAreCombinedAcrossShards() {
+        for (int i = 0; i < 12; i++) {
+            userDao.save(new User("Aggregate " + i, "aggregate" + i + "@example.com", 20 + i));
+        }
+
+        assertEquals(12, userDao.count());
+        assertEquals(List.of(new AgeBucket(20, 30, 10), new AgeBucket(30, 40, 2)), userDao.countByAgeBucket(10));
+        AgeStats ages = userDao.ageStats();
+        assertEquals(12, ages.count());
+        assertEquals(20, ages.minAge());
+        assertEquals(31, ages.maxAge());
+        assertEquals(25.5, ages.averageAge(), 0.001);
+    }
+}
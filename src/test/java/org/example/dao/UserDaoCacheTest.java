@@ -0,0 +1,133 @@
+package org.example.dao;
+
+import org.example.entity.User;
+import org.example.util.CacheRegionStats;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.*;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserDaoCacheTest {
+
+    private SessionFactory sessionFactory;
+    private UserDao userDao;
+
+    @BeforeAll
+    void setUpAll() {
+        Configuration configuration = new Configuration();
+        configuration.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+        configuration.setProperty("hibernate.connection.url", "jdbc:h2:mem:cache_test;DB_CLOSE_DELAY=-1");
+        configuration.setProperty("hibernate.connection.username", "sa");
+        configuration.setProperty("hibernate.connection.password", "");
+        configuration.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        configuration.setProperty("hibernate.cache.use_second_level_cache", "true");
+        configuration.setProperty("hibernate.cache.use_query_cache", "true");
+        configuration.setProperty("hibernate.cache.region.factory_class", "jcache");
+        configuration.setProperty("hibernate.javax.cache.provider",
+                "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider");
+        configuration.setProperty("hibernate.javax.cache.missing_cache_strategy", "create");
+        configuration.setProperty("hibernate.generate_statistics", "true");
+        configuration.addAnnotatedClass(User.class);
+
+        sessionFactory = configuration.buildSessionFactory();
+        userDao = new UserDaoImpl(sessionFactory);
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (var session = sessionFactory.openSession()) {
+            var transaction = session.beginTransaction();
+            session.createMutationQuery("DELETE FROM User").executeUpdate();
+            transaction.commit();
+        }
+        sessionFactory.getCache().evictAllRegions();
+        sessionFactory.getStatistics().clear();
+    }
+
+    @AfterAll
+    void tearDownAll() {
+        if (sessionFactory != null) {
+            sessionFactory.close();
+        }
+    }
+
+    @Test
+    void testFindByIdIsServedFromCache() {
+        User user = userDao.save(new User("Cached", "cached@example.com", 30));
+
+        userDao.findById(user.getId());
+        userDao.findById(user.getId());
+
+        // save кладёт сущность в кэш после коммита, поэтому оба поиска обходятся без БД
+        Statistics statistics = sessionFactory.getStatistics();
+        assertEquals(2, statistics.getSecondLevelCacheHitCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+
+        CacheRegionStats userRegion = CacheRegionStats.of(sessionFactory).stream()
+                .filter(stats -> stats.region().equals(User.class.getName()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1.0, userRegion.hitRatio());
+    }
+
+    @Test
+    void testFindByEmailIsServedFromQueryCache() {
+        userDao.save(new User("Cached", "cached@example.com", 30));
+
+        userDao.findByEmail("cached@example.com");
+        Optional<User> second = userDao.findByEmail("cached@example.com");
+
+        assertTrue(second.isPresent());
+        assertEquals(1, sessionFactory.getStatistics().getQueryCacheHitCount());
+    }
+
+    @Test
+    void testUpdateInvalidatesCachedEntries() {
+        User user = userDao.save(new User("Original", "original@example.com", 30));
+        userDao.findById(user.getId());
+        userDao.findByEmail("original@example.com");
+
+        user.setName("Updated");
+        user.setEmail("updated@example.com");
+        userDao.update(user);
+
+        assertEquals("Updated", userDao.findById(user.getId()).orElseThrow().getName());
+        assertFalse(userDao.findByEmail("original@example.com").isPresent());
+        assertTrue(userDao.findByEmail("updated@example.com").isPresent());
+    }
+
+    @Test
+    void testSaveAndDeleteInvalidateQueryCache() {
+        assertFalse(userDao.findByEmail("late@example.com").isPresent());
+
+        User user = userDao.save(new User("Late", "late@example.com", 30));
+        assertTrue(userDao.findByEmail("late@example.com").isPresent());
+
+        userDao.delete(user.getId());
+        assertFalse(userDao.findByEmail("late@example.com").isPresent());
+        assertFalse(userDao.findById(user.getId()).isPresent());
+    }
+
+    @Test
+    void testUpdateByIdAndDeleteByIdEvictCachedEntries() {
+        User user = userDao.save(new User("Original", "original@example.com", 30));
+        userDao.findById(user.getId());
+        userDao.findByEmail("original@example.com");
+
+        userDao.updateById(user.getId(), "Updated", "updated@example.com", 31);
+
+        assertEquals("Updated", userDao.findById(user.getId()).orElseThrow().getName());
+        assertFalse(userDao.findByEmail("original@example.com").isPresent());
+        assertEquals(31, userDao.findByEmail("updated@example.com").orElseThrow().getAge());
+
+        userDao.deleteById(user.getId());
+
+        assertFalse(userDao.findById(user.getId()).isPresent());
+        assertFalse(userDao.findByEmail("updated@example.com").isPresent());
+    }
+}
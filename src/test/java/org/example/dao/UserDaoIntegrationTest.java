@@ -1,6 +1,10 @@
 package org.example.dao;
 
 import org.example.entity.User;
+import org.example.transfer.ImportStats;
+import org.example.transfer.UserFileFormat;
+import org.example.transfer.UserImporter;
+import org.example.util.HibernateUtil;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
 import org.junit.jupiter.api.*;
@@ -8,8 +12,13 @@ import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -43,6 +52,7 @@ class UserDaoIntegrationTest {
         configuration.addAnnotatedClass(org.example.entity.User.class);
 
         testSessionFactory = configuration.buildSessionFactory();
+        HibernateUtil.createNameSearchIndex(testSessionFactory);
         userDao = new UserDaoImpl(testSessionFactory);
     }
 
@@ -97,6 +107,36 @@ class UserDaoIntegrationTest {
         assertEquals(2, users.size());
     }
 
+    @Test
+    void testStreamAll() {
+        userDao.save(new User("User1", "user1@example.com", 25));
+        userDao.save(new User("User2", "user2@example.com", 30));
+        userDao.save(new User("User3", "user3@example.com", 35));
+
+        try (Stream<User> users = userDao.streamAll(2)) {
+            List<String> emails = users.map(User::getEmail).sorted().toList();
+
+            assertEquals(List.of("user1@example.com", "user2@example.com", "user3@example.com"), emails);
+        }
+    }
+
+    @Test
+    void testFindPageAfter() {
+        for (int i = 0; i < 5; i++) {
+            userDao.save(new User("User" + i, "user" + i + "@example.com", 20 + i));
+        }
+
+        List<User> firstPage = userDao.findPageAfter(null, 2);
+        List<User> secondPage = userDao.findPageAfter(firstPage.get(1).getId(), 2);
+        List<User> lastPage = userDao.findPageAfter(secondPage.get(1).getId(), 2);
+
+        assertEquals(2, firstPage.size());
+        assertEquals(2, secondPage.size());
+        assertEquals(1, lastPage.size());
+        assertTrue(firstPage.get(1).getId() < secondPage.get(0).getId());
+        assertTrue(userDao.findPageAfter(lastPage.get(0).getId(), 2).isEmpty());
+    }
+
     @Test
     void testUpdateUser() {
         User user = userDao.save(new User("Original", "original@example.com", 25));
@@ -122,6 +162,59 @@ class UserDaoIntegrationTest {
         assertFalse(deletedUser.isPresent());
     }
 
+    @Test
+    void testUpdateById() {
+        User user = userDao.save(new User("Original", "original@example.com", 25));
+
+        int updated = userDao.updateById(user.getId(), "Updated", "updated@example.com", 30);
+        User reloaded = userDao.findById(user.getId()).orElseThrow();
+
+        assertEquals(1, updated);
+        assertEquals("Updated", reloaded.getName());
+        assertEquals("updated@example.com", reloaded.getEmail());
+        assertEquals(30, reloaded.getAge());
+        assertEquals(0, userDao.updateById(999L, "Nobody", "nobody@example.com", 30));
+    }
+
+    @Test
+    void testUpdateAll() {
+        User first = userDao.save(new User("First", "first@example.com", 25));
+        User second = userDao.save(new User("Second", "second@example.com", 35));
+
+        int updated = userDao.updateAll(List.of(
+                new UserUpdate(first.getId(), "First", "first@example.com", 26),
+                new UserUpdate(second.getId(), "Second Renamed", "second@example.com", 35),
+                new UserUpdate(999L, "Nobody", "nobody@example.com", 30)));
+
+        assertEquals(2, updated);
+        assertEquals(26, userDao.findById(first.getId()).orElseThrow().getAge());
+        assertEquals("Second Renamed", userDao.findById(second.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void testPatch_WritesOnlyWhenValuesChange() {
+        User user = userDao.save(new User("Patched", "patched@example.com", 25));
+
+        assertEquals(PatchResult.UNCHANGED,
+                userDao.patch(UserPatch.replace(user.getId(), "Patched", "patched@example.com", 25)));
+        assertEquals(PatchResult.UPDATED, userDao.patch(UserPatch.of(user.getId()).withAge(null)));
+        assertEquals(PatchResult.UNCHANGED, userDao.patch(UserPatch.of(user.getId()).withAge(null)));
+        assertEquals(PatchResult.NOT_FOUND, userDao.patch(UserPatch.of(999L).withName("Nobody")));
+
+        User reloaded = userDao.findById(user.getId()).orElseThrow();
+        assertEquals("Patched", reloaded.getName());
+        assertNull(reloaded.getAge());
+    }
+
+    @Test
+    void testDeleteById() {
+        User user = userDao.save(new User("ToDelete", "delete@example.com", 25));
+
+        assertEquals(1, userDao.deleteById(user.getId()));
+        assertFalse(userDao.findById(user.getId()).isPresent());
+        assertEquals(0, userDao.deleteById(user.getId()));
+    }
+
     @Test
     void testFindByEmail() {
         String email = "find@example.com";
@@ -152,6 +245,89 @@ class UserDaoIntegrationTest {
         assertFalse(foundNames.contains("Alice Smith"));
     }
 
+    @Test
+    void testProjections_MatchEntityQueries() {
+        User john = userDao.save(new User("John Smith", "john.smith@example.com", 25));
+        User alice = userDao.save(new User("Alice Smith", "alice@example.com", 28));
+
+        assertEquals(List.of(new UserSummary(john.getId(), "John Smith"), new UserSummary(alice.getId(), "Alice Smith")),
+                userDao.findAllSummaries());
+        assertEquals(List.of(new UserSummary(john.getId(), "John Smith")), userDao.findSummariesByName("John"));
+        assertEquals(List.of(new UserContact(john.getId(), "john.smith@example.com"),
+                new UserContact(alice.getId(), "alice@example.com")), userDao.findAllContacts());
+    }
+
+    @Test
+    void testMultiGet_KeepsOrderAndReportsMissing() {
+        User john = userDao.save(new User("John", "john@example.com", 25));
+        User alice = userDao.save(new User("Alice", "alice@example.com", 28));
+        User bob = userDao.save(new User("Bob", "bob@example.com", 31));
+        long absentId = bob.getId() + 1000;
+
+        MultiGetResult<Long> byIds = userDao.findAllByIds(
+                List.of(bob.getId(), absentId, john.getId(), bob.getId(), alice.getId()), 2);
+        assertEquals(List.of(bob.getId(), john.getId(), alice.getId()),
+                byIds.found().stream().map(User::getId).toList());
+        assertEquals(List.of(absentId), byIds.missing());
+
+        MultiGetResult<String> byEmails = userDao.findAllByEmails(
+                List.of("alice@example.com", "nobody@example.com", "john@example.com", "alice@example.com"), 2);
+        assertEquals(List.of(alice.getId(), john.getId()), byEmails.found().stream().map(User::getId).toList());
+        assertEquals(List.of("nobody@example.com"), byEmails.missing());
+
+        assertTrue(userDao.findAllByIds(List.of()).found().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> userDao.findAllByIds(List.of(john.getId()), 0));
+    }
+
+    @Test
+    void testUpsertByEmail_InsertsThenUpdatesInPlace() {
+        UpsertResult inserted = userDao.upsertByEmail(new User("John", "john@example.com", 25));
+        assertTrue(inserted.inserted());
+        assertNotNull(inserted.user().getId());
+        assertEquals(inserted.user().getId(), userDao.findByEmail("john@example.com").orElseThrow().getId());
+
+        UpsertResult updated = userDao.upsertByEmail(new User("John Smith", "john@example.com", 26));
+        assertTrue(updated.updated());
+        assertEquals(inserted.user().getId(), updated.user().getId());
+        assertEquals("John Smith", updated.user().getName());
+        assertEquals(26, userDao.findByEmail("john@example.com").orElseThrow().getAge());
+        assertEquals(1, userDao.count());
+
+        List<UpsertResult> batch = userDao.upsertAllByEmail(List.of(
+                new User("Alice", "alice@example.com", 28),
+                new User("John", "john@example.com", 27),
+                new User("Alice Cooper", "alice@example.com", 29)));
+        assertEquals(List.of("alice@example.com", "john@example.com"),
+                batch.stream().map(result -> result.user().getEmail()).toList());
+        assertTrue(batch.get(0).inserted());
+        assertEquals("Alice Cooper", batch.get(0).user().getName());
+        assertTrue(batch.get(1).updated());
+        assertEquals(27, userDao.findById(inserted.user().getId()).orElseThrow().getAge());
+        assertEquals(2, userDao.count());
+    }
+
+    @Test
+    void testAggregates() {
+        userDao.save(new User("Young", "young@example.com", 21));
+        userDao.save(new User("Middle", "middle@example.com", 29));
+        userDao.save(new User("Older", "older@example.com", 34));
+        User noAge = new User("No Age", "noage@example.com", null);
+        userDao.save(noAge);
+
+        assertEquals(4, userDao.count());
+        assertEquals(List.of(new AgeBucket(20, 30, 2), new AgeBucket(30, 40, 1)), userDao.countByAgeBucket(10));
+
+        AgeStats ages = userDao.ageStats();
+        assertEquals(3, ages.count());
+        assertEquals(21, ages.minAge());
+        assertEquals(34, ages.maxAge());
+        assertEquals(28.0, ages.averageAge(), 0.001);
+
+        LocalDate today = noAge.getCreatedAt().toLocalDate();
+        assertEquals(List.of(new DailySignups(today, 4)), userDao.countSignupsByDay(today, today.plusDays(1)));
+        assertTrue(userDao.countSignupsByDay(today.plusDays(1), today.plusDays(2)).isEmpty());
+    }
+
     @Test
     void testFindByName_PartialMatch() {
         userDao.save(new User("Johny Bravo", "johny@example.com", 25));
@@ -173,6 +349,20 @@ class UserDaoIntegrationTest {
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    void testSearchByName_UsesTrigramIndexAndRanksByRelevance() {
+        userDao.save(new User("Mike Johnson", "mike@example.com", 30));
+        userDao.save(new User("John", "john@example.com", 25));
+        userDao.save(new User("Johnny Bravo", "johnny@example.com", 28));
+        userDao.save(new User("Alice Smith", "alice@example.com", 22));
+
+        List<User> users = userDao.searchByName("john", 2);
+
+        assertEquals(2, users.size());
+        assertEquals("John", users.get(0).getName());
+        assertTrue(((UserDaoImpl) userDao).hasTrigramIndex());
+    }
+
     @Test
     void testUniqueEmailConstraint() {
         String email = "duplicate@example.com";
@@ -183,6 +373,42 @@ class UserDaoIntegrationTest {
         assertThrows(RuntimeException.class, () -> userDao.save(duplicateUser));
     }
 
+    @Test
+    void testSaveAll() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            users.add(new User("Batch User " + i, "batch" + i + "@example.com", 20 + i));
+        }
+
+        BatchSaveResult result = userDao.saveAll(users, 10);
+
+        assertEquals(25, result.savedCount());
+        assertFalse(result.hasFailures());
+        assertTrue(users.stream().allMatch(user -> user.getId() != null));
+        assertEquals(25, userDao.findAll().size());
+    }
+
+    @Test
+    void testSaveAll_FailedChunkIsReported() {
+        userDao.save(new User("Existing", "existing@example.com", 40));
+        List<User> users = List.of(
+                new User("First", "first@example.com", 20),
+                new User("Second", "second@example.com", 21),
+                new User("Duplicate", "existing@example.com", 22),
+                new User("Fourth", "fourth@example.com", 23)
+        );
+
+        BatchSaveResult result = userDao.saveAll(users, 2);
+
+        assertEquals(2, result.savedCount());
+        assertEquals(1, result.failures().size());
+        assertEquals(1, result.failures().get(0).chunkIndex());
+        assertEquals(2, result.failedCount());
+        assertNull(users.get(2).getId());
+        assertNull(users.get(3).getId());
+        assertEquals(3, userDao.findAll().size());
+    }
+
     @Test
     void testFindById_UserNotFound() {
         Optional<User> result = userDao.findById(999L);
@@ -195,6 +421,14 @@ class UserDaoIntegrationTest {
         assertDoesNotThrow(() -> userDao.delete(999L));
     }
 
+    @Test
+    void testExistsByEmail() {
+        userDao.save(new User("John Doe", "john@example.com", 30));
+
+        assertTrue(userDao.existsByEmail("john@example.com"));
+        assertFalse(userDao.existsByEmail("nonexistent@example.com"));
+    }
+
     @Test
     void testFindByEmail_UserNotFound() {
         Optional<User> result = userDao.findByEmail("nonexistent@example.com");
@@ -206,4 +440,58 @@ class UserDaoIntegrationTest {
     void testSave_NullUser() {
         assertThrows(RuntimeException.class, () -> userDao.save(null));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testImport_UsesCopyAndKeepsSequenceConsistent() throws Exception {
+        userDao.save(new User("Existing", "existing@example.com", 50));
+        String csv = """
+                name,email,age
+                "Copy, One",copy1@example.com,21
+                Copy Two,copy2@example.com,
+                Duplicate,existing@example.com,33
+                """;
+
+        ImportStats stats = new UserImporter(testSessionFactory, userDao, 10).importFrom(
+                new BufferedReader(new StringReader(csv)), UserFileFormat.CSV, null, null);
+
+        // COPY всей порции падает на дубликате, после чего строки повторяются по одной
+        assertEquals(3, stats.rowsRead());
+        assertEquals(2, stats.imported());
+        assertEquals(1, stats.rejected());
+        assertEquals("Copy, One", userDao.findByEmail("copy1@example.com").orElseThrow().getName());
+
+        stats = new UserImporter(testSessionFactory, userDao, 10).importFrom(
+                new BufferedReader(new StringReader("name,email\nCopy Three,copy3@example.com\n")),
+                UserFileFormat.CSV, null, null);
+        assertEquals(1, stats.imported());
+
+        // Идентификаторы COPY взяты из генератора сущности и не пересекаются с обычными вставками
+        User saved = userDao.save(new User("After Copy", "after@example.com", 40));
+        assertNotNull(saved.getId());
+        assertEquals(5, userDao.findAll().size());
+    }
+
+    @Test
+    void testImport_CopiedEmailsAreVisibleThroughDecorators() throws Exception {
+        BloomFilterUserDao emailFilter = new BloomFilterUserDao(userDao, 1_000, 0.01);
+        CachingUserDao userCache = new CachingUserDao(emailFilter);
+        UserDao chain = new CountingUserDao(userCache);
+        emailFilter.rebuild();
+        List<String> emails = List.of("copied1@example.com", "copied2@example.com", "copied3@example.com");
+        // Отрицательные ответы фильтра и кэша до импорта
+        emails.forEach(email -> assertTrue(chain.findByEmail(email).isEmpty()));
+
+        StringBuilder csv = new StringBuilder("name,email,age\n");
+        emails.forEach(email -> csv.append("Copied,").append(email).append(",30\n"));
+        ImportStats stats = new UserImporter(testSessionFactory, chain, 10, copied -> {
+            emailFilter.rememberAll(copied);
+            userCache.invalidateAll(copied);
+        }).importFrom(new BufferedReader(new StringReader(csv.toString())), UserFileFormat.CSV, null, null);
+
+        assertEquals(3, stats.imported());
+        for (String email : emails) {
+            assertTrue(chain.findByEmail(email).isPresent(), email);
+            assertTrue(chain.existsByEmail(email), email);
+        }
+    }
+}
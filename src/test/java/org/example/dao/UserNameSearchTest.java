@@ -0,0 +1,112 @@
+package org.example.dao;
+
+import org.example.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Поиск по имени на H2: без pg_trgm - запрос LIKE в БД или, если включён, триграммный индекс в памяти
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserNameSearchTest {
+
+    private SessionFactory sessionFactory;
+    private SessionFactory likeSessionFactory;
+    private UserDao userDao;
+    private UserDao likeUserDao;
+
+    @BeforeAll
+    void setUpAll() {
+        sessionFactory = buildSessionFactory("jdbc:h2:mem:name_search_test;DB_CLOSE_DELAY=-1", true);
+        likeSessionFactory = buildSessionFactory("jdbc:h2:mem:name_search_like_test;DB_CLOSE_DELAY=-1", false);
+    }
+
+    private static SessionFactory buildSessionFactory(String url, boolean inMemoryIndex) {
+        Configuration configuration = new Configuration();
+        configuration.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+        configuration.setProperty("hibernate.connection.url", url);
+        configuration.setProperty("hibernate.connection.username", "sa");
+        configuration.setProperty("hibernate.connection.password", "");
+        configuration.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        configuration.setProperty(UserDaoImpl.IN_MEMORY_NAME_INDEX, String.valueOf(inMemoryIndex));
+        configuration.addAnnotatedClass(User.class);
+        return configuration.buildSessionFactory();
+    }
+
+    @BeforeEach
+    void setUp() {
+        for (SessionFactory factory : List.of(sessionFactory, likeSessionFactory)) {
+            try (var session = factory.openSession()) {
+                var transaction = session.beginTransaction();
+                session.createMutationQuery("DELETE FROM User").executeUpdate();
+                transaction.commit();
+            }
+        }
+        userDao = new UserDaoImpl(sessionFactory);
+        likeUserDao = new UserDaoImpl(likeSessionFactory);
+    }
+
+    @AfterAll
+    void tearDownAll() {
+        if (sessionFactory != null) {
+            sessionFactory.close();
+        }
+        if (likeSessionFactory != null) {
+            likeSessionFactory.close();
+        }
+    }
+
+    @Test
+    void testSearchRanksByRelevanceAndAppliesLimit() {
+        for (UserDao dao : List.of(userDao, likeUserDao)) {
+            dao.save(new User("Mike Johnson", "mike@example.com", 30));
+            dao.save(new User("Johnny Bravo", "johnny@example.com", 28));
+            dao.save(new User("John", "john@example.com", 25));
+            dao.save(new User("Alice Smith", "alice@example.com", 22));
+
+            List<String> names = dao.searchByName("JOHN", 10).stream().map(User::getName).toList();
+            assertEquals(List.of("John", "Johnny Bravo", "Mike Johnson"), names);
+
+            assertEquals(1, dao.searchByName("john", 1).size());
+            assertTrue(dao.searchByName("Bob", 10).isEmpty());
+        }
+    }
+
+    @Test
+    void testLikeSearchEscapesWildcards() {
+        likeUserDao.save(new User("Sale 50% off", "sale@example.com", 30));
+        likeUserDao.save(new User("Sale 500 off", "sale500@example.com", 30));
+
+        assertEquals(List.of("Sale 50% off"),
+                likeUserDao.searchByName("50%", 10).stream().map(User::getName).toList());
+    }
+
+    @Test
+    void testShortFragmentIsRejected() {
+        userDao.save(new User("Al", "al@example.com", 30));
+
+        assertThrows(IllegalArgumentException.class, () -> userDao.searchByName("al", 10));
+        assertThrows(IllegalArgumentException.class, () -> likeUserDao.searchByName(" al ", 10));
+    }
+
+    @Test
+    void testIndexFollowsWrites() {
+        User user = userDao.save(new User("Original Name", "original@example.com", 30));
+        assertEquals(1, userDao.searchByName("original", 10).size());
+
+        user.setName("Renamed");
+        userDao.update(user);
+        assertTrue(userDao.searchByName("original", 10).isEmpty());
+        assertEquals(1, userDao.searchByName("renamed", 10).size());
+
+        userDao.saveAll(List.of(new User("Renamed Twin", "twin@example.com", 31)), 10);
+        assertEquals(2, userDao.searchByName("renamed", 10).size());
+
+        userDao.delete(user.getId());
+        assertEquals(List.of("Renamed Twin"),
+                userDao.searchByName("renamed", 10).stream().map(User::getName).toList());
+    }
+}
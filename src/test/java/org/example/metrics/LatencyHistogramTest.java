@@ -0,0 +1,51 @@
+package org.example.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testPercentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+
+        LatencySnapshot snapshot = histogram.snapshot();
+
+        assertEquals(10_000, snapshot.count());
+        assertEquals(10_000_000, snapshot.maxNanos());
+        assertEquals(5_000_000, snapshot.p50Nanos(), 5_000_000 * 0.04);
+        assertEquals(9_500_000, snapshot.p95Nanos(), 9_500_000 * 0.04);
+        assertEquals(9_900_000, snapshot.p99Nanos(), 9_900_000 * 0.04);
+        assertEquals(5_000_500, snapshot.meanNanos(), 1.0);
+    }
+
+    @Test
+    void testBucketsCoverValuesWithoutGaps() {
+        long previousUpperBound = -1;
+        for (long value = 0; value < 1_000_000; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            long upperBound = LatencyHistogram.upperBoundOf(index);
+            assertTrue(value <= upperBound, "value " + value + " above its bucket");
+            assertTrue(upperBound >= previousUpperBound);
+            previousUpperBound = upperBound;
+        }
+    }
+
+    @Test
+    void testEmptyAndHugeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().p99Nanos());
+
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        LatencySnapshot snapshot = histogram.snapshot();
+        assertEquals(2, snapshot.count());
+        assertEquals(Long.MAX_VALUE, snapshot.maxNanos());
+        assertEquals(0, snapshot.p50Nanos());
+    }
+}
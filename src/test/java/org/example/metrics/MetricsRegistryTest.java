@@ -0,0 +1,83 @@
+package org.example.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    @AfterEach
+    void tearDown() {
+        registry.unregisterMBeans();
+    }
+
+    @Test
+    void testOperationsAreExposedOverJmx() throws Exception {
+        registry.registerMBeans();
+        OperationMetrics findById = registry.operation("dao", "findById");
+        findById.record(2_000_000, true);
+        findById.record(4_000_000, false);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = MetricsRegistry.objectNameOf(findById);
+
+        assertEquals(1L, server.getAttribute(name, "SuccessCount"));
+        assertEquals(1L, server.getAttribute(name, "ErrorCount"));
+        assertEquals(4.0, (Double) server.getAttribute(name, "MaxMillis"), 0.001);
+
+        registry.unregisterMBeans();
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    void testJmxAttributesShareOneSnapshot() {
+        OperationMetrics metrics = new OperationMetrics("dao", "findById", Long.MAX_VALUE);
+        metrics.record(2_000_000, true);
+        assertEquals(2.0, metrics.getMaxMillis(), 0.001);
+
+        metrics.record(8_000_000, true);
+
+        // Атрибуты того же опроса согласованы со снимком, а latency() всегда свежая
+        assertEquals(2.0, metrics.getMaxMillis(), 0.001);
+        assertEquals(2.0, metrics.getMeanMillis(), 0.001);
+        assertEquals(2, metrics.latency().count());
+        assertEquals(8_000_000, metrics.latency().maxNanos(), 8_000_000 * 0.01);
+
+        OperationMetrics uncached = new OperationMetrics("dao", "save", 0);
+        uncached.record(2_000_000, true);
+        assertEquals(2.0, uncached.getMaxMillis(), 0.001);
+        uncached.record(8_000_000, true);
+        assertEquals(8.0, uncached.getMaxMillis(), 0.08);
+    }
+
+    @Test
+    void testPrometheusEndpoint() throws Exception {
+        OperationMetrics save = registry.operation("dao", "save");
+        save.record(1_000_000, true);
+
+        try (PrometheusExporter exporter = new PrometheusExporter(registry, 0).start()) {
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + exporter.getPort() + "/metrics")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode());
+            assertEquals(PrometheusExporter.CONTENT_TYPE, response.headers().firstValue("Content-Type").orElseThrow());
+            String body = response.body();
+            assertTrue(body.contains("# TYPE user_service_operation_duration_seconds summary"));
+            assertTrue(body.contains("user_service_operation_duration_seconds_count{layer=\"dao\",operation=\"save\"} 1"));
+            assertTrue(body.contains("user_service_operations_total{layer=\"dao\",operation=\"save\",outcome=\"success\"} 1"));
+            assertTrue(body.contains("user_service_operations_total{layer=\"dao\",operation=\"save\",outcome=\"error\"} 0"));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.example.service;
+
+import org.example.dao.AgeBucket;
+import org.example.dao.AgeStats;
+import org.example.dao.DailySignups;
+import org.example.dao.MultiGetResult;
+import org.example.dao.PatchResult;
+import org.example.dao.UpsertResult;
+import org.example.dao.UserContact;
+import org.example.dao.UserPatch;
+import org.example.dao.UserSummary;
+import org.example.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.*;
+
+class AsyncUserServiceTest {
+
+    private UserService userService;
+    private AsyncUserService asyncUserService;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        userService = mock(UserService.class);
+        asyncUserService = new AsyncUserService(userService, 1, 1, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        asyncUserService.close();
+    }
+
+    @Test
+    void testGetUserById_Success() throws Exception {
+        User user = new User("John", "john@example.com", 30);
+        when(userService.getUserById(1L)).thenReturn(Optional.of(user));
+
+        Optional<User> result = asyncUserService.getUserById(1L).get(5, TimeUnit.SECONDS);
+
+        assertSame(user, result.orElseThrow());
+        assertEquals(1, asyncUserService.getStats().completed());
+    }
+
+    @Test
+    void testLookupAndStatisticsOperationsDelegateToService() throws Exception {
+        User user = new User("John", "john@example.com", 30);
+        LocalDate today = LocalDate.now();
+        MultiGetResult<Long> byIds = new MultiGetResult<>(List.of(user), List.of(2L));
+        MultiGetResult<String> byEmails = new MultiGetResult<>(List.of(user), List.of());
+        List<UserSummary> summaries = List.of(new UserSummary(1L, "John"));
+        List<UserContact> contacts = List.of(new UserContact(1L, "john@example.com"));
+        List<AgeBucket> buckets = List.of(new AgeBucket(30, 40, 1));
+        List<DailySignups> signups = List.of(new DailySignups(today, 1));
+        AgeStats ages = new AgeStats(1, 30, 30, 30.0);
+        when(userService.getUsersByIds(List.of(1L, 2L))).thenReturn(byIds);
+        when(userService.findUsersByEmails(List.of("john@example.com"))).thenReturn(byEmails);
+        when(userService.getUserSummaries()).thenReturn(summaries);
+        when(userService.findUserSummariesByName("John")).thenReturn(summaries);
+        when(userService.getUserContacts()).thenReturn(contacts);
+        when(userService.getUserCount()).thenReturn(1L);
+        when(userService.getAgeDistribution(10)).thenReturn(buckets);
+        when(userService.getSignupsPerDay(today, today.plusDays(1))).thenReturn(signups);
+        when(userService.getAgeStats()).thenReturn(ages);
+
+        assertSame(byIds, asyncUserService.getUsersByIds(List.of(1L, 2L)).get(5, TimeUnit.SECONDS));
+        assertSame(byEmails, asyncUserService.findUsersByEmails(List.of("john@example.com")).get(5, TimeUnit.SECONDS));
+        assertSame(summaries, asyncUserService.getUserSummaries().get(5, TimeUnit.SECONDS));
+        assertSame(summaries, asyncUserService.findUserSummariesByName("John").get(5, TimeUnit.SECONDS));
+        assertSame(contacts, asyncUserService.getUserContacts().get(5, TimeUnit.SECONDS));
+        assertEquals(1L, asyncUserService.getUserCount().get(5, TimeUnit.SECONDS));
+        assertSame(buckets, asyncUserService.getAgeDistribution(10).get(5, TimeUnit.SECONDS));
+        assertSame(signups, asyncUserService.getSignupsPerDay(today, today.plusDays(1)).get(5, TimeUnit.SECONDS));
+        assertSame(ages, asyncUserService.getAgeStats().get(5, TimeUnit.SECONDS));
+        assertEquals(9, asyncUserService.getStats().completed());
+    }
+
+    @Test
+    void testWriteOperationsDelegateToService() throws Exception {
+        User user = new User("John", "john@example.com", 30);
+        UserPatch patch = UserPatch.of(1L).withAge(31);
+        UpsertResult upserted = new UpsertResult(user, true);
+        when(userService.patchUser(patch)).thenReturn(PatchResult.UPDATED);
+        when(userService.upsertUserByEmail("John", "john@example.com", 30)).thenReturn(upserted);
+        when(userService.upsertUsersByEmail(List.of(user))).thenReturn(List.of(upserted));
+
+        assertEquals(PatchResult.UPDATED, asyncUserService.patchUser(patch).get(5, TimeUnit.SECONDS));
+        assertSame(upserted, asyncUserService.upsertUserByEmail("John", "john@example.com", 30)
+                .get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(upserted), asyncUserService.upsertUsersByEmail(List.of(user)).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testExceptionIsPropagated() {
+        when(userService.getUserById(0L)).thenThrow(new IllegalArgumentException("User ID must be positive"));
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> asyncUserService.getUserById(0L).get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+    }
+
+    @Test
+    void testPerCallTimeout() {
+        blockExecutor();
+
+        CompletableFuture<Optional<User>> future = asyncUserService.withTimeout(Duration.ofMillis(100))
+                .findUserByEmail("slow@example.com");
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, exception.getCause());
+        assertEquals(1, asyncUserService.getStats().timedOut());
+    }
+
+    @Test
+    void testQueueOverflowIsRejectedAndQueueDepthIsReported() throws Exception {
+        blockExecutor();
+
+        CompletableFuture<Optional<User>> queued = asyncUserService.getUserById(2L);
+        CompletableFuture<Optional<User>> rejected = asyncUserService.getUserById(3L);
+
+        AsyncExecutorStats stats = asyncUserService.getStats();
+        assertEquals(1, stats.activeTasks());
+        assertEquals(1, stats.queuedTasks());
+        assertEquals(1, stats.rejected());
+
+        ExecutionException exception = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+
+        assertTrue(queued.cancel(true));
+        release.countDown();
+        verify(userService, after(200).never()).getUserById(2L);
+    }
+
+    @Test
+    void testVirtualThreadsRejectCallsBeyondQueueCapacity() throws Exception {
+        // Сборка нацелена на JDK 17, виртуальные потоки есть только с JDK 21
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads require JDK 21");
+        asyncUserService.close();
+        asyncUserService = AsyncUserService.withVirtualThreads(userService, 1, 1, Duration.ofSeconds(5));
+        blockExecutor();
+
+        CompletableFuture<Optional<User>> waiting = asyncUserService.getUserById(2L);
+        CompletableFuture<Optional<User>> rejected = asyncUserService.getUserById(3L);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+        assertEquals(1, asyncUserService.getStats().rejected());
+
+        // Отменённый вызов освобождает место в очереди
+        assertTrue(waiting.cancel(true));
+        when(userService.getUserById(4L)).thenReturn(Optional.empty());
+        CompletableFuture<Optional<User>> accepted = asyncUserService.getUserById(4L);
+        release.countDown();
+        assertEquals(Optional.empty(), accepted.get(5, TimeUnit.SECONDS));
+    }
+
+    // Занимает единственный поток исполнителя до release
+    private void blockExecutor() {
+        CountDownLatch started = new CountDownLatch(1);
+        when(userService.getAllUsers()).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return List.of();
+        });
+        asyncUserService.getAllUsers();
+        try {
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        }
+    }
+}
@@ -1,12 +1,21 @@
 package org.example.service;
 
+import org.example.dao.BatchSaveResult;
+import org.example.dao.MultiGetResult;
+import org.example.dao.PatchResult;
+import org.example.dao.UpsertResult;
 import org.example.dao.UserDao;
+import org.example.dao.UserPatch;
+import org.example.dao.UserSummary;
 import org.example.entity.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -61,6 +70,37 @@ class UserServiceTest {
         verify(userDao, never()).save(any(User.class));
     }
 
+    @Test
+    void testCreateUsers_Success() {
+        List<User> users = List.of(
+                new User("User1", "user1@example.com", 25),
+                new User("User2", "user2@example.com", 30)
+        );
+        BatchSaveResult expectedResult = new BatchSaveResult(2, List.of());
+
+        when(userDao.saveAll(users, 100)).thenReturn(expectedResult);
+
+        BatchSaveResult result = userService.createUsers(users, 100);
+
+        assertSame(expectedResult, result);
+        verify(userDao, times(1)).saveAll(users, 100);
+    }
+
+    @Test
+    void testCreateUsers_InvalidData() {
+        List<User> users = List.of(
+                new User("User1", "user1@example.com", 25),
+                new User("User2", "invalid-email", 30)
+        );
+
+        assertThrows(IllegalArgumentException.class, () -> userService.createUsers(users));
+        assertThrows(IllegalArgumentException.class, () -> userService.createUsers(null));
+        assertThrows(IllegalArgumentException.class, () -> userService.createUsers(List.of(), 0));
+
+        verify(userDao, never()).saveAll(any());
+        verify(userDao, never()).saveAll(any(), anyInt());
+    }
+
     @Test
     void testGetUserById_Success() {
         Long userId = 1L;
@@ -102,14 +142,36 @@ class UserServiceTest {
         verify(userDao, times(1)).findAll();
     }
 
+    @Test
+    void testGetUsersPage() {
+        List<User> expectedUsers = List.of(new User("User1", "user1@example.com", 25));
+
+        when(userDao.findPageAfter(10L, 50)).thenReturn(expectedUsers);
+
+        List<User> result = userService.getUsersPage(10L, 50);
+
+        assertEquals(expectedUsers, result);
+        verify(userDao, times(1)).findPageAfter(10L, 50);
+    }
+
+    @Test
+    void testGetUsersPage_InvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersPage(-1L, 50));
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersPage(null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.getUsersPage(null, UserService.MAX_PAGE_SIZE + 1));
+
+        verify(userDao, never()).findPageAfter(any(), anyInt());
+    }
+
     @Test
     void testUpdateUser_Success() {
         Long userId = 1L;
-        User existingUser = new User("Old Name", "old@example.com", 25);
-        existingUser.setId(userId);
-
-        when(userDao.findById(userId)).thenReturn(Optional.of(existingUser));
-        when(userDao.update(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        UserPatch patch = UserPatch.replace(userId, "New Name", "new@example.com", 30);
+        User updatedUser = new User("New Name", "new@example.com", 30);
+        updatedUser.setId(userId);
+        when(userDao.patch(patch)).thenReturn(PatchResult.UPDATED);
+        when(userDao.findById(userId)).thenReturn(Optional.of(updatedUser));
 
         User result = userService.updateUser(userId, "New Name", "new@example.com", 30);
 
@@ -117,29 +179,51 @@ class UserServiceTest {
         assertEquals("new@example.com", result.getEmail());
         assertEquals(30, result.getAge());
 
+        verify(userDao, times(1)).patch(patch);
         verify(userDao, times(1)).findById(userId);
-        verify(userDao, times(1)).update(existingUser);
+        verify(userDao, never()).update(any(User.class));
+        assertEquals(0, userService.getWritesAvoided());
+    }
+
+    @Test
+    void testUpdateUser_UnchangedValuesAreNotWritten() {
+        User unchanged = new User("Same Name", "same@example.com", 30);
+        unchanged.setId(1L);
+        when(userDao.patch(any(UserPatch.class))).thenReturn(PatchResult.UNCHANGED);
+        when(userDao.findById(1L)).thenReturn(Optional.of(unchanged));
+
+        assertSame(unchanged, userService.updateUser(1L, "Same Name", "same@example.com", 30));
+
+        assertEquals(1, userService.getWritesAvoided());
+    }
+
+    @Test
+    void testPatchUser_ValidatesOnlyGivenFields() {
+        UserPatch patch = UserPatch.of(1L).withAge(31);
+        when(userDao.patch(patch)).thenReturn(PatchResult.UPDATED);
+
+        assertEquals(PatchResult.UPDATED, userService.patchUser(patch));
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.patchUser(UserPatch.of(1L).withEmail("invalid-email")));
+        verify(userDao, times(1)).patch(any(UserPatch.class));
     }
 
     @Test
     void testDeleteUser_Success() {
         Long userId = 1L;
-        User existingUser = new User("John", "john@example.com", 30);
-        existingUser.setId(userId);
-
-        when(userDao.findById(userId)).thenReturn(Optional.of(existingUser));
-        doNothing().when(userDao).delete(userId);
+        when(userDao.deleteById(userId)).thenReturn(1);
 
         userService.deleteUser(userId);
 
-        verify(userDao, times(1)).findById(userId);
-        verify(userDao, times(1)).delete(userId);
+        verify(userDao, times(1)).deleteById(userId);
+        verify(userDao, never()).findById(anyLong());
+        verify(userDao, never()).delete(anyLong());
     }
 
     @Test
     void testUpdateUser_UserNotFound() {
         Long userId = 1L;
-        when(userDao.findById(userId)).thenReturn(Optional.empty());
+        when(userDao.patch(any(UserPatch.class))).thenReturn(PatchResult.NOT_FOUND);
 
         assertThrows(IllegalArgumentException.class,
                 () -> userService.updateUser(userId, "New Name", "new@example.com", 30));
@@ -147,15 +231,21 @@ class UserServiceTest {
         verify(userDao, never()).update(any(User.class));
     }
 
+    @Test
+    void testUpdateUser_InvalidData() {
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.updateUser(1L, "Name", "invalid-email", 30));
+
+        verify(userDao, never()).patch(any(UserPatch.class));
+    }
+
     @Test
     void testDeleteUser_UserNotFound() {
         Long userId = 1L;
-        when(userDao.findById(userId)).thenReturn(Optional.empty());
+        when(userDao.deleteById(userId)).thenReturn(0);
 
         assertThrows(IllegalArgumentException.class,
                 () -> userService.deleteUser(userId));
-
-        verify(userDao, never()).delete(anyLong());
     }
 
     @Test
@@ -176,6 +266,32 @@ class UserServiceTest {
                 () -> userService.findUsersByName(null));
     }
 
+    @Test
+    void testFindUserSummariesByName() {
+        List<UserSummary> expected = List.of(new UserSummary(1L, "John Smith"));
+        when(userDao.findSummariesByName("John")).thenReturn(expected);
+
+        assertEquals(expected, userService.findUserSummariesByName("John"));
+        verify(userDao, never()).findByName(anyString());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.findUserSummariesByName(" "));
+    }
+
+    @Test
+    void testStatistics_ValidateArguments() {
+        when(userDao.count()).thenReturn(42L);
+
+        assertEquals(42, userService.getUserCount());
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.getAgeDistribution(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.getSignupsPerDay(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.getSignupsPerDay(null, LocalDate.of(2024, 1, 1)));
+        verify(userDao, never()).findAll();
+    }
+
     @Test
     void testGetUserById_UserNotFound() {
         Long userId = 1L;
@@ -186,4 +302,63 @@ class UserServiceTest {
         assertFalse(result.isPresent());
         verify(userDao, times(1)).findById(userId);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSearchUsersByName() {
+        List<User> expectedUsers = List.of(new User("John Smith", "john@example.com", 30));
+
+        when(userDao.searchByName("John", 10)).thenReturn(expectedUsers);
+
+        List<User> result = userService.searchUsersByName("  John ", 10);
+
+        assertEquals(expectedUsers, result);
+        verify(userDao, times(1)).searchByName("John", 10);
+    }
+
+    @Test
+    void testSearchUsersByName_InvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> userService.searchUsersByName("", 10));
+        assertThrows(IllegalArgumentException.class, () -> userService.searchUsersByName(" Jo ", 10));
+        assertThrows(IllegalArgumentException.class, () -> userService.searchUsersByName("John", 0));
+
+        verify(userDao, never()).searchByName(any(), anyInt());
+    }
+
+    @Test
+    void testMultiGet_ValidatesKeys() {
+        MultiGetResult<Long> expected = new MultiGetResult<>(List.of(), List.of(7L));
+        when(userDao.findAllByIds(List.of(7L))).thenReturn(expected);
+
+        assertEquals(expected, userService.getUsersByIds(List.of(7L)));
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersByIds(null));
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersByIds(List.of(1L, 0L)));
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersByIds(
+                LongStream.rangeClosed(1, UserService.MAX_PAGE_SIZE + 1).boxed().toList()));
+        assertThrows(IllegalArgumentException.class, () -> userService.findUsersByEmails(List.of(" ")));
+
+        verify(userDao, never()).findAllByEmails(any());
+    }
+
+    @Test
+    void testMultiGet_LimitCountsDistinctKeys() {
+        MultiGetResult<Long> expected = new MultiGetResult<>(List.of(), List.of(1L));
+        when(userDao.findAllByIds(List.of(1L))).thenReturn(expected);
+
+        assertEquals(expected, userService.getUsersByIds(Collections.nCopies(UserService.MAX_PAGE_SIZE + 1, 1L)));
+        verify(userDao).findAllByIds(List.of(1L));
+    }
+
+    @Test
+    void testUpsertUserByEmail() {
+        User stored = new User("John", "john@example.com", 30);
+        stored.setId(1L);
+        when(userDao.upsertByEmail(any(User.class))).thenReturn(new UpsertResult(stored, false));
+
+        UpsertResult result = userService.upsertUserByEmail("John", "john@example.com", 30);
+
+        assertTrue(result.updated());
+        verify(userDao).upsertByEmail(argThat(user -> "john@example.com".equals(user.getEmail())));
+        assertThrows(IllegalArgumentException.class, () -> userService.upsertUserByEmail("John", "invalid", 30));
+        assertThrows(IllegalArgumentException.class, () -> userService.upsertUsersByEmail(null));
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.service;
+
+import org.example.dao.PatchResult;
+import org.example.dao.UpsertResult;
+import org.example.dao.UserDao;
+import org.example.dao.UserPatch;
+import org.example.dao.UserUpdate;
+import org.example.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WriteBehindUserServiceTest {
+
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    private final UserDao userDao = mock(UserDao.class);
+    private WriteBehindUserService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRepeatedUpdatesAreCoalescedIntoOneRow() {
+        when(userDao.updateAll(anyCollection())).thenAnswer(invocation -> invocation.getArgument(0, Collection.class).size());
+        service = new WriteBehindUserService(userDao, 100, 100, NEVER, Duration.ZERO);
+
+        service.updateUser(1L, "John", "john@example.com", 30);
+        service.updateUser(1L, "John", "john@example.com", 31);
+        service.updateUser(1L, "John", "john@example.com", 32);
+        service.updateUser(2L, "Alice", "alice@example.com", 25);
+
+        assertEquals(2, service.flush());
+
+        verify(userDao).updateAll(argThat((Collection<UserUpdate> batch) -> batch.size() == 2
+                && batch.contains(new UserUpdate(1L, "John", "john@example.com", 32))));
+        WriteBehindStats stats = service.getStats();
+        assertEquals(4, stats.received());
+        assertEquals(2, stats.coalesced());
+        assertEquals(0.5, stats.coalescingRatio(), 1e-9);
+        assertEquals(0, stats.pending());
+    }
+
+    @Test
+    void testPatchIsNotOverwrittenByOlderBufferedUpdate() {
+        UserPatch patch = UserPatch.of(1L).withAge(40);
+        when(userDao.updateAll(anyCollection())).thenReturn(1);
+        when(userDao.patch(patch)).thenReturn(PatchResult.UPDATED);
+        service = new WriteBehindUserService(userDao, 100, 100, NEVER, Duration.ZERO);
+
+        service.updateUser(1L, "John", "john@example.com", 30);
+        assertEquals(PatchResult.UPDATED, service.patchUser(patch));
+        assertEquals(0, service.flush());
+
+        InOrder order = inOrder(userDao);
+        order.verify(userDao).updateAll(List.of(new UserUpdate(1L, "John", "john@example.com", 30)));
+        order.verify(userDao).patch(patch);
+        verifyNoMoreInteractions(userDao);
+        assertEquals(0, service.getStats().pending());
+    }
+
+    @Test
+    void testUpsertFlushesBufferedUpdatesFirst() {
+        User stored = new User("John Smith", "john@example.com", 35);
+        stored.setId(1L);
+        when(userDao.updateAll(anyCollection())).thenReturn(1);
+        when(userDao.upsertByEmail(any(User.class))).thenReturn(new UpsertResult(stored, false));
+        service = new WriteBehindUserService(userDao, 100, 100, NEVER, Duration.ZERO);
+
+        service.updateUser(1L, "John", "john@example.com", 30);
+        assertTrue(service.upsertUserByEmail("John Smith", "john@example.com", 35).updated());
+        assertEquals(0, service.flush());
+
+        InOrder order = inOrder(userDao);
+        order.verify(userDao).updateAll(anyCollection());
+        order.verify(userDao).upsertByEmail(any(User.class));
+        verify(userDao, times(1)).updateAll(anyCollection());
+    }
+
+    @Test
+    void testFullBufferRejectsNewUsersButAcceptsPendingOnes() {
+        service = new WriteBehindUserService(userDao, 2, 100, NEVER, Duration.ofMillis(10));
+
+        service.updateUser(1L, "John", "john@example.com", 30);
+        service.updateUser(2L, "Alice", "alice@example.com", 25);
+
+        assertThrows(RejectedExecutionException.class,
+                () -> service.updateUser(3L, "Bob", "bob@example.com", 40));
+        service.updateUser(1L, "John", "john@example.com", 31);
+        assertEquals(1, service.getStats().rejected());
+    }
+
+    @Test
+    void testFullBatchIsFlushedInBackground() {
+        when(userDao.updateAll(anyCollection())).thenReturn(2);
+        service = new WriteBehindUserService(userDao, 100, 2, NEVER, Duration.ZERO);
+
+        service.updateUser(1L, "John", "john@example.com", 30);
+        service.updateUser(2L, "Alice", "alice@example.com", 25);
+
+        verify(userDao, timeout(5_000)).updateAll(anyCollection());
+    }
+
+    @Test
+    void testCloseFlushesAndFailedBatchIsRetriedRowByRow() {
+        when(userDao.updateAll(anyCollection())).thenThrow(new RuntimeException("duplicate email"));
+        when(userDao.updateById(1L, "John", "john@example.com", 30)).thenReturn(1);
+        when(userDao.updateById(2L, "Alice", "john@example.com", 25)).thenThrow(new RuntimeException("duplicate email"));
+        service = new WriteBehindUserService(userDao, 100, 100, NEVER, Duration.ZERO);
+
+        service.updateUser(1L, "John", "john@example.com", 30);
+        service.updateUser(2L, "Alice", "john@example.com", 25);
+        service.close();
+
+        verify(userDao).updateById(1L, "John", "john@example.com", 30);
+        WriteBehindStats stats = service.getStats();
+        assertEquals(1, stats.rowsWritten());
+        assertEquals(1, stats.failed());
+        assertThrows(RejectedExecutionException.class,
+                () -> service.updateUser(1L, "John", "john@example.com", 33));
+    }
+
+    @Test
+    void testInvalidUpdateIsRejectedImmediately() {
+        service = new WriteBehindUserService(userDao, 100, 100, NEVER, Duration.ZERO);
+
+        assertThrows(IllegalArgumentException.class, () -> service.updateUser(1L, "", "john@example.com", 30));
+        assertEquals(List.of(), List.copyOf(mockingDetails(userDao).getInvocations()));
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.transfer;
+
+import org.example.dao.UserDao;
+import org.example.dao.UserDaoImpl;
+import org.example.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserExporterTest {
+
+    private SessionFactory sessionFactory;
+    private UserDao userDao;
+
+    @BeforeAll
+    void setUpAll() {
+        Configuration configuration = new Configuration();
+        configuration.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+        configuration.setProperty("hibernate.connection.url", "jdbc:h2:mem:export_test;DB_CLOSE_DELAY=-1");
+        configuration.setProperty("hibernate.connection.username", "sa");
+        configuration.setProperty("hibernate.connection.password", "");
+        configuration.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        configuration.addAnnotatedClass(User.class);
+
+        sessionFactory = configuration.buildSessionFactory();
+        userDao = new UserDaoImpl(sessionFactory);
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (var session = sessionFactory.openSession()) {
+            var transaction = session.beginTransaction();
+            session.createMutationQuery("DELETE FROM User").executeUpdate();
+            transaction.commit();
+        }
+        userDao.saveAll(List.of(
+                new User("Doe, \"John\"", "john@example.com", 30),
+                new User("Jane", "jane@example.com", null)));
+    }
+
+    @AfterAll
+    void tearDownAll() {
+        if (sessionFactory != null) {
+            sessionFactory.close();
+        }
+    }
+
+    @Test
+    void testCsvExport() throws IOException {
+        StringWriter out = new StringWriter();
+
+        long rows = new UserExporter(userDao).exportTo(out, UserFileFormat.CSV, null);
+
+        List<String> lines = out.toString().lines().toList();
+        assertEquals(2, rows);
+        assertEquals("id,name,email,age,created_at", lines.get(0));
+        assertTrue(lines.get(1).matches("\\d+,\"Doe, \"\"John\"\"\",john@example.com,30,.+"));
+        assertTrue(lines.get(2).matches("\\d+,Jane,jane@example.com,,.+"));
+    }
+
+    @Test
+    void testGzipNdjsonExportRoundTrip(@TempDir Path directory) {
+        Path target = directory.resolve("users.ndjson.gz");
+
+        ExportStats stats = new UserExporter(userDao, 1).exportFile(target, null);
+
+        assertEquals(2, stats.rowsWritten());
+        assertTrue(stats.bytesWritten() > 0);
+        assertFalse(Files.exists(directory.resolve("users.ndjson.gz.part")));
+
+        // Экспорт читается импортом обратно: после очистки таблицы получаем тех же пользователей
+        try (var session = sessionFactory.openSession()) {
+            var transaction = session.beginTransaction();
+            session.createMutationQuery("DELETE FROM User").executeUpdate();
+            transaction.commit();
+        }
+        ImportStats imported = new UserImporter(sessionFactory, userDao).importFile(target, null, null);
+
+        assertEquals(2, imported.imported());
+        assertEquals("Doe, \"John\"", userDao.findByEmail("john@example.com").orElseThrow().getName());
+        assertNull(userDao.findByEmail("jane@example.com").orElseThrow().getAge());
+    }
+}
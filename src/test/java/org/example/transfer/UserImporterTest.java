@@ -0,0 +1,125 @@
+package org.example.transfer;
+
+import org.example.dao.UserDao;
+import org.example.dao.UserDaoImpl;
+import org.example.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserImporterTest {
+
+    private SessionFactory sessionFactory;
+    private UserDao userDao;
+
+    @BeforeAll
+    void setUpAll() {
+        Configuration configuration = new Configuration();
+        configuration.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+        configuration.setProperty("hibernate.connection.url", "jdbc:h2:mem:import_test;DB_CLOSE_DELAY=-1");
+        configuration.setProperty("hibernate.connection.username", "sa");
+        configuration.setProperty("hibernate.connection.password", "");
+        configuration.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        configuration.addAnnotatedClass(User.class);
+
+        sessionFactory = configuration.buildSessionFactory();
+        userDao = new UserDaoImpl(sessionFactory);
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (var session = sessionFactory.openSession()) {
+            var transaction = session.beginTransaction();
+            session.createMutationQuery("DELETE FROM User").executeUpdate();
+            transaction.commit();
+        }
+    }
+
+    @AfterAll
+    void tearDownAll() {
+        if (sessionFactory != null) {
+            sessionFactory.close();
+        }
+    }
+
+    @Test
+    void testCsvImport_RejectsInvalidRows() throws IOException {
+        String csv = """
+                email,name,age
+                john@example.com,"Doe, John",30
+                not-an-email,Broken,20
+                jane@example.com,Jane,abc
+                "unterminated,Bad,1
+
+                anna@example.com,Anna,
+                """;
+        StringWriter rejects = new StringWriter();
+        List<ImportStats> progress = new ArrayList<>();
+
+        ImportStats stats = new UserImporter(sessionFactory, userDao, 2)
+                .importFrom(new BufferedReader(new StringReader(csv)), UserFileFormat.CSV, rejects, progress::add);
+
+        assertEquals(5, stats.rowsRead());
+        assertEquals(2, stats.imported());
+        assertEquals(3, stats.rejected());
+        assertEquals(1, progress.size());
+
+        assertEquals("Doe, John", userDao.findByEmail("john@example.com").orElseThrow().getName());
+        assertNull(userDao.findByEmail("anna@example.com").orElseThrow().getAge());
+
+        List<String> rejectLines = rejects.toString().lines().toList();
+        assertEquals(3, rejectLines.size());
+        assertTrue(rejectLines.get(0).startsWith("3,Invalid email format,"));
+        assertTrue(rejectLines.get(1).startsWith("4,Invalid age: abc,"));
+        assertTrue(rejectLines.get(2).startsWith("5,Unterminated quoted field,"));
+    }
+
+    @Test
+    void testNdjsonFileImport_RetriesFailedBatchRowByRow(@TempDir Path directory) throws IOException {
+        userDao.save(new User("Existing", "taken@example.com", 40));
+
+        Path source = directory.resolve("users.ndjson");
+        Files.writeString(source, """
+                {"name": "Alice", "email": "alice@example.com", "age": 25}
+                {"name": "Duplicate", "email": "taken@example.com", "age": 33}
+                {"name": "Bob \\"Bobby\\"", "email": "bob@example.com", "age": null}
+                {"name": "Nested", "email": "nested@example.com", "age": {"years": 3}}
+                """);
+        Path rejectFile = directory.resolve("users.rejects.csv");
+
+        ImportStats stats = new UserImporter(sessionFactory, userDao).importFile(source, rejectFile, null);
+
+        assertEquals(4, stats.rowsRead());
+        assertEquals(2, stats.imported());
+        assertEquals(2, stats.rejected());
+        assertTrue(stats.rowsPerSecond() > 0);
+
+        assertEquals("Bob \"Bobby\"", userDao.findByEmail("bob@example.com").orElseThrow().getName());
+        assertEquals("Existing", userDao.findByEmail("taken@example.com").orElseThrow().getName());
+        assertEquals(3, userDao.findAll().size());
+
+        List<String> rejectLines = Files.readAllLines(rejectFile);
+        assertEquals(2, rejectLines.size());
+        assertTrue(rejectLines.stream().anyMatch(line -> line.startsWith("2,")));
+        assertTrue(rejectLines.stream().anyMatch(line -> line.startsWith("4,")));
+    }
+
+    @Test
+    void testCsvHeaderMustNameColumns() {
+        assertThrows(IllegalArgumentException.class, () -> new UserImporter(sessionFactory, userDao)
+                .importFrom(new BufferedReader(new StringReader("a,b,c\n1,2,3\n")), UserFileFormat.CSV, null, null));
+    }
+}
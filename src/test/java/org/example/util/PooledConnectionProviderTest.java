@@ -0,0 +1,73 @@
+package org.example.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PooledConnectionProviderTest {
+
+    private PooledConnectionProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("hibernate.connection.driver_class", "org.h2.Driver");
+        settings.put("hibernate.connection.url", "jdbc:h2:mem:pool_test;DB_CLOSE_DELAY=-1");
+        settings.put("hibernate.connection.username", "sa");
+        settings.put("hibernate.connection.password", "");
+        settings.put(PooledConnectionProvider.MIN_SIZE, "1");
+        settings.put(PooledConnectionProvider.MAX_SIZE, "2");
+        settings.put(PooledConnectionProvider.ACQUIRE_TIMEOUT_MS, "250");
+
+        provider = new PooledConnectionProvider();
+        provider.configure(settings);
+    }
+
+    @AfterEach
+    void tearDown() {
+        provider.stop();
+    }
+
+    @Test
+    void testStatsTrackActiveConnectionsAndAcquireLatency() throws SQLException {
+        Connection connection = provider.getConnection();
+
+        ConnectionPoolStats whileBorrowed = provider.getStats();
+        assertEquals(1, whileBorrowed.activeConnections());
+        assertEquals(2, whileBorrowed.maxPoolSize());
+        assertEquals(1, whileBorrowed.acquireCount());
+        assertTrue(whileBorrowed.maxAcquireMillis() >= whileBorrowed.averageAcquireMillis());
+
+        provider.closeConnection(connection);
+
+        ConnectionPoolStats afterReturn = provider.getStats();
+        assertEquals(0, afterReturn.activeConnections());
+        assertTrue(afterReturn.idleConnections() >= 1);
+    }
+
+    @Test
+    void testAcquireTimeoutIsCounted() throws SQLException {
+        Connection first = provider.getConnection();
+        Connection second = provider.getConnection();
+
+        assertThrows(SQLException.class, () -> provider.getConnection());
+        assertEquals(1, provider.getStats().acquireTimeouts());
+
+        provider.closeConnection(first);
+        provider.closeConnection(second);
+    }
+
+    @Test
+    void testUnwrap() {
+        assertTrue(provider.isUnwrappableAs(PooledConnectionProvider.class));
+        assertSame(provider, provider.unwrap(PooledConnectionProvider.class));
+        assertNotNull(provider.unwrap(javax.sql.DataSource.class));
+    }
+}